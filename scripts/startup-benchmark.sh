@@ -0,0 +1,75 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request of the default build and of the fast-startup build
+# (Spring AOT + AppCDS archive). Extra application arguments (e.g. datasource settings)
+# can be passed through APP_ARGS. Usage: scripts/startup-benchmark.sh [runs]
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+URL="http://localhost:${PORT}/api/groups?fields=id"
+APP_ARGS=${APP_ARGS:-}
+WORK=target/startup-benchmark
+MAIN_CLASS=com.settleup.SettleUpApplication
+
+cd "$(dirname "$0")/.."
+
+now_ms() {
+    date +%s%3N
+}
+
+# Starts the command given as arguments, waits for the first successful request and prints the elapsed ms
+time_to_first_request() {
+    local start pid elapsed
+    start=$(now_ms)
+    "$@" --server.port="${PORT}" ${APP_ARGS} > "${WORK}/app.log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "${URL}"; do
+        if ! kill -0 "${pid}" 2>/dev/null; then
+            echo "application exited, see ${WORK}/app.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    elapsed=$(( $(now_ms) - start ))
+    kill "${pid}"
+    wait "${pid}" 2>/dev/null || true
+    echo "${elapsed}"
+}
+
+# Unpacks the executable jar and repacks the application classes, since CDS only
+# archives classes loaded from plain jars on the classpath
+unpack() {
+    rm -rf "$2" && mkdir -p "$2"
+    (cd "$2" && jar -xf "$1" && jar -cf application.jar -C BOOT-INF/classes . && rm -rf BOOT-INF/classes)
+}
+
+report() {
+    local label=$1; shift
+    local total=0 run ms
+    for run in $(seq "${RUNS}"); do
+        ms=$(time_to_first_request "$@") || exit 1
+        echo "  ${label} run ${run}: ${ms} ms"
+        total=$(( total + ms ))
+    done
+    echo "${label}: average time-to-first-request $(( total / RUNS )) ms over ${RUNS} runs"
+}
+
+mkdir -p "${WORK}"
+
+echo "Building default jar..."
+mvn -B -q package -DskipTests
+unpack "$(pwd)/target/settleup-0.0.1-SNAPSHOT.jar" "${WORK}/default"
+DEFAULT_CP="${WORK}/default/application.jar:${WORK}/default/BOOT-INF/lib/*"
+
+echo "Building fast-startup jar (Spring AOT)..."
+mvn -B -q -Pfast-startup package -DskipTests
+unpack "$(pwd)/target/settleup-0.0.1-SNAPSHOT.jar" "${WORK}/fast"
+FAST_CP="${WORK}/fast/application.jar:${WORK}/fast/BOOT-INF/lib/*"
+FAST_OPTS="-Dspring.aot.enabled=true -Dspring.profiles.active=fast-startup"
+
+echo "Training run to create the CDS archive..."
+java ${FAST_OPTS} -XX:ArchiveClassesAtExit="${WORK}/app.jsa" -Dspring.context.exit=onRefresh \
+    -cp "${FAST_CP}" "${MAIN_CLASS}" ${APP_ARGS} > "${WORK}/training.log" 2>&1
+
+report "default" java -cp "${DEFAULT_CP}" "${MAIN_CLASS}"
+report "fast-startup" java ${FAST_OPTS} -XX:SharedArchiveFile="${WORK}/app.jsa" -cp "${FAST_CP}" "${MAIN_CLASS}"
@@ -0,0 +1,184 @@
+package com.settleup.loadtest;
+
+import com.settleup.SettleUpApplication;
+import com.settleup.config.DatasetGenerator;
+import com.settleup.service.BalanceHistoryRebuildService;
+import com.settleup.service.RollupBackfillService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Expense ingest throughput: starts the application on the embedded database with a generated
+// dataset, then keeps the same number of closed-loop clients busy adding expenses for the same
+// time twice: once on POST /api/expense/flex, which writes each expense in its own transaction,
+// and once on POST /api/expense/async, which queues it for the ingest writers. For the async run
+// it waits until every accepted expense is written and reports expenses written per second over
+// the whole run and the accept-to-commit latency (settleup.ingest.latency). Fails when an
+// accepted expense was not written.
+//
+// Settings (system properties): ingest.clients (default 64), ingest.duration (seconds, default
+// 20), ingest.seed. Program arguments are passed to the application, e.g. --settleup.ingest.batch-size=200.
+public class IngestRun {
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final long[] userIds;
+    private final long[] groupIds;
+    private volatile boolean running;
+
+    IngestRun(String baseUrl, long[] userIds, long[] groupIds) {
+        this.baseUrl = baseUrl;
+        this.userIds = userIds;
+        this.groupIds = groupIds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("ingest.clients", 64);
+        int duration = Integer.getInteger("ingest.duration", 20);
+        long seed = Long.getLong("ingest.seed", 7L);
+
+        SpringApplication application = new SpringApplication(SettleUpApplication.class);
+        application.setAdditionalProfiles("embedded");
+        List<String> appArgs = new ArrayList<>(List.of(args));
+        appArgs.add("--server.port=0");
+        appArgs.add("--settleup.ingest.enabled=true");
+        appArgs.add("--settleup.sql-tracing.log-requests=false");
+        boolean passed;
+        try (ConfigurableApplicationContext context = application.run(appArgs.toArray(new String[0]))) {
+            context.getBean(DatasetGenerator.class).generate();
+            // Let the rollup and balance history rebuilds of the dataset finish first
+            Thread.sleep(1000);
+            while (context.getBean(RollupBackfillService.class).isRunning()
+                    || context.getBean(BalanceHistoryRebuildService.class).isRunning()) {
+                Thread.sleep(100);
+            }
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+            IngestRun test = new IngestRun(baseUrl, LoadTest.fetchIds(baseUrl + "/api/users?fields=id"),
+                    LoadTest.fetchIds(baseUrl + "/api/groups?fields=id"));
+            System.out.printf("Expense ingest: %d clients for %ds per mode%n", clients, duration);
+
+            LatencyRecorder flex = new LatencyRecorder();
+            test.run("/api/expense/flex", clients, duration, seed, flex);
+
+            long before = count(jdbcTemplate);
+            LatencyRecorder async = new LatencyRecorder();
+            long started = System.nanoTime();
+            test.run("/api/expense/async", clients, duration, seed + 1, async);
+            long accepted = async.summarize(duration).count() - async.summarize(duration).errors();
+            while (written(meterRegistry) + failed(meterRegistry) < accepted
+                    && System.nanoTime() - started < TimeUnit.SECONDS.toNanos(duration + 120)) {
+                Thread.sleep(10);
+            }
+            double drainedSeconds = (System.nanoTime() - started) / 1e9;
+            long stored = count(jdbcTemplate) - before;
+
+            System.out.printf("%n%-14s %10s %8s %10s %10s %10s %10s%n",
+                    "", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+            print("flex", flex.summarize(duration));
+            print("async accept", async.summarize(duration));
+            Timer latency = meterRegistry.get("settleup.ingest.latency").timer();
+            HistogramSnapshot snapshot = latency.takeSnapshot();
+            System.out.printf("%-14s %10d %8.0f %10.1f", "async commit", stored, failed(meterRegistry), stored / drainedSeconds);
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                System.out.printf(" %10.2f", percentile.value(TimeUnit.MILLISECONDS));
+            }
+            System.out.printf(" %10.2f%n", snapshot.max(TimeUnit.MILLISECONDS));
+            System.out.printf("%nAsync: %.1fx the expenses per second of flex, %.1f expenses per batch transaction%n",
+                    (stored / drainedSeconds) / flex.summarize(duration).throughput(),
+                    meterRegistry.get("settleup.ingest.batch.size").summary().mean());
+
+            passed = stored == accepted;
+            System.out.println(passed ? "Every accepted expense was written"
+                    : "FAILED: " + accepted + " expenses accepted, " + stored + " written");
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    void run(String path, int clients, int seconds, long seed, LatencyRecorder recorder) throws InterruptedException {
+        running = true;
+        List<CompletableFuture<Void>> loops = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            next(path, new SplittableRandom(seed * 1000 + i), recorder, done);
+            loops.add(done);
+        }
+        TimeUnit.SECONDS.sleep(seconds);
+        running = false;
+        try {
+            CompletableFuture.allOf(loops.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.out.println("Some clients did not finish: " + e.getMessage());
+        }
+    }
+
+    // One client: adds an expense, records it and adds the next until the run ends
+    private void next(String path, SplittableRandom random, LatencyRecorder recorder, CompletableFuture<Void> done) {
+        if (!running) {
+            done.complete(null);
+            return;
+        }
+        long sent = System.nanoTime();
+        client.sendAsync(expense(path, random), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    recorder.record(System.nanoTime() - sent, error == null && response.statusCode() < 400);
+                    next(path, random, recorder, done);
+                });
+    }
+
+    // An expense in a random group, paid by one of two to four participants sharing it equally
+    private HttpRequest expense(String path, SplittableRandom random) {
+        int participants = 2 + random.nextInt(3);
+        StringBuilder splits = new StringBuilder();
+        long payer = 0;
+        for (int i = 0; i < participants; i++) {
+            long userId = userIds[random.nextInt(userIds.length)];
+            payer = i == 0 ? userId : payer;
+            splits.append(i == 0 ? "" : ",").append("{\"userId\":").append(userId).append('}');
+        }
+        String body = "{\"groupId\":" + groupIds[random.nextInt(groupIds.length)] + ",\"paidById\":" + payer
+                + ",\"amount\":" + (1 + random.nextInt(50_000)) / 100.0 + ",\"description\":\"Ingest "
+                + random.nextInt(1000) + "\",\"splitType\":\"EQUAL\",\"splits\":[" + splits + "]}";
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static long count(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expense", Long.class);
+    }
+
+    private static double written(MeterRegistry meterRegistry) {
+        return meterRegistry.get("settleup.ingest.written").counter().count();
+    }
+
+    private static double failed(MeterRegistry meterRegistry) {
+        return meterRegistry.get("settleup.ingest.failed").counter().count();
+    }
+
+    private static void print(String name, LatencyRecorder.Summary s) {
+        System.out.printf("%-14s %10d %8d %10.1f %10.2f %10.2f %10.2f%n", name, s.count(), s.errors(),
+                s.throughput(), s.p50() / 1e6, s.p99() / 1e6, s.max() / 1e6);
+    }
+}
@@ -0,0 +1,195 @@
+package com.settleup.loadtest;
+
+import com.settleup.SettleUpApplication;
+import com.settleup.config.DatasetGenerator;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Open-loop HTTP load test: starts the application on the embedded database, generates a
+// synthetic dataset and fires requests at a fixed arrival rate regardless of how fast the
+// server answers. Latency is measured from each request's scheduled send time, so a stalled
+// server shows up in the percentiles instead of silently lowering the offered load
+// (coordinated omission).
+//
+// Settings (system properties): loadtest.rate (requests/s), loadtest.duration and
+// loadtest.warmup (seconds), loadtest.mix (endpoint=weight,...), loadtest.seed.
+// Program arguments are passed to the application, e.g. --settleup.generator.users=5000.
+public class LoadTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final long[] userIds;
+    private final long[] groupIds;
+
+    LoadTest(String baseUrl, long[] userIds, long[] groupIds) {
+        this.baseUrl = baseUrl;
+        this.userIds = userIds;
+        this.groupIds = groupIds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("loadtest.rate", 200);
+        int duration = Integer.getInteger("loadtest.duration", 60);
+        int warmup = Integer.getInteger("loadtest.warmup", 10);
+        long seed = Long.getLong("loadtest.seed", 7L);
+        Map<Endpoint, Integer> mix = parseMix(System.getProperty("loadtest.mix",
+                "flex=1,balance=4,pending=3,groups=1,users=1"));
+
+        SpringApplication application = new SpringApplication(SettleUpApplication.class);
+        application.setAdditionalProfiles("embedded");
+        List<String> appArgs = new ArrayList<>(List.of(args));
+        appArgs.add("--server.port=0");
+        try (ConfigurableApplicationContext context = application.run(appArgs.toArray(new String[0]))) {
+            context.getBean(DatasetGenerator.class).generate();
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+            LoadTest loadTest = new LoadTest(baseUrl, fetchIds(baseUrl + "/api/users?fields=id"),
+                    fetchIds(baseUrl + "/api/groups?fields=id"));
+            System.out.println("Load test: " + rate + " req/s for " + duration + "s after " + warmup
+                    + "s warmup, mix " + mix);
+            loadTest.run(mix, rate, warmup, seed);
+            Map<Endpoint, LatencyRecorder> results = loadTest.run(mix, rate, duration, seed + 1);
+            report(results, duration);
+        }
+    }
+
+    // Sends requests at the given rate for the given time and returns latencies per endpoint
+    Map<Endpoint, LatencyRecorder> run(Map<Endpoint, Integer> mix, int rate, int seconds, long seed)
+            throws InterruptedException {
+        Map<Endpoint, LatencyRecorder> results = new LinkedHashMap<>();
+        mix.keySet().forEach(endpoint -> results.put(endpoint, new LatencyRecorder()));
+        List<Endpoint> choices = new ArrayList<>();
+        mix.forEach((endpoint, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                choices.add(endpoint);
+            }
+        });
+
+        SplittableRandom random = new SplittableRandom(seed);
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * seconds;
+        long start = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            long scheduled = start + i * interval;
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = choices.get(random.nextInt(choices.size()));
+            LatencyRecorder recorder = results.get(endpoint);
+            inFlight.add(client.sendAsync(request(endpoint, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> recorder.record(System.nanoTime() - scheduled,
+                            error == null && response.statusCode() < 400)));
+        }
+
+        try {
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.out.println("Some requests failed or did not complete: " + e.getMessage());
+        }
+        return results;
+    }
+
+    private HttpRequest request(Endpoint endpoint, SplittableRandom random) {
+        long userId = userIds[random.nextInt(userIds.length)];
+        long groupId = groupIds[random.nextInt(groupIds.length)];
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30));
+        return switch (endpoint) {
+            case FLEX -> builder.uri(URI.create(baseUrl + "/api/expense/flex"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(expenseJson(groupId, userId, random)))
+                    .build();
+            case BALANCE -> builder.uri(URI.create(baseUrl + "/api/splits/balance/user/" + userId
+                    + "/group/" + groupId)).build();
+            case PENDING -> builder.uri(URI.create(baseUrl + "/api/splits/pending/group/" + groupId)).build();
+            case GROUPS -> builder.uri(URI.create(baseUrl + "/api/groups")).build();
+            case USERS -> builder.uri(URI.create(baseUrl + "/api/users")).build();
+        };
+    }
+
+    private String expenseJson(long groupId, long paidById, SplittableRandom random) {
+        StringBuilder splits = new StringBuilder();
+        int participants = 2 + random.nextInt(4);
+        for (int i = 0; i < participants; i++) {
+            if (i > 0) {
+                splits.append(',');
+            }
+            splits.append("{\"userId\":").append(userIds[random.nextInt(userIds.length)]).append('}');
+        }
+        return "{\"groupId\":" + groupId + ",\"paidById\":" + paidById
+                + ",\"amount\":" + (10 + random.nextInt(500)) + ".00"
+                + ",\"description\":\"Load test\",\"splitType\":\"EQUAL\",\"splits\":[" + splits + "]}";
+    }
+
+    static long[] fetchIds(String url) throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient()
+                .send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = ID.matcher(response.body());
+        List<Long> ids = new ArrayList<>();
+        while (matcher.find()) {
+            ids.add(Long.parseLong(matcher.group(1)));
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("No ids returned by " + url);
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Endpoint.valueOf(parts[0].trim().toUpperCase()), weight);
+            }
+        }
+        return weights;
+    }
+
+    private static void report(Map<Endpoint, LatencyRecorder> results, int seconds) {
+        System.out.printf("%n%-10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        results.forEach((endpoint, recorder) -> {
+            LatencyRecorder.Summary s = recorder.summarize(seconds);
+            System.out.printf("%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    endpoint.name().toLowerCase(), s.count(), s.errors(), s.throughput(),
+                    millis(s.p50()), millis(s.p99()), millis(s.p999()), millis(s.max()));
+        });
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    enum Endpoint {
+        FLEX,
+        BALANCE,
+        PENDING,
+        GROUPS,
+        USERS
+    }
+}
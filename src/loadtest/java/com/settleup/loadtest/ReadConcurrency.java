@@ -0,0 +1,152 @@
+package com.settleup.loadtest;
+
+import com.settleup.SettleUpApplication;
+import com.settleup.config.DatasetGenerator;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Closed-loop read concurrency test: starts the application on the embedded database with a
+// generated dataset, a small Tomcat thread pool and small JDBC and R2DBC pools, then keeps many
+// clients busy on the split read endpoints (balance, pending by group, total owed, splits by
+// user). Each client sends its next read as soon as the previous one answers. Meanwhile a probe
+// reads one group every 100 ms, showing whether cheap requests still get a thread.
+// Those reads go over R2DBC (SplitReadService); the probe goes through JPA.
+//
+// Settings (system properties): readload.clients (default 400), readload.duration and
+// readload.warmup (seconds), readload.tomcat-threads (default 32), readload.pool (size of each
+// connection pool, default 10), readload.seed.
+// Program arguments are passed to the application, e.g. --settleup.generator.users=5000.
+public class ReadConcurrency {
+    private static final String[] READS = {"balance", "pending", "total-owed", "user-splits"};
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final long[] userIds;
+    private final long[] groupIds;
+    private volatile boolean running;
+
+    ReadConcurrency(String baseUrl, long[] userIds, long[] groupIds) {
+        this.baseUrl = baseUrl;
+        this.userIds = userIds;
+        this.groupIds = groupIds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("readload.clients", 400);
+        int duration = Integer.getInteger("readload.duration", 30);
+        int warmup = Integer.getInteger("readload.warmup", 5);
+        int tomcatThreads = Integer.getInteger("readload.tomcat-threads", 32);
+        int pool = Integer.getInteger("readload.pool", 10);
+        long seed = Long.getLong("readload.seed", 7L);
+
+        SpringApplication application = new SpringApplication(SettleUpApplication.class);
+        application.setAdditionalProfiles("embedded");
+        List<String> appArgs = new ArrayList<>(List.of(args));
+        appArgs.add("--server.port=0");
+        appArgs.add("--server.tomcat.threads.max=" + tomcatThreads);
+        appArgs.add("--spring.datasource.hikari.maximum-pool-size=" + pool);
+        appArgs.add("--spring.r2dbc.pool.max-size=" + pool);
+        appArgs.add("--settleup.sql-tracing.log-requests=false");
+        // The rollup backfill after the dataset load would compete with the measured reads
+        appArgs.add("--settleup.analytics.enabled=false");
+        try (ConfigurableApplicationContext context = application.run(appArgs.toArray(new String[0]))) {
+            context.getBean(DatasetGenerator.class).generate();
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+            ReadConcurrency test = new ReadConcurrency(baseUrl, LoadTest.fetchIds(baseUrl + "/api/users?fields=id"),
+                    LoadTest.fetchIds(baseUrl + "/api/groups?fields=id"));
+            System.out.printf("Read concurrency: %d clients, %d Tomcat threads, pools of %d, %ds after %ds warmup%n",
+                    clients, tomcatThreads, pool, duration, warmup);
+            test.run(clients, warmup, seed);
+            Result result = test.run(clients, duration, seed + 1);
+            report(result, duration);
+        }
+    }
+
+    Result run(int clients, int seconds, long seed) throws InterruptedException {
+        Result result = new Result(new LatencyRecorder(), new LatencyRecorder());
+        running = true;
+        List<CompletableFuture<Void>> loops = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            next(new SplittableRandom(seed + i), result.reads(), done);
+            loops.add(done);
+        }
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        SplittableRandom probeRandom = new SplittableRandom(seed - 1);
+        while (System.nanoTime() < end) {
+            long sent = System.nanoTime();
+            HttpRequest probe = get("/api/groups/" + groupIds[probeRandom.nextInt(groupIds.length)] + "?fields=id,name");
+            client.sendAsync(probe, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> result.probe().record(System.nanoTime() - sent,
+                            error == null && response.statusCode() < 400));
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        running = false;
+        try {
+            CompletableFuture.allOf(loops.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            System.out.println("Some clients did not finish: " + e.getMessage());
+        }
+        return result;
+    }
+
+    // One client: sends a read, records it and sends the next until the run ends
+    private void next(SplittableRandom random, LatencyRecorder recorder, CompletableFuture<Void> done) {
+        if (!running) {
+            done.complete(null);
+            return;
+        }
+        long sent = System.nanoTime();
+        client.sendAsync(read(random), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    recorder.record(System.nanoTime() - sent, error == null && response.statusCode() < 400);
+                    next(random, recorder, done);
+                });
+    }
+
+    private HttpRequest read(SplittableRandom random) {
+        long userId = userIds[random.nextInt(userIds.length)];
+        long groupId = groupIds[random.nextInt(groupIds.length)];
+        return switch (READS[random.nextInt(READS.length)]) {
+            case "balance" -> get("/api/splits/balance/user/" + userId + "/group/" + groupId);
+            case "pending" -> get("/api/splits/pending/group/" + groupId + "?fields=id,amount,userId");
+            case "total-owed" -> get("/api/splits/total-owed/user/" + userId);
+            default -> get("/api/splits/user/" + userId + "?fields=id,amount,status");
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60)).build();
+    }
+
+    private static void report(Result result, int seconds) {
+        System.out.printf("%n%-8s %10s %8s %10s %10s %10s %10s%n",
+                "", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        print("reads", result.reads().summarize(seconds));
+        print("probe", result.probe().summarize(seconds));
+    }
+
+    private static void print(String name, LatencyRecorder.Summary s) {
+        System.out.printf("%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f%n", name, s.count(), s.errors(),
+                s.throughput(), s.p50() / 1e6, s.p99() / 1e6, s.max() / 1e6);
+    }
+
+    record Result(LatencyRecorder reads, LatencyRecorder probe) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.settleup.loadtest;
+
+import com.settleup.SettleUpApplication;
+import com.settleup.config.DatasetGenerator;
+import com.settleup.dto.RecurringRunResult;
+import com.settleup.recurring.RecurringScheduler;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Month-start run of the recurring expense scheduler: starts two application instances on the
+// same embedded database, generates a dataset whose recurring expenses are all due, and lets
+// both instances run the scheduler at the same time. Checks that every template produced
+// exactly one expense with all its splits and that the partitions were shared out, not worked
+// twice, then that a second run finds nothing to do.
+//
+// Settings (system properties): recurring.groups (default 20000), recurring.per-group
+// (default 5), recurring.users (default 5000). Program arguments are passed to both instances,
+// e.g. --settleup.recurring.batch-size=1000. Exits non-zero when a check fails.
+public class RecurringRun {
+
+    public static void main(String[] args) throws Exception {
+        int groups = Integer.getInteger("recurring.groups", 20_000);
+        int perGroup = Integer.getInteger("recurring.per-group", 5);
+        int users = Integer.getInteger("recurring.users", 5_000);
+
+        List<String> common = new ArrayList<>(List.of(args));
+        common.add("--server.port=0");
+        common.add("--settleup.sql-tracing.log-requests=false");
+        // Runs are started here, not by the poll
+        common.add("--settleup.recurring.enabled=false");
+
+        List<String> firstArgs = new ArrayList<>(common);
+        firstArgs.add("--settleup.generator.users=" + users);
+        firstArgs.add("--settleup.generator.groups=" + groups);
+        firstArgs.add("--settleup.generator.expenses-per-group=0");
+        firstArgs.add("--settleup.generator.min-members=2");
+        firstArgs.add("--settleup.generator.max-members=6");
+        firstArgs.add("--settleup.generator.recurring-per-group=" + perGroup);
+        // The second instance joins the first one's in-memory database and must not recreate it
+        List<String> secondArgs = new ArrayList<>(common);
+        secondArgs.add("--spring.jpa.hibernate.ddl-auto=none");
+
+        boolean passed;
+        try (ConfigurableApplicationContext first = start(firstArgs);
+             ConfigurableApplicationContext second = start(secondArgs)) {
+            first.getBean(DatasetGenerator.class).generate();
+            JdbcTemplate jdbc = first.getBean(JdbcTemplate.class);
+            long templates = count(jdbc, "SELECT COUNT(*) FROM recurring_expenses");
+            long shares = count(jdbc, "SELECT COUNT(*) FROM recurring_expense_shares");
+            System.out.printf("%nRecurring run: %d recurring expenses with %d shares due, two instances%n",
+                    templates, shares);
+
+            RecurringScheduler a = first.getBean(RecurringScheduler.class);
+            RecurringScheduler b = second.getBean(RecurringScheduler.class);
+            long started = System.nanoTime();
+            CompletableFuture<RecurringRunResult> runA = CompletableFuture.supplyAsync(a::run);
+            CompletableFuture<RecurringRunResult> runB = CompletableFuture.supplyAsync(b::run);
+            RecurringRunResult resultA = runA.get();
+            RecurringRunResult resultB = runB.get();
+            double seconds = (System.nanoTime() - started) / 1e9;
+            report("instance 1", resultA);
+            report("instance 2", resultB);
+            long generated = resultA.getExpenses() + resultB.getExpenses();
+            System.out.printf("%d expenses in %.1f s (%.0f expenses/s)%n", generated, seconds, generated / seconds);
+
+            long expenses = count(jdbc, "SELECT COUNT(*) FROM expense WHERE recurring_expense_id IS NOT NULL");
+            long distinct = count(jdbc, "SELECT COUNT(DISTINCT recurring_expense_id) FROM expense "
+                    + "WHERE recurring_expense_id IS NOT NULL");
+            long splits = count(jdbc, "SELECT COUNT(*) FROM splits s JOIN expense e ON e.id = s.expense_id "
+                    + "WHERE e.recurring_expense_id IS NOT NULL");
+            long stillDue = count(jdbc, "SELECT COUNT(*) FROM recurring_expenses WHERE next_run_at <= CURRENT_TIMESTAMP");
+            int partitions = first.getEnvironment().getProperty("settleup.recurring.partitions", Integer.class, 16);
+            boolean complete = expenses == templates && distinct == templates && splits == shares && stillDue == 0
+                    && generated == templates;
+            boolean shared = resultA.getPartitions() + resultB.getPartitions() >= partitions;
+            check("one expense per recurring expense", complete, expenses + " expenses for " + templates
+                    + " recurring expenses, " + splits + " of " + shares + " splits, " + stillDue + " still due");
+            check("every partition claimed", shared, resultA.getPartitions() + " + " + resultB.getPartitions()
+                    + " partitions claimed of " + partitions);
+
+            RecurringRunResult again = a.run();
+            boolean idle = again.getExpenses() == 0;
+            check("second run idle", idle, again.getExpenses() + " expenses");
+            passed = complete && shared && idle;
+        }
+        System.out.println(passed ? "\nRecurring run passed" : "\nRecurring run FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext start(List<String> args) {
+        SpringApplication application = new SpringApplication(SettleUpApplication.class);
+        application.setAdditionalProfiles("embedded");
+        return application.run(args.toArray(new String[0]));
+    }
+
+    private static long count(JdbcTemplate jdbc, String sql) {
+        return jdbc.queryForObject(sql, Long.class);
+    }
+
+    private static void report(String instance, RecurringRunResult result) {
+        System.out.printf("%s: %d partitions (%d held by the other), %d expenses, %d splits, %d batches in %d ms%n",
+                instance, result.getPartitions(), result.getPartitionsHeldElsewhere(), result.getExpenses(),
+                result.getSplits(), result.getBatches(), result.getMillis());
+    }
+
+    private static void check(String name, boolean ok, String detail) {
+        System.out.printf("%s: %s -> %s%n", name, detail, ok ? "ok" : "FAILED");
+    }
+}
@@ -0,0 +1,14 @@
+package com.settleup.concurrency;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a service method that writes a group's expenses or splits. Calls for the same group
+// run one at a time and are retried on optimistic locking conflicts (see GroupWriteAspect).
+// The group is taken from the method's @ShardKey parameter.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface GroupWrite {
+}
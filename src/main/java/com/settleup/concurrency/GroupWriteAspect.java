@@ -0,0 +1,113 @@
+package com.settleup.concurrency;
+
+import com.settleup.repository.ExpenseRepository;
+import com.settleup.repository.SplitRepository;
+import com.settleup.sharding.ShardKey;
+import com.settleup.sharding.ShardKeys;
+import com.settleup.util.StripedLocks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Runs @GroupWrite calls under their group's lock and retries them on optimistic locking
+// conflicts. Ordered after shard routing, so group lookups hit the right shard, and before
+// the transaction interceptor, so the lock is held until commit and every retry starts a
+// fresh transaction. Calls made inside another transaction only take the (reentrant) lock;
+// the outermost call owns the retry.
+//
+// The lock serializes writers within this instance; the @Version columns on Expense and
+// Split catch conflicts with other instances and with writers outside @GroupWrite.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class GroupWriteAspect {
+    private final GroupWriteProperties properties;
+    private final ExpenseRepository expenseRepository;
+    private final SplitRepository splitRepository;
+    private final StripedLocks locks;
+    private final Counter retries;
+
+    public GroupWriteAspect(GroupWriteProperties properties,
+                            ExpenseRepository expenseRepository,
+                            SplitRepository splitRepository,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.expenseRepository = expenseRepository;
+        this.splitRepository = splitRepository;
+        this.locks = new StripedLocks(properties.getLockStripes());
+        this.retries = Counter.builder("settleup.group-writes.retries")
+                .description("Group writes retried after an optimistic locking conflict")
+                .register(meterRegistry);
+    }
+
+    @Around("@annotation(com.settleup.concurrency.GroupWrite)")
+    public Object serialize(ProceedingJoinPoint joinPoint) throws Throwable {
+        Long groupId = groupId(joinPoint);
+        boolean outermost = !TransactionSynchronizationManager.isActualTransactionActive();
+        int maxAttempts = outermost ? Math.max(1, properties.getMaxAttempts()) : 1;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return withLock(groupId, joinPoint);
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                retries.increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    private Object withLock(Long groupId, ProceedingJoinPoint joinPoint) throws Throwable {
+        if (groupId == null) {
+            return joinPoint.proceed();
+        }
+        ReentrantLock lock = locks.lockFor(groupId);
+        lock.lock();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Null when the key is null (an expense without a group) or the expense or split does not
+    // exist; the call then runs without a lock, and a missing row fails on its own lookup
+    private Long groupId(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        if (!ShardKeys.hasKey(method)) {
+            throw new IllegalStateException("@GroupWrite requires a @ShardKey parameter: " + joinPoint.getSignature());
+        }
+        ShardKeys.Key key = ShardKeys.resolve(method, joinPoint.getArgs());
+        if (key == null) {
+            return null;
+        }
+        if (key.type() == ShardKey.Type.GROUP) {
+            return key.id();
+        }
+        return (key.type() == ShardKey.Type.EXPENSE
+                ? expenseRepository.findGroupIdById(key.id())
+                : splitRepository.findGroupIdById(key.id())).orElse(null);
+    }
+
+    private void backOff(int attempt) throws InterruptedException {
+        long base = properties.getBackoffMs() << (attempt - 1);
+        if (base > 0) {
+            Thread.sleep(base + ThreadLocalRandom.current().nextLong(base));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.settleup.concurrency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Serialization and retry of same-group writes (settleup.group-writes.*)
+@Data
+@ConfigurationProperties(prefix = "settleup.group-writes")
+public class GroupWriteProperties {
+    // Number of locks shared by all groups; more stripes mean fewer unrelated groups waiting on each other
+    private int lockStripes = 256;
+
+    // Attempts per call, including the first, before an optimistic locking conflict is returned to the caller
+    private int maxAttempts = 3;
+
+    // Base delay before a retry, doubled per attempt and jittered
+    private long backoffMs = 10;
+}
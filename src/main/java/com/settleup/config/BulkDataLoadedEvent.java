@@ -0,0 +1,13 @@
+package com.settleup.config;
+
+import org.springframework.context.ApplicationEvent;
+
+// Published after rows were written around the services (sample data, synthetic dataset),
+// so in-memory views of them can reload
+public class BulkDataLoadedEvent extends ApplicationEvent {
+    private static final long serialVersionUID = 1L;
+
+    public BulkDataLoadedEvent(Object source) {
+        super(source);
+    }
+}
@@ -4,7 +4,11 @@ import com.settleup.model.*;
 import com.settleup.repository.*;
 import com.settleup.service.*;
 
-import org.springframework.boot.CommandLineRunner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
@@ -12,26 +16,39 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
+// Loads sample data once the application is ready, off the startup path.
+// Opt-in with settleup.sample-data.enabled=true; checked at runtime so AOT builds keep the bean.
 @Component
-public class DataLoader implements CommandLineRunner {
+public class DataLoader {
 
     private final UserRepository userRepository;
     private final GroupRepository groupRepository;
     private final ExpenseRepository expenseRepository;
     private final SplitService splitService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
 
     public DataLoader(UserRepository userRepository, 
                      GroupRepository groupRepository, 
                      ExpenseRepository expenseRepository,
-                     SplitService splitService) {
+                     SplitService splitService,
+                     ApplicationEventPublisher eventPublisher,
+                     @Value("${settleup.sample-data.enabled:false}") boolean enabled) {
         this.userRepository = userRepository;
         this.groupRepository = groupRepository;
         this.expenseRepository = expenseRepository;
         this.splitService = splitService;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
     }
 
-    @Override
-    public void run(String... args) throws Exception {
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSampleData() {
+        if (!enabled) {
+            return;
+        }
+
         // Only load data if no users exist
         if (userRepository.count() > 0) {
             System.out.println("Database already has data, skipping initialization.");
@@ -171,5 +188,6 @@ public class DataLoader implements CommandLineRunner {
         System.out.println("Created " + userRepository.count() + " users");
         System.out.println("Created " + groupRepository.count() + " groups");
         System.out.println("Created " + expenseRepository.count() + " expenses");
+        eventPublisher.publishEvent(new BulkDataLoadedEvent(this));
     }
 } 
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.settleup.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// The JDBC datasource used by JPA for writes and the remaining blocking reads, from
+// spring.datasource.* and spring.datasource.hikari.*. Declared here because Spring Boot stops
+// configuring one as soon as an R2DBC connection factory (spring.r2dbc.*, the split reads) exists.
+// With sharding ShardingConfig declares the datasource instead.
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "settleup.sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
@@ -0,0 +1,303 @@
+package com.settleup.config;
+
+import com.settleup.fx.FxRateTable;
+import com.settleup.model.Split;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+// Generates a reproducible synthetic dataset (users, groups, memberships, expenses, splits,
+// optionally recurring expenses) for performance testing. Rows are written with batched JDBC
+// inserts using explicitly allocated ids, so no per-row round trip is needed to learn generated keys.
+// On PostgreSQL add reWriteBatchedInserts=true to the JDBC url to turn batches into multi-row inserts.
+@Component
+public class DatasetGenerator {
+
+    private static final String INSERT_USER = "INSERT INTO users (id, name, email, password) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_GROUP = "INSERT INTO groups (id, name) VALUES (?, ?)";
+    private static final String INSERT_MEMBER = "INSERT INTO group_members (group_id, user_id) VALUES (?, ?)";
+    private static final String INSERT_EXPENSE =
+            "INSERT INTO expense (id, group_id, paid_by_id, amount, currency, description, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SPLIT =
+            "INSERT INTO splits (expense_id, user_id, amount, split_type, status, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_RECURRING =
+            "INSERT INTO recurring_expenses (id, group_id, paid_by_id, amount, currency, description, split_type, "
+                    + "frequency, start_at, occurrences, next_run_at, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SHARE =
+            "INSERT INTO recurring_expense_shares (recurring_expense_id, user_id, amount) VALUES (?, ?, ?)";
+
+    private static final String[] DESCRIPTIONS = {
+            "Rent", "Groceries", "Dinner", "Hotel", "Uber", "Flights", "Electricity", "Internet",
+            "Coffee", "Movie tickets", "Gas", "Lunch", "Concert", "Taxi", "Breakfast", "Drinks"
+    };
+    private static final String[] RECURRING_DESCRIPTIONS = {
+            "Rent", "Internet", "Electricity", "Streaming", "Gym", "Phone plan", "Insurance", "Cleaning"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatasetGeneratorProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FxRateTable fxRateTable;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate, DatasetGeneratorProperties properties,
+                            ApplicationEventPublisher eventPublisher, FxRateTable fxRateTable) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.fxRateTable = fxRateTable;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void generateOnStartup() {
+        if (properties.isEnabled()) {
+            generate();
+        }
+    }
+
+    public void generate() {
+        long started = System.currentTimeMillis();
+        SplittableRandom random = new SplittableRandom(properties.getSeed());
+        System.out.println("Generating synthetic dataset with seed " + properties.getSeed() + "...");
+
+        long firstUserId = nextId("users");
+        long firstGroupId = nextId("groups");
+        long firstExpenseId = nextId("expense");
+        long firstRecurringId = nextId("recurring_expenses");
+        int userCount = properties.getUsers();
+        int groupCount = properties.getGroups();
+        List<String> currencies = properties.getCurrencies().isEmpty()
+                ? List.of(fxRateTable.current().getBaseCurrency())
+                : properties.getCurrencies().stream().map(fxRateTable::resolveCurrency).toList();
+
+        BatchWriter users = new BatchWriter(INSERT_USER, null);
+        for (int i = 0; i < userCount; i++) {
+            long id = firstUserId + i;
+            users.add(id, "User " + id, "user" + id + "@example.com", "password");
+        }
+        users.flush();
+        restartIdentity("users", firstUserId + userCount);
+
+        BatchWriter groups = new BatchWriter(INSERT_GROUP, null);
+        for (int i = 0; i < groupCount; i++) {
+            long id = firstGroupId + i;
+            groups.add(id, "Group " + id);
+        }
+        groups.flush();
+        restartIdentity("groups", firstGroupId + groupCount);
+
+        WeightedChoice<Split.SplitType> splitTypes = new WeightedChoice<>(properties.getSplitTypeWeights());
+        WeightedChoice<Split.SplitStatus> statuses = new WeightedChoice<>(properties.getStatusWeights());
+        LocalDateTime now = LocalDateTime.now();
+        long historySeconds = properties.getHistoryDays() * 86_400L;
+
+        BatchWriter members = new BatchWriter(INSERT_MEMBER, null);
+        BatchWriter expenses = new BatchWriter(INSERT_EXPENSE, null);
+        BatchWriter splits = new BatchWriter(INSERT_SPLIT, expenses);
+        BatchWriter recurring = new BatchWriter(INSERT_RECURRING, members);
+        BatchWriter recurringShares = new BatchWriter(INSERT_SHARE, recurring);
+        long expenseId = firstExpenseId;
+        long recurringId = firstRecurringId;
+        // Drawn from their own sequence, so the other rows do not change with recurringPerGroup
+        SplittableRandom recurringRandom = new SplittableRandom(properties.getSeed() + 1);
+        Timestamp monthStart = Timestamp.valueOf(now.toLocalDate().withDayOfMonth(1).atStartOfDay());
+
+        for (int g = 0; g < groupCount; g++) {
+            long groupId = firstGroupId + g;
+            long[] memberIds = pickMembers(random, firstUserId, userCount);
+            for (long userId : memberIds) {
+                members.add(groupId, userId);
+            }
+
+            for (int e = 0; e < properties.getExpensesPerGroup(); e++, expenseId++) {
+                int n = memberIds.length;
+                // At least one whole unit per participant keeps every split amount positive
+                long totalCents = n * 100L + random.nextLong(50_000L);
+                long payerId = memberIds[random.nextInt(n)];
+                String description = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+                // No draw for a single currency, so existing seeds keep generating the same data
+                String currency = currencies.size() == 1 ? currencies.get(0) : currencies.get(random.nextInt(currencies.size()));
+
+                Split.SplitType type = splitTypes.pick(random);
+                long[] shares = allocate(random, type, totalCents, n);
+                Timestamp createdAt = Timestamp.valueOf(now.minusSeconds(random.nextLong(historySeconds)));
+                expenses.add(expenseId, groupId, payerId, cents(totalCents), currency, description, createdAt);
+                for (int m = 0; m < n; m++) {
+                    Split.SplitStatus status = statuses.pick(random);
+                    Timestamp updatedAt = status == Split.SplitStatus.PENDING ? null : createdAt;
+                    splits.add(expenseId, memberIds[m], cents(shares[m]), type.name(), status.name(),
+                            createdAt, updatedAt);
+                }
+            }
+
+            for (int r = 0; r < properties.getRecurringPerGroup(); r++, recurringId++) {
+                int n = memberIds.length;
+                long totalCents = n * 100L + recurringRandom.nextLong(200_000L);
+                long payerId = memberIds[recurringRandom.nextInt(n)];
+                String description = RECURRING_DESCRIPTIONS[recurringRandom.nextInt(RECURRING_DESCRIPTIONS.length)];
+                String currency = currencies.size() == 1 ? currencies.get(0) : currencies.get(recurringRandom.nextInt(currencies.size()));
+                recurring.add(recurringId, groupId, payerId, cents(totalCents), currency, description,
+                        Split.SplitType.EQUAL.name(), "MONTHLY", monthStart, 0L, monthStart, monthStart);
+                long[] amounts = allocate(recurringRandom, Split.SplitType.EQUAL, totalCents, n);
+                for (int m = 0; m < n; m++) {
+                    recurringShares.add(recurringId, memberIds[m], cents(amounts[m]));
+                }
+            }
+        }
+        members.flush();
+        expenses.flush();
+        splits.flush();
+        recurringShares.flush();
+        restartIdentity("expense", expenseId);
+        restartIdentity("recurring_expenses", recurringId);
+
+        System.out.println("Synthetic dataset generated in " + (System.currentTimeMillis() - started) + " ms: "
+                + userCount + " users, " + groupCount + " groups, " + members.count + " memberships, "
+                + expenses.count + " expenses, " + splits.count + " splits, " + recurring.count + " recurring expenses");
+        eventPublisher.publishEvent(new BulkDataLoadedEvent(this));
+    }
+
+    // Chooses the group size from the configured distribution and draws that many distinct users
+    private long[] pickMembers(SplittableRandom random, long firstUserId, int userCount) {
+        int min = Math.min(properties.getMinMembers(), userCount);
+        int max = Math.min(properties.getMaxMembers(), userCount);
+        int size;
+        if (properties.getMemberDistribution() == DatasetGeneratorProperties.MemberDistribution.POWER_LAW) {
+            double u = random.nextDouble();
+            size = (int) Math.min(max, min * Math.pow(1.0 - u, -1.0 / properties.getPowerLawExponent()));
+        } else {
+            size = min + random.nextInt(max - min + 1);
+        }
+
+        long[] memberIds = new long[size];
+        Set<Integer> chosen = new HashSet<>();
+        int i = 0;
+        while (i < size) {
+            int index = random.nextInt(userCount);
+            if (chosen.add(index)) {
+                memberIds[i++] = firstUserId + index;
+            }
+        }
+        return memberIds;
+    }
+
+    // Splits totalCents into n positive shares according to the split type
+    private static long[] allocate(SplittableRandom random, Split.SplitType type, long totalCents, int n) {
+        long[] shares = new long[n];
+        if (type == Split.SplitType.EQUAL) {
+            long base = totalCents / n;
+            long remainder = totalCents % n;
+            for (int i = 0; i < n; i++) {
+                shares[i] = base + (i < remainder ? 1 : 0);
+            }
+            return shares;
+        }
+
+        // PERCENTAGE and CUSTOM: random weights, every share at least one cent
+        long[] weights = new long[n];
+        long weightSum = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] = 1 + random.nextInt(100);
+            weightSum += weights[i];
+        }
+        long spare = totalCents - n;
+        long assigned = 0;
+        for (int i = 0; i < n; i++) {
+            shares[i] = 1 + spare * weights[i] / weightSum;
+            assigned += shares[i];
+        }
+        shares[n - 1] += totalCents - assigned;
+        return shares;
+    }
+
+    private static BigDecimal cents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private long nextId(String table) {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        return max + 1;
+    }
+
+    // Explicit ids bypass the identity column, so move it past the generated range
+    private void restartIdentity(String table, long next) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+    }
+
+    // Buffers rows of one insert statement and writes them with JDBC batches.
+    // Rows referenced through a foreign key (parent) are always flushed first.
+    private class BatchWriter {
+        private final String sql;
+        private final BatchWriter parent;
+        private final List<Object[]> rows = new ArrayList<>();
+        private long count;
+
+        BatchWriter(String sql, BatchWriter parent) {
+            this.sql = sql;
+            this.parent = parent;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            count++;
+            if (rows.size() >= properties.getBatchSize()) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (parent != null) {
+                parent.flush();
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+    }
+
+    // Picks a value with probability proportional to its weight
+    private static class WeightedChoice<T> {
+        private final List<T> values = new ArrayList<>();
+        private final int[] cumulative;
+
+        WeightedChoice(Map<T, Integer> weights) {
+            cumulative = new int[weights.size()];
+            int total = 0;
+            for (Map.Entry<T, Integer> entry : weights.entrySet()) {
+                total += entry.getValue();
+                cumulative[values.size()] = total;
+                values.add(entry.getKey());
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("Weights must add up to a positive number: " + weights);
+            }
+        }
+
+        T pick(SplittableRandom random) {
+            int r = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; i < cumulative.length; i++) {
+                if (r < cumulative[i]) {
+                    return values.get(i);
+                }
+            }
+            return values.get(values.size() - 1);
+        }
+    }
+}
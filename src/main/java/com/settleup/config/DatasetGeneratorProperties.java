@@ -0,0 +1,56 @@
+package com.settleup.config;
+
+import com.settleup.model.Split;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Settings for the synthetic performance dataset (settleup.generator.*)
+@Data
+@ConfigurationProperties(prefix = "settleup.generator")
+public class DatasetGeneratorProperties {
+    private boolean enabled = false;
+    private long seed = 42L;
+
+    private int users = 1_000;
+    private int groups = 100;
+    private int expensesPerGroup = 100;
+
+    // Group sizes are drawn between min and max, either uniformly or from a power law
+    // (many small groups, a few very large ones)
+    private int minMembers = 2;
+    private int maxMembers = 20;
+    private MemberDistribution memberDistribution = MemberDistribution.UNIFORM;
+    private double powerLawExponent = 1.5;
+
+    // Relative weights of split types and statuses
+    private Map<Split.SplitType, Integer> splitTypeWeights = new EnumMap<>(Map.of(
+            Split.SplitType.EQUAL, 60,
+            Split.SplitType.PERCENTAGE, 20,
+            Split.SplitType.CUSTOM, 20));
+    private Map<Split.SplitStatus, Integer> statusWeights = new EnumMap<>(Map.of(
+            Split.SplitStatus.PENDING, 70,
+            Split.SplitStatus.PAID, 20,
+            Split.SplitStatus.SETTLED, 10));
+
+    // Expenses get a currency drawn uniformly from this list, each needing an FX rate
+    // (settleup.fx.*); empty keeps every expense in the base currency
+    private List<String> currencies = List.of();
+
+    // Monthly recurring expenses per group, split equally among all members. All of them start
+    // at the beginning of the current month, so they are due at once, like a month-start run.
+    private int recurringPerGroup = 0;
+
+    // Splits get creation times spread over this many past days
+    private int historyDays = 365;
+
+    private int batchSize = 5_000;
+
+    public enum MemberDistribution {
+        UNIFORM,
+        POWER_LAW
+    }
+}
@@ -0,0 +1,44 @@
+package com.settleup.controller;
+
+import com.settleup.dto.GroupAnalytics;
+import com.settleup.service.AnalyticsService;
+import com.settleup.service.RollupBackfillService;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Spending breakdowns served from the pre-aggregated rollups (requires settleup.analytics.enabled=true)
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+    private final AnalyticsService analyticsService;
+    private final RollupBackfillService rollupBackfillService;
+
+    public AnalyticsController(AnalyticsService analyticsService, RollupBackfillService rollupBackfillService) {
+        this.analyticsService = analyticsService;
+        this.rollupBackfillService = rollupBackfillService;
+    }
+
+    // Get a group's spending by payer, member, month and split status
+    @GetMapping("/group/{groupId}")
+    public ResponseEntity<GroupAnalytics> getGroupAnalytics(@PathVariable Long groupId) {
+        if (!analyticsService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(analyticsService.getGroupAnalytics(groupId));
+    }
+
+    // Rebuild the rollups of every group from existing expenses in the background
+    @PostMapping("/backfill")
+    public ResponseEntity<Void> backfill() {
+        if (!analyticsService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (rollupBackfillService.isRunning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        rollupBackfillService.backfill();
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.settleup.controller;
+
+import com.settleup.dto.BalanceChange;
+import com.settleup.dto.HistoricalBalance;
+import com.settleup.service.BalanceHistoryRebuildService;
+import com.settleup.service.BalanceHistoryService;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+// Balances as of a past moment, served from the daily balance buckets (requires
+// settleup.balance-history.enabled=true). Times are ISO date-times, e.g. 2026-10-01T00:00:00.
+@RestController
+@RequestMapping("/api/balances")
+public class BalanceHistoryController {
+    private final BalanceHistoryService balanceHistoryService;
+    private final BalanceHistoryRebuildService balanceHistoryRebuildService;
+
+    public BalanceHistoryController(BalanceHistoryService balanceHistoryService,
+                                    BalanceHistoryRebuildService balanceHistoryRebuildService) {
+        this.balanceHistoryService = balanceHistoryService;
+        this.balanceHistoryRebuildService = balanceHistoryRebuildService;
+    }
+
+    // Get a user's balance in a group as of the given time
+    @GetMapping("/group/{groupId}/user/{userId}")
+    public ResponseEntity<HistoricalBalance> getBalanceAt(
+            @PathVariable Long groupId,
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        if (!balanceHistoryService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(balanceHistoryService.getBalanceAt(userId, groupId, at));
+    }
+
+    // Get how a user's balance in a group changed between two times
+    @GetMapping("/group/{groupId}/user/{userId}/change")
+    public ResponseEntity<BalanceChange> getBalanceChange(
+            @PathVariable Long groupId,
+            @PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (!balanceHistoryService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(balanceHistoryService.getBalanceChange(userId, groupId, from, to));
+    }
+
+    // Rebuild every group's balance history from its splits in the background
+    @PostMapping("/rebuild")
+    public ResponseEntity<Void> rebuild() {
+        if (!balanceHistoryService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (balanceHistoryRebuildService.isRunning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        balanceHistoryRebuildService.rebuild();
+        return ResponseEntity.accepted().build();
+    }
+}
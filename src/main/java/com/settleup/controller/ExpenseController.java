@@ -1,13 +1,19 @@
 package com.settleup.controller;
 
+import com.settleup.ingest.IngestJob;
 import com.settleup.model.Expense;
 import com.settleup.service.ExpenseService;
 import com.settleup.dto.AddExpenseRequest;
+import com.settleup.dto.SparseFields;
+import com.settleup.dto.UpdateExpenseRequest;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -20,12 +26,41 @@ public class ExpenseController {
     }
 
     @GetMapping
-    public List<Expense> getAllExpenses() {
+    public List<?> getAllExpenses(@RequestParam(required = false) String fields) {
+        if (SparseFields.isRequested(fields)) {
+            try {
+                return expenseService.getAllExpenses(fields);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
         return expenseService.getAllExpenses();
     }
 
+    // Search a group's expenses by description, newest first: /search?groupId=1&q=hot
+    // Answers 503 until the index has been built after startup
+    @GetMapping("/search")
+    public ResponseEntity<?> searchExpenses(@RequestParam Long groupId,
+                                            @RequestParam String q,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        if (!expenseService.isSearchReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(expenseService.searchExpenses(groupId, q, Math.min(limit, 100)));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Expense> getExpenseById(@PathVariable Long id) {
+    public ResponseEntity<?> getExpenseById(@PathVariable Long id,
+                                            @RequestParam(required = false) String fields) {
+        if (SparseFields.isRequested(fields)) {
+            try {
+                return expenseService.getExpenseById(id, fields)
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.notFound().build());
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
         return expenseService.getExpenseById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -36,6 +71,17 @@ public class ExpenseController {
         return expenseService.createExpense(expense);
     }
 
+    // Edit amount, currency, payer, description or participants; only the splits that change are written
+    // 400 when the new allocation is invalid or would change a paid or settled share
+    @PutMapping("/{id}")
+    public Expense updateExpense(@PathVariable Long id, @RequestBody UpdateExpenseRequest request) {
+        try {
+            return expenseService.updateExpense(id, request);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteExpense(@PathVariable Long id) {
         expenseService.deleteExpense(id);
@@ -46,12 +92,37 @@ public class ExpenseController {
     public Expense addExpense(@RequestParam Long groupId,
                              @RequestParam Long paidById,
                              @RequestParam BigDecimal amount,
-                             @RequestParam String description) {
-        return expenseService.addExpense(groupId, paidById, amount, description);
+                             @RequestParam String description,
+                             @RequestParam(required = false) String currency) {
+        return expenseService.addExpense(groupId, paidById, amount, description, currency);
     }
 
     @PostMapping("/flex")
     public Expense addExpenseFlexible(@RequestBody AddExpenseRequest request) {
         return expenseService.addExpense(request);
     }
+
+    // Same body as /flex, written in the background: answers 202 with the job to poll, 400 when
+    // the request is invalid and 503 when the queue is full (requires settleup.ingest.enabled=true)
+    @PostMapping("/async")
+    public ResponseEntity<IngestJob> submitExpense(@RequestBody AddExpenseRequest request) {
+        if (!expenseService.isIngestEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        IngestJob job;
+        try {
+            job = expenseService.submitExpense(request);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return ResponseEntity.accepted().location(URI.create("/api/expense/async/" + job.getId())).body(job);
+    }
+
+    // State of an expense submitted to /async: QUEUED, DONE with its expenseId, or FAILED with the error
+    @GetMapping("/async/{jobId}")
+    public ResponseEntity<IngestJob> getIngestJob(@PathVariable Long jobId) {
+        return expenseService.getIngestJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.settleup.controller;
+
+import com.settleup.dto.FxRates;
+import com.settleup.fx.FxRateTable;
+import com.settleup.fx.FxSnapshot;
+
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+// FX rates used to report balances in the base currency
+@RestController
+@RequestMapping("/api/fx")
+public class FxController {
+    private final FxRateTable fxRateTable;
+
+    public FxController(FxRateTable fxRateTable) {
+        this.fxRateTable = fxRateTable;
+    }
+
+    // Get the current snapshot
+    @GetMapping("/rates")
+    public FxRates getRates() {
+        return toDto(fxRateTable.current());
+    }
+
+    // Publish new rates, e.g. {"EUR": 1.08, "GBP": 1.27}, as the next snapshot. Every currency of
+    // the current snapshot must be included.
+    @PutMapping("/rates")
+    public FxRates publishRates(@RequestBody Map<String, BigDecimal> rates) {
+        return toDto(fxRateTable.publish(rates));
+    }
+
+    private static FxRates toDto(FxSnapshot snapshot) {
+        return new FxRates(snapshot.getVersion(), snapshot.getBaseCurrency(), snapshot.getRates());
+    }
+}
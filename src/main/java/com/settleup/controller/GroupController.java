@@ -1,11 +1,19 @@
 package com.settleup.controller;
 
+import com.settleup.dto.BulkMembershipResult;
+import com.settleup.dto.MemberIdsRequest;
+import com.settleup.dto.MembershipStatus;
+import com.settleup.dto.SparseFields;
 import com.settleup.model.Group;
+import com.settleup.purge.PurgeJob;
 import com.settleup.service.GroupService;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -18,12 +26,29 @@ public class GroupController {
     }
 
     @GetMapping
-    public List<Group> getAllGroups() {
+    public List<?> getAllGroups(@RequestParam(required = false) String fields) {
+        if (SparseFields.isRequested(fields)) {
+            try {
+                return groupService.getAllGroups(fields);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
         return groupService.getAllGroups();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Group> getGroupById(@PathVariable Long id) {
+    public ResponseEntity<?> getGroupById(@PathVariable Long id,
+                                          @RequestParam(required = false) String fields) {
+        if (SparseFields.isRequested(fields)) {
+            try {
+                return groupService.getGroupById(id, fields)
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.notFound().build());
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
         return groupService.getGroupById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -35,13 +60,30 @@ public class GroupController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteGroup(@PathVariable Long id) {
-        groupService.deleteGroup(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<PurgeJob> deleteGroup(@PathVariable Long id) {
+        PurgeJob job = groupService.deleteGroup(id);
+        return ResponseEntity.accepted().location(URI.create("/api/purge/" + job.getId())).body(job);
+    }
+
+    @GetMapping("/{groupId}/members/{userId}")
+    public MembershipStatus isMember(@PathVariable Long groupId, @PathVariable Long userId) {
+        return new MembershipStatus(groupId, userId, groupService.isMember(groupId, userId));
     }
 
     @PostMapping("/{groupId}/members/{userId}")
     public Group addMember(@PathVariable Long groupId, @PathVariable Long userId) {
         return groupService.addMember(groupId, userId);
     }
-} 
\ No newline at end of file
+
+    // Add many members in one call: {"userIds": [1, 2, 3]}
+    @PostMapping("/{groupId}/members")
+    public BulkMembershipResult addMembers(@PathVariable Long groupId, @RequestBody MemberIdsRequest request) {
+        return groupService.addMembers(groupId, request.getUserIds());
+    }
+
+    // Remove many members in one call: {"userIds": [1, 2, 3]}
+    @PostMapping("/{groupId}/members/remove")
+    public BulkMembershipResult removeMembers(@PathVariable Long groupId, @RequestBody MemberIdsRequest request) {
+        return groupService.removeMembers(groupId, request.getUserIds());
+    }
+}
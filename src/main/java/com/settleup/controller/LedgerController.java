@@ -0,0 +1,39 @@
+package com.settleup.controller;
+
+import com.settleup.dto.LedgerEntry;
+import com.settleup.dto.Settlement;
+import com.settleup.service.LedgerService;
+
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Reads served from the in-memory group ledger (requires settleup.ledger.enabled=true)
+@RestController
+@RequestMapping("/api/ledger")
+public class LedgerController {
+    private final LedgerService ledgerService;
+
+    public LedgerController(LedgerService ledgerService) {
+        this.ledgerService = ledgerService;
+    }
+
+    // Get a user's balance in a group
+    @GetMapping("/group/{groupId}/balance/user/{userId}")
+    public BigDecimal getUserBalance(@PathVariable Long groupId, @PathVariable Long userId) {
+        return ledgerService.getUserBalance(groupId, userId);
+    }
+
+    // Get the pending splits of a group
+    @GetMapping("/group/{groupId}/pending")
+    public List<LedgerEntry> getPendingSplits(@PathVariable Long groupId) {
+        return ledgerService.getPendingSplits(groupId);
+    }
+
+    // Get the fewest payments that settle a group's pending splits
+    @GetMapping("/group/{groupId}/settlements")
+    public List<Settlement> getSettlements(@PathVariable Long groupId) {
+        return ledgerService.getSettlements(groupId);
+    }
+}
@@ -0,0 +1,32 @@
+package com.settleup.controller;
+
+import com.settleup.purge.PurgeJob;
+import com.settleup.purge.PurgeService;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Progress of the background deletions started by DELETE /api/groups/{id} and /api/users/{id}
+@RestController
+@RequestMapping("/api/purge")
+public class PurgeController {
+    private final PurgeService purgeService;
+
+    public PurgeController(PurgeService purgeService) {
+        this.purgeService = purgeService;
+    }
+
+    @GetMapping
+    public List<PurgeJob> getJobs() {
+        return purgeService.getJobs();
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<PurgeJob> getJob(@PathVariable Long jobId) {
+        return purgeService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
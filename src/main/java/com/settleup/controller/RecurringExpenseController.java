@@ -0,0 +1,55 @@
+package com.settleup.controller;
+
+import com.settleup.dto.RecurringExpenseRequest;
+import com.settleup.dto.RecurringRunResult;
+import com.settleup.model.RecurringExpense;
+import com.settleup.recurring.RecurringScheduler;
+import com.settleup.service.RecurringExpenseService;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Recurring expense templates; their occurrences are generated by the RecurringScheduler
+@RestController
+@RequestMapping("/api/recurring")
+public class RecurringExpenseController {
+    private final RecurringExpenseService recurringExpenseService;
+    private final RecurringScheduler recurringScheduler;
+
+    public RecurringExpenseController(RecurringExpenseService recurringExpenseService,
+                                      RecurringScheduler recurringScheduler) {
+        this.recurringExpenseService = recurringExpenseService;
+        this.recurringScheduler = recurringScheduler;
+    }
+
+    @PostMapping
+    public RecurringExpense createRecurringExpense(@RequestBody RecurringExpenseRequest request) {
+        return recurringExpenseService.createRecurringExpense(request);
+    }
+
+    @GetMapping("/group/{groupId}")
+    public List<RecurringExpense> getRecurringExpenses(@PathVariable Long groupId) {
+        return recurringExpenseService.getRecurringExpenses(groupId);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<RecurringExpense> getRecurringExpense(@PathVariable Long id) {
+        return recurringExpenseService.getRecurringExpense(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteRecurringExpense(@PathVariable Long id) {
+        recurringExpenseService.deleteRecurringExpense(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Generate everything due now instead of waiting for the next poll
+    @PostMapping("/run")
+    public RecurringRunResult run() {
+        return recurringScheduler.run();
+    }
+}
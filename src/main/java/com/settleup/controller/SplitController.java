@@ -1,54 +1,87 @@
 package com.settleup.controller;
 
+import com.settleup.dto.CounterpartyBalance;
+import com.settleup.dto.SparseFields;
 import com.settleup.model.Split;
+import com.settleup.service.SplitReadService;
 import com.settleup.service.SplitService;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
+// Balance, pending, total-owed and per-user split reads are non-blocking: they run over R2DBC
+// (SplitReadService) and the request thread is released while the query runs
 @RestController
 @RequestMapping("/api/splits")
 public class SplitController {
     private final SplitService splitService;
+    private final SplitReadService splitReadService;
 
-    public SplitController(SplitService splitService) {
+    public SplitController(SplitService splitService, SplitReadService splitReadService) {
         this.splitService = splitService;
+        this.splitReadService = splitReadService;
     }
 
-    // Get all splits for a user
+    // Get all splits for a user (optionally only the given fields)
     @GetMapping("/user/{userId}")
-    public List<Split> getSplitsByUser(@PathVariable Long userId) {
-        return splitService.getSplitsByUser(userId);
+    public Flux<?> getSplitsByUser(@PathVariable Long userId,
+                                   @RequestParam(required = false) String fields) {
+        if (SparseFields.isRequested(fields)) {
+            try {
+                return splitReadService.getSplitsByUser(userId, fields);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
+        return splitReadService.getSplitsByUser(userId);
     }
 
-    // Get all splits for an expense
+    // Get all splits for an expense (optionally only the given fields)
     @GetMapping("/expense/{expenseId}")
-    public List<Split> getSplitsByExpense(@PathVariable Long expenseId) {
+    public List<?> getSplitsByExpense(@PathVariable Long expenseId,
+                                      @RequestParam(required = false) String fields) {
+        if (SparseFields.isRequested(fields)) {
+            try {
+                return splitService.getSplitsByExpense(expenseId, fields);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
         return splitService.getSplitsByExpense(expenseId);
     }
 
     // Get user's balance in a group
     @GetMapping("/balance/user/{userId}/group/{groupId}")
-    public ResponseEntity<Map<String, Object>> getUserBalanceInGroup(
+    public Mono<Map<String, Object>> getUserBalanceInGroup(
             @PathVariable Long userId, 
             @PathVariable Long groupId) {
-        BigDecimal balance = splitService.getUserBalanceInGroup(userId, groupId);
-        return ResponseEntity.ok(Map.of(
+        return splitReadService.getUserBalanceInGroup(userId, groupId).map(balance -> Map.of(
             "userId", userId,
             "groupId", groupId,
             "balance", balance
         ));
     }
 
-    // Get all pending splits for a group
+    // Get all pending splits for a group (optionally only the given fields)
     @GetMapping("/pending/group/{groupId}")
-    public List<Split> getPendingSplitsByGroup(@PathVariable Long groupId) {
-        return splitService.getPendingSplitsByGroup(groupId);
+    public Flux<?> getPendingSplitsByGroup(@PathVariable Long groupId,
+                                           @RequestParam(required = false) String fields) {
+        if (SparseFields.isRequested(fields)) {
+            try {
+                return splitReadService.getPendingSplitsByGroup(groupId, fields);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
+        return splitReadService.getPendingSplitsByGroup(groupId);
     }
 
     // Mark a split as paid
@@ -80,14 +113,19 @@ public class SplitController {
 
     // Get total amount owed by a user across all groups
     @GetMapping("/total-owed/user/{userId}")
-    public ResponseEntity<Map<String, Object>> getTotalOwedByUser(@PathVariable Long userId) {
-        BigDecimal totalOwed = splitService.getTotalOwedByUser(userId);
-        return ResponseEntity.ok(Map.of(
+    public Mono<Map<String, Object>> getTotalOwedByUser(@PathVariable Long userId) {
+        return splitReadService.getTotalOwedByUser(userId).map(totalOwed -> Map.of(
             "userId", userId,
             "totalOwed", totalOwed
         ));
     }
 
+    // Net who-owes-whom for a user across all groups (positive = counterparty owes the user)
+    @GetMapping("/counterparties/user/{userId}")
+    public List<CounterpartyBalance> getCounterpartyBalances(@PathVariable Long userId) {
+        return splitService.getCounterpartyBalances(userId);
+    }
+
     // Get split by user and expense
     @GetMapping("/user/{userId}/expense/{expenseId}")
     public ResponseEntity<Split> getSplitByUserAndExpense(
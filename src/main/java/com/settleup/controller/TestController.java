@@ -31,45 +31,52 @@ public class TestController {
         this.splitService = splitService;
     }
 
+    // Three statements whatever the data: groups come with their members, expenses with their
+    // group, payer and splits, and the totals are the list sizes
     @GetMapping("/data-summary")
     public ResponseEntity<Map<String, Object>> getDataSummary() {
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalUsers", userRepository.count());
-        summary.put("totalGroups", groupRepository.count());
-        summary.put("totalExpenses", expenseRepository.count());
         
         // Get all users
         List<User> users = userRepository.findAll();
         summary.put("users", users);
         
         // Get all groups
-        List<Group> groups = groupRepository.findAll();
+        List<Group> groups = groupRepository.findAllWithMembers();
         summary.put("groups", groups);
         
         // Get all expenses
-        List<Expense> expenses = expenseRepository.findAll();
+        List<Expense> expenses = expenseRepository.findAllWithSplits();
         summary.put("expenses", expenses);
+
+        summary.put("totalUsers", users.size());
+        summary.put("totalGroups", groups.size());
+        summary.put("totalExpenses", expenses.size());
         
         return ResponseEntity.ok(summary);
     }
 
+    // Every balance comes from two aggregate queries for all users and groups at once
     @GetMapping("/user-balances")
     public ResponseEntity<Map<String, Object>> getUserBalances() {
         Map<String, Object> balances = new HashMap<>();
         List<User> users = userRepository.findAll();
-        List<Group> groups = groupRepository.findAll();
+        List<Group> groups = groupRepository.findAllWithMembers();
+        Map<Long, BigDecimal> totalsOwed = splitService.getTotalOwedByUsers();
+        Map<Long, Map<Long, BigDecimal>> balancesInGroups = splitService.getBalancesInGroups();
+        BigDecimal zero = BigDecimal.ZERO.setScale(2);
         
         for (User user : users) {
             Map<String, Object> userBalance = new HashMap<>();
             userBalance.put("userId", user.getId());
             userBalance.put("userName", user.getName());
-            userBalance.put("totalOwed", splitService.getTotalOwedByUser(user.getId()));
+            userBalance.put("totalOwed", totalsOwed.getOrDefault(user.getId(), zero));
             
+            Map<Long, BigDecimal> userGroupBalances = balancesInGroups.getOrDefault(user.getId(), Map.of());
             Map<String, BigDecimal> groupBalances = new HashMap<>();
             for (Group group : groups) {
                 if (group.getMembers().contains(user)) {
-                    BigDecimal balance = splitService.getUserBalanceInGroup(user.getId(), group.getId());
-                    groupBalances.put(group.getName(), balance);
+                    groupBalances.put(group.getName(), userGroupBalances.getOrDefault(group.getId(), zero));
                 }
             }
             userBalance.put("groupBalances", groupBalances);
@@ -83,7 +90,7 @@ public class TestController {
     public ResponseEntity<Map<String, Object>> getGroupSplits(@PathVariable Long groupId) {
         Map<String, Object> result = new HashMap<>();
         
-        Group group = groupRepository.findById(groupId).orElse(null);
+        Group group = groupRepository.findWithMembersByIdIn(List.of(groupId)).stream().findFirst().orElse(null);
         if (group == null) {
             return ResponseEntity.notFound().build();
         }
@@ -91,9 +98,7 @@ public class TestController {
         result.put("groupName", group.getName());
         result.put("members", group.getMembers());
         
-        List<Expense> groupExpenses = expenseRepository.findAll().stream()
-                .filter(expense -> expense.getGroup().getId().equals(groupId))
-                .toList();
+        List<Expense> groupExpenses = expenseRepository.findWithSplitsByGroupId(groupId);
         
         result.put("expenses", groupExpenses);
         result.put("pendingSplits", splitService.getPendingSplitsByGroup(groupId));
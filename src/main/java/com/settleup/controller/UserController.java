@@ -1,33 +1,70 @@
 package com.settleup.controller;
+import com.settleup.dto.SparseFields;
 import com.settleup.model.*;
+import com.settleup.purge.PurgeJob;
+import com.settleup.service.GroupService;
 import com.settleup.service.UserService;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
     private final UserService userService;
+    private final GroupService groupService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, GroupService groupService) {
         this.userService = userService;
+        this.groupService = groupService;
     }
 
     @GetMapping
-    public List<User> getAllUsers() {
+    public List<?> getAllUsers(@RequestParam(required = false) String fields) {
+        if (SparseFields.isRequested(fields)) {
+            try {
+                return userService.getAllUsers(fields);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
         return userService.getAllUsers();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
+    public ResponseEntity<?> getUserById(@PathVariable Long id,
+                                         @RequestParam(required = false) String fields) {
+        if (SparseFields.isRequested(fields)) {
+            try {
+                return userService.getUserById(id, fields)
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.notFound().build());
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
         return userService.getUserById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Ids of the groups the user belongs to
+    @GetMapping("/{id}/groups")
+    public List<Long> getGroupIds(@PathVariable Long id) {
+        return groupService.getGroupIdsOfUser(id);
+    }
+
+    // Ids of the groups both users belong to
+    @GetMapping("/{id}/common-groups/{otherId}")
+    public List<Long> getCommonGroupIds(@PathVariable Long id, @PathVariable Long otherId) {
+        return groupService.getCommonGroupIds(id, otherId);
+    }
+
     @PostMapping
     public User createUser(@RequestBody User user) {
         return userService.createUser(user);
@@ -48,8 +85,8 @@ public class UserController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
-        userService.deleteUser(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<PurgeJob> deleteUser(@PathVariable Long id) {
+        PurgeJob job = userService.deleteUser(id);
+        return ResponseEntity.accepted().location(URI.create("/api/purge/" + job.getId())).body(job);
     }
 } 
\ No newline at end of file
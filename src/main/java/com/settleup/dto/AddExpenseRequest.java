@@ -10,6 +10,7 @@ public class AddExpenseRequest {
     private Long groupId;
     private Long paidById;
     private BigDecimal amount;
+    private String currency;        // Defaults to the base currency
     private String description;
     private Split.SplitType splitType;
     private List<SplitDetail> splits;
@@ -0,0 +1,22 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// How a user's balance in a group moved over a period, in the base currency
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceChange {
+    private Long userId;
+    private Long groupId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private BigDecimal opening;
+    private BigDecimal closing;
+    private BigDecimal change;
+}
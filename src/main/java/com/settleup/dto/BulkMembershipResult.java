@@ -0,0 +1,20 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Outcome of a bulk add or remove: changed memberships, ids that were already in the
+// requested state, and ids that match no user (ignored)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkMembershipResult {
+    private Long groupId;
+    private int requested;
+    private int changed;
+    private int unchanged;
+    private List<Long> unknownUserIds;
+}
@@ -0,0 +1,18 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Net balance with one counterparty across all groups:
+// positive amount = the counterparty owes the user, negative = the user owes the counterparty
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CounterpartyBalance {
+    private Long userId;
+    private String name;
+    private BigDecimal amount;
+}
@@ -0,0 +1,17 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseSearchHit {
+    private Long expenseId;
+    private String description;
+    private BigDecimal amount;
+    private Long paidById;
+}
@@ -0,0 +1,18 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+// An FX snapshot: value of one unit of each currency in the base currency
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FxRates {
+    private long version;
+    private String baseCurrency;
+    private Map<String, BigDecimal> rates;
+}
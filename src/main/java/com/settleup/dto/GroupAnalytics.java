@@ -0,0 +1,18 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupAnalytics {
+    private Long groupId;
+    private List<RollupEntry> byPayer;
+    private List<RollupEntry> byMember;
+    private List<RollupEntry> byMonth;
+    private List<RollupEntry> byStatus;
+}
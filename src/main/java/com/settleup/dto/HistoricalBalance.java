@@ -0,0 +1,20 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// A user's balance in a group as of a moment, in the base currency: pending shares minus paid
+// shares, as the live balance counts them
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoricalBalance {
+    private Long userId;
+    private Long groupId;
+    private LocalDateTime at;
+    private BigDecimal balance;
+}
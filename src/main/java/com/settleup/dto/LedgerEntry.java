@@ -0,0 +1,18 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// A pending split as held by the in-memory group ledger
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+    private Long splitId;
+    private Long userId;
+    private Long payerId;
+    private BigDecimal amount;
+}
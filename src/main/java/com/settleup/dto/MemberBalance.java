@@ -0,0 +1,10 @@
+package com.settleup.dto;
+
+import java.math.BigDecimal;
+
+// A user's balance in one group in the base currency: pending shares minus paid shares
+public interface MemberBalance {
+    Long getUserId();
+    Long getGroupId();
+    BigDecimal getBalance();
+}
@@ -0,0 +1,14 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MembershipStatus {
+    private Long groupId;
+    private Long userId;
+    private boolean member;
+}
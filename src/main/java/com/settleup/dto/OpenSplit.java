@@ -0,0 +1,15 @@
+package com.settleup.dto;
+
+import com.settleup.model.Split;
+
+import java.math.BigDecimal;
+
+// Columns of a not yet settled split needed by the in-memory group ledger; the amount is in
+// the base currency
+public interface OpenSplit {
+    Long getSplitId();
+    Long getUserId();
+    Long getPayerId();
+    BigDecimal getAmount();
+    Split.SplitStatus getStatus();
+}
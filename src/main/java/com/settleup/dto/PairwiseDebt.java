@@ -0,0 +1,13 @@
+package com.settleup.dto;
+
+import java.math.BigDecimal;
+
+// Pending amount one user (debtor) owes another (creditor), summed over all expenses in the
+// base currency
+public interface PairwiseDebt {
+    Long getDebtorId();
+    String getDebtorName();
+    Long getCreditorId();
+    String getCreditorName();
+    BigDecimal getAmount();
+}
@@ -0,0 +1,23 @@
+package com.settleup.dto;
+
+import com.settleup.model.RecurringExpense;
+import com.settleup.model.Split;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// An expense to repeat: the fields of AddExpenseRequest plus its schedule
+@Data
+public class RecurringExpenseRequest {
+    private Long groupId;
+    private Long paidById;
+    private BigDecimal amount;
+    private String currency;        // Defaults to the base currency
+    private String description;
+    private Split.SplitType splitType;                      // Defaults to EQUAL
+    private List<AddExpenseRequest.SplitDetail> splits;     // Defaults to every group member
+    private RecurringExpense.Frequency frequency;
+    private LocalDateTime startAt;  // First occurrence; defaults to now
+    private LocalDateTime endAt;    // Optional; no occurrences after it
+}
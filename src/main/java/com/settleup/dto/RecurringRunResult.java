@@ -0,0 +1,19 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outcome of one scheduler run: partitions worked on here and those leased by other instances,
+// occurrences (expenses) and splits generated
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecurringRunResult {
+    private int partitions;
+    private int partitionsHeldElsewhere;
+    private long expenses;
+    private long splits;
+    private long batches;
+    private long millis;
+}
@@ -0,0 +1,17 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// One bucket of a spending breakdown: payer/member id, month or status, with its total and item count
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupEntry {
+    private String key;
+    private BigDecimal amount;
+    private long count;
+}
@@ -0,0 +1,17 @@
+package com.settleup.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// One payment of a settlement plan: fromUserId pays amount to toUserId
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Settlement {
+    private Long fromUserId;
+    private Long toUserId;
+    private BigDecimal amount;
+}
@@ -0,0 +1,79 @@
+package com.settleup.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Fields that can be requested through the fields= query parameter, mapped to entity attribute paths
+public final class SparseFields {
+
+    public static final Map<String, String> USER = fields(
+            "id", "id",
+            "name", "name",
+            "email", "email");
+
+    public static final Map<String, String> GROUP = fields(
+            "id", "id",
+            "name", "name");
+
+    public static final Map<String, String> EXPENSE = fields(
+            "id", "id",
+            "amount", "amount",
+            "currency", "currency",
+            "description", "description",
+            "groupId", "group.id",
+            "groupName", "group.name",
+            "paidById", "paidBy.id",
+            "paidByName", "paidBy.name",
+            "recurringExpenseId", "recurringExpenseId");
+
+    public static final Map<String, String> SPLIT = fields(
+            "id", "id",
+            "amount", "amount",
+            "currency", "expense.currency",
+            "status", "status",
+            "splitType", "splitType",
+            "createdAt", "createdAt",
+            "updatedAt", "updatedAt",
+            "userId", "user.id",
+            "userName", "user.name",
+            "expenseId", "expense.id",
+            "groupId", "expense.group.id");
+
+    private SparseFields() {
+    }
+
+    // Parse "id,amount,status" into the requested field names; anything not allowed is an IllegalArgumentException,
+    // which the controllers answer with 400
+    public static List<String> parse(String fields, Map<String, String> allowed) {
+        List<String> requested = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty() || requested.contains(name)) {
+                continue;
+            }
+            if (!allowed.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name + ", allowed: " + allowed.keySet());
+            }
+            requested.add(name);
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("No fields requested");
+        }
+        return requested;
+    }
+
+    private static Map<String, String> fields(String... pairs) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(pairs[i], pairs[i + 1]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    public static boolean isRequested(String fields) {
+        return fields != null && !fields.isBlank();
+    }
+}
@@ -0,0 +1,17 @@
+package com.settleup.dto;
+
+import com.settleup.model.Split;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.util.List;
+
+// Edit of an existing expense; null fields keep their current value
+@Data
+public class UpdateExpenseRequest {
+    private Long paidById;
+    private BigDecimal amount;
+    private String currency;                            // Null keeps the current currency
+    private String description;
+    private Split.SplitType splitType;                  // Defaults to the expense's current split type
+    private List<AddExpenseRequest.SplitDetail> splits; // Null keeps the current participants
+}
@@ -0,0 +1,9 @@
+package com.settleup.dto;
+
+import java.math.BigDecimal;
+
+// Total of one user's pending shares across all groups in the base currency
+public interface UserTotal {
+    Long getUserId();
+    BigDecimal getAmount();
+}
@@ -0,0 +1,20 @@
+package com.settleup.fx;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Currencies and FX rates (settleup.fx.*)
+@Data
+@ConfigurationProperties(prefix = "settleup.fx")
+public class FxProperties {
+    // Balances are reported in this currency; expenses recorded without a currency are in it
+    private String baseCurrency = "USD";
+
+    // Optional rates file (resource location, e.g. classpath:fx-rates.properties) with lines
+    // CODE=rate, the rate being the value of one unit in the base currency. Published as a new
+    // snapshot at startup when it differs from the latest stored one.
+    private String ratesFile;
+
+    // How often the latest stored snapshot is looked up, picking up rates published elsewhere
+    private long refreshIntervalMs = 60_000;
+}
@@ -0,0 +1,158 @@
+package com.settleup.fx;
+
+import com.settleup.repository.FxRateRepository;
+import com.settleup.sharding.ReferenceDataReplicator;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Versioned FX rates (settleup.fx.*). Every set of rates is stored in fx_rates under a new
+// version, on the global database and, like other reference data, on every shard. The latest
+// snapshot is held in memory: Java-side conversions (the group ledger) use it directly and
+// balance queries pass its version to the database, which converts and sums there.
+@Component
+public class FxRateTable {
+    private final FxRateRepository fxRateRepository;
+    private final ReferenceDataReplicator replicator;
+    private final ResourceLoader resourceLoader;
+    private final FxProperties properties;
+
+    private volatile FxSnapshot snapshot;
+
+    public FxRateTable(FxRateRepository fxRateRepository,
+                       ReferenceDataReplicator replicator,
+                       ResourceLoader resourceLoader,
+                       FxProperties properties) {
+        this.fxRateRepository = fxRateRepository;
+        this.replicator = replicator;
+        this.resourceLoader = resourceLoader;
+        this.properties = properties;
+    }
+
+    // The latest snapshot; the first call loads it
+    public FxSnapshot current() {
+        FxSnapshot current = snapshot;
+        return current != null ? current : initialize();
+    }
+
+    // Currency code to store with an expense: the base currency when none is given
+    public String resolveCurrency(String currency) {
+        if (currency == null || currency.isBlank()) {
+            return properties.getBaseCurrency();
+        }
+        String code = currency.trim().toUpperCase(Locale.ROOT);
+        if (!current().supports(code)) {
+            throw new IllegalArgumentException("No FX rate for currency " + code);
+        }
+        return code;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        initialize();
+    }
+
+    // Publishes the rates file if it changed (or the base currency alone if nothing is stored),
+    // makes sure the shards hold the latest snapshot and loads it
+    private synchronized FxSnapshot initialize() {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        FxSnapshot latest = loadLatest();
+        Map<String, BigDecimal> fileRates = readRatesFile();
+        if (latest == null || fileRates != null
+                && !new FxSnapshot(0, properties.getBaseCurrency(), fileRates).getRates().equals(latest.getRates())) {
+            latest = store(latest, fileRates == null ? Map.of() : fileRates);
+        } else {
+            replicator.replicateFxRates(latest.getVersion(), latest.getRates());
+        }
+        snapshot = latest;
+        System.out.println("FX rates loaded: snapshot " + latest.getVersion() + ", " + latest.getRates().size()
+                + " currencies, base " + latest.getBaseCurrency());
+        return latest;
+    }
+
+    // Stores the rates as a new snapshot and switches to it
+    public synchronized FxSnapshot publish(Map<String, BigDecimal> rates) {
+        Map<String, BigDecimal> normalized = new LinkedHashMap<>();
+        rates.forEach((currency, rate) -> normalized.put(currency.trim().toUpperCase(Locale.ROOT), rate));
+        FxSnapshot published = store(loadLatest(), normalized);
+        snapshot = published;
+        System.out.println("FX rates published: snapshot " + published.getVersion() + ", "
+                + published.getRates().size() + " currencies");
+        return published;
+    }
+
+    @Scheduled(fixedDelayString = "${settleup.fx.refresh-interval-ms:60000}")
+    public void refresh() {
+        FxSnapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        Long latest = fxRateRepository.findLatestVersion();
+        if (latest != null && latest > current.getVersion()) {
+            synchronized (this) {
+                if (latest > snapshot.getVersion()) {
+                    snapshot = new FxSnapshot(latest, properties.getBaseCurrency(), fxRateRepository.findRates(latest));
+                    System.out.println("FX rates refreshed: snapshot " + latest);
+                }
+            }
+        }
+    }
+
+    // Stores the rates under the version after the latest one. Currencies cannot be dropped:
+    // stored amounts may be in any currency the latest snapshot has.
+    private FxSnapshot store(FxSnapshot latest, Map<String, BigDecimal> rates) {
+        FxSnapshot stored = new FxSnapshot(latest == null ? 1 : latest.getVersion() + 1,
+                properties.getBaseCurrency(), rates);
+        if (latest != null && !stored.getRates().keySet().containsAll(latest.getRates().keySet())) {
+            Set<String> dropped = new TreeSet<>(latest.getRates().keySet());
+            dropped.removeAll(stored.getRates().keySet());
+            throw new IllegalArgumentException("FX rates missing for currencies in use: " + dropped);
+        }
+        long version = stored.getVersion();
+        // Shards first: a query can only use the version once every database has it
+        replicator.replicateFxRates(version, stored.getRates());
+        fxRateRepository.insert(version, stored.getRates());
+        return stored;
+    }
+
+    private FxSnapshot loadLatest() {
+        Long version = fxRateRepository.findLatestVersion();
+        return version == null ? null
+                : new FxSnapshot(version, properties.getBaseCurrency(), fxRateRepository.findRates(version));
+    }
+
+    private Map<String, BigDecimal> readRatesFile() {
+        if (properties.getRatesFile() == null || properties.getRatesFile().isBlank()) {
+            return null;
+        }
+        Resource resource = resourceLoader.getResource(properties.getRatesFile());
+        Properties file = new Properties();
+        try (InputStream in = resource.getInputStream()) {
+            file.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read FX rates file " + properties.getRatesFile(), e);
+        }
+        Map<String, BigDecimal> rates = new LinkedHashMap<>();
+        for (String currency : file.stringPropertyNames()) {
+            rates.put(currency.trim().toUpperCase(Locale.ROOT), new BigDecimal(file.getProperty(currency).trim()));
+        }
+        return rates;
+    }
+}
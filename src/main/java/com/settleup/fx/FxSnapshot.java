@@ -0,0 +1,127 @@
+package com.settleup.fx;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Immutable set of FX rates and the version it is stored under. For conversions the rates are
+// held as longs scaled by 10^8 (the scale of fx_rates.rate) in an array ordered by packed
+// currency code, so converting an amount is a binary search and integer arithmetic that
+// allocates nothing, and rounds exactly like ROUND(amount * rate, 2) in the balance queries.
+public final class FxSnapshot {
+    public static final int RATE_SCALE = 8;
+    private static final long ONE = 100_000_000L;
+
+    private final long version;
+    private final String baseCurrency;
+    private final Map<String, BigDecimal> rates;
+    private final int[] codes;
+    private final long[] scaledRates;
+
+    // The base currency is added at rate 1 when missing
+    public FxSnapshot(long version, String baseCurrency, Map<String, BigDecimal> rates) {
+        if (pack(baseCurrency) < 0) {
+            throw new IllegalArgumentException("Invalid base currency: " + baseCurrency);
+        }
+        Map<String, BigDecimal> sorted = new TreeMap<>();
+        for (Map.Entry<String, BigDecimal> entry : rates.entrySet()) {
+            String currency = entry.getKey();
+            BigDecimal rate = entry.getValue();
+            if (pack(currency) < 0) {
+                throw new IllegalArgumentException("Invalid currency code: " + currency);
+            }
+            if (rate == null || rate.signum() <= 0) {
+                throw new IllegalArgumentException("Rate of " + currency + " must be positive");
+            }
+            if (rate.stripTrailingZeros().scale() > RATE_SCALE) {
+                throw new IllegalArgumentException("Rate of " + currency + " has more than " + RATE_SCALE + " decimals");
+            }
+            sorted.put(currency, rate.setScale(RATE_SCALE));
+        }
+        BigDecimal base = sorted.putIfAbsent(baseCurrency, BigDecimal.ONE.setScale(RATE_SCALE));
+        if (base != null && base.compareTo(BigDecimal.ONE) != 0) {
+            throw new IllegalArgumentException("Rate of the base currency " + baseCurrency + " must be 1");
+        }
+
+        this.version = version;
+        this.baseCurrency = baseCurrency;
+        this.rates = Collections.unmodifiableMap(sorted);
+        // TreeMap order is code order, which is packed code order as well
+        this.codes = new int[sorted.size()];
+        this.scaledRates = new long[sorted.size()];
+        int i = 0;
+        for (Map.Entry<String, BigDecimal> entry : sorted.entrySet()) {
+            codes[i] = pack(entry.getKey());
+            scaledRates[i] = entry.getValue().unscaledValue().longValueExact();
+            i++;
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    // Rate per currency code, in code order
+    public Map<String, BigDecimal> getRates() {
+        return rates;
+    }
+
+    public boolean supports(String currency) {
+        return indexOf(currency) >= 0;
+    }
+
+    // An amount in cents of the currency (null: the base currency) in cents of the base currency
+    public long toBaseCents(long cents, String currency) {
+        if (currency == null) {
+            return cents;
+        }
+        int index = indexOf(currency);
+        if (index < 0) {
+            throw new IllegalArgumentException("No FX rate for " + currency + " in snapshot " + version);
+        }
+        long rate = scaledRates[index];
+        if (rate == ONE) {
+            return cents;
+        }
+        try {
+            long scaled = Math.multiplyExact(cents, rate);
+            return scaled >= 0 ? Math.addExact(scaled, ONE / 2) / ONE : -(Math.addExact(Math.negateExact(scaled), ONE / 2) / ONE);
+        } catch (ArithmeticException e) {
+            // Only amounts in the hundreds of millions get here
+            return BigDecimal.valueOf(cents).multiply(BigDecimal.valueOf(rate, RATE_SCALE))
+                    .setScale(0, RoundingMode.HALF_UP).longValueExact();
+        }
+    }
+
+    private int indexOf(String currency) {
+        int code = pack(currency);
+        if (code < 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(codes, code);
+        return index >= 0 ? index : -1;
+    }
+
+    // Three upper-case letters as a number below 26^3, -1 for anything else
+    static int pack(String currency) {
+        if (currency == null || currency.length() != 3) {
+            return -1;
+        }
+        int code = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = currency.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return -1;
+            }
+            code = code * 26 + (c - 'A');
+        }
+        return code;
+    }
+}
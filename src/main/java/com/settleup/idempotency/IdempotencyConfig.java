@@ -0,0 +1,22 @@
+package com.settleup.idempotency;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// Applies Idempotency-Key handling to write requests
+@Configuration
+@ConditionalOnProperty(prefix = "settleup.idempotency", name = "enabled", havingValue = "true")
+public class IdempotencyConfig {
+
+    // Right after SQL tracing, so the key lookups show up in the request's trace
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore idempotencyStore) {
+        FilterRegistrationBean<IdempotencyFilter> registration =
+                new FilterRegistrationBean<>(new IdempotencyFilter(idempotencyStore));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
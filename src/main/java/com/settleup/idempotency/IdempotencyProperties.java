@@ -0,0 +1,26 @@
+package com.settleup.idempotency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Idempotency-Key support for write requests (settleup.idempotency.*)
+@Data
+@ConfigurationProperties(prefix = "settleup.idempotency")
+public class IdempotencyProperties {
+    private boolean enabled = true;
+
+    // Completed responses kept in memory, least recently used evicted first; the rest are read from the database
+    private int cacheSize = 10_000;
+
+    // How long a key's response is replayed; older keys are deleted and run as new requests
+    private int retentionHours = 24;
+
+    // How long a retry waits for the original request with the same key before answering 409
+    private long waitTimeoutMs = 10_000;
+
+    // Interval for checking on an original request running on another instance
+    private long pollIntervalMs = 50;
+
+    // A claim without a response for this long belongs to an instance that stopped and is taken over
+    private long staleAfterMs = 60_000;
+}
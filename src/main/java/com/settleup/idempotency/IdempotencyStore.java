@@ -0,0 +1,212 @@
+package com.settleup.idempotency;
+
+import com.settleup.repository.IdempotencyKeyRepository;
+import com.settleup.repository.IdempotencyKeyRepository.Stored;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Responses of write requests by Idempotency-Key. Completed responses are kept in an in-memory
+// LRU of settleup.idempotency.cache-size entries in front of the idempotency_keys table, so a
+// retry of a recent request is answered without touching the database. A key is claimed in the
+// table before its request runs; a retry arriving meanwhile waits for the original, on this
+// instance through its latch and on other instances by polling the table, and then gets the
+// original's response.
+//
+// The response is stored after the write has committed, so an instance stopping in between
+// leaves a claim without a response; it is taken over after settleup.idempotency.stale-after-ms.
+@Component
+public class IdempotencyStore {
+    // Longer bodies do not fit response_body: only the status and content type are stored, and
+    // retries get the status without the body rather than running the write again
+    private static final int MAX_BODY_LENGTH = 65_536;
+
+    private final IdempotencyKeyRepository repository;
+    private final IdempotencyProperties properties;
+    private final Map<String, Response> completed;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Counter memoryReplays;
+    private final Counter databaseReplays;
+
+    public IdempotencyStore(IdempotencyKeyRepository repository, IdempotencyProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.properties = properties;
+        int cacheSize = properties.getCacheSize();
+        this.completed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Response> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.memoryReplays = replays(meterRegistry, "memory");
+        this.databaseReplays = replays(meterRegistry, "database");
+    }
+
+    // Decides what a request with this key does: run, or answer with the original's response.
+    // After RUN the caller must call complete or abandon.
+    public Outcome begin(String key, String fingerprint) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getWaitTimeoutMs());
+        while (true) {
+            Response cached = cached(key);
+            if (cached != null) {
+                return replay(cached, fingerprint, memoryReplays);
+            }
+
+            InFlight mine = new InFlight(fingerprint);
+            InFlight running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                if (!running.fingerprint.equals(fingerprint)) {
+                    return Outcome.MISMATCH;
+                }
+                if (!running.done.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    return Outcome.BUSY;
+                }
+                continue;
+            }
+
+            // The in-flight entry stays until complete or abandon when the claim succeeds
+            Optional<Stored> stored;
+            boolean claimed = false;
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime staleBefore = now.minus(Duration.ofMillis(properties.getStaleAfterMs()));
+                claimed = repository.claim(key, fingerprint, now, staleBefore);
+                if (claimed) {
+                    return Outcome.RUN;
+                }
+                stored = repository.find(key);
+            } finally {
+                if (!claimed) {
+                    finish(key, mine);
+                }
+            }
+            if (stored.isPresent() && stored.get().isCompleted()) {
+                Stored row = stored.get();
+                Response response = new Response(row.fingerprint(), row.status(), row.contentType(),
+                        row.body(), row.completedAt());
+                remember(key, response);
+                return replay(response, fingerprint, databaseReplays);
+            }
+            if (stored.isPresent() && !stored.get().fingerprint().equals(fingerprint)) {
+                return Outcome.MISMATCH;
+            }
+            // Running on another instance, or released just now: look again shortly
+            if (System.nanoTime() >= deadline) {
+                return Outcome.BUSY;
+            }
+            Thread.sleep(properties.getPollIntervalMs());
+        }
+    }
+
+    // Stores the response of a request that ran, for its retries
+    public void complete(String key, int status, String contentType, String body) {
+        InFlight mine = inFlight.get(key);
+        try {
+            String stored = body.length() > MAX_BODY_LENGTH ? null : body;
+            LocalDateTime now = LocalDateTime.now();
+            repository.complete(key, status, contentType, stored, now);
+            remember(key, new Response(mine.fingerprint, status, contentType, stored, now));
+        } catch (RuntimeException e) {
+            // The write went through; its retries get 409 until the claim goes stale
+            System.err.println("Idempotency key " + key + ": response not stored: " + e.getMessage());
+        } finally {
+            finish(key, mine);
+        }
+    }
+
+    // Gives the key up after its request failed, so a retry runs it again
+    public void abandon(String key) {
+        try {
+            repository.release(key);
+        } finally {
+            finish(key, inFlight.get(key));
+        }
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purgeExpired() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        repository.deleteCreatedBefore(LocalDateTime.now().minusHours(properties.getRetentionHours()));
+    }
+
+    private Response cached(String key) {
+        synchronized (completed) {
+            Response response = completed.get(key);
+            if (response != null && response.completedAt()
+                    .isBefore(LocalDateTime.now().minusHours(properties.getRetentionHours()))) {
+                completed.remove(key);
+                return null;
+            }
+            return response;
+        }
+    }
+
+    private void remember(String key, Response response) {
+        synchronized (completed) {
+            completed.put(key, response);
+        }
+    }
+
+    private Outcome replay(Response response, String fingerprint, Counter counter) {
+        if (!response.fingerprint().equals(fingerprint)) {
+            return Outcome.MISMATCH;
+        }
+        counter.increment();
+        return new Outcome(Outcome.Kind.REPLAY, response);
+    }
+
+    private void finish(String key, InFlight mine) {
+        if (mine != null) {
+            inFlight.remove(key, mine);
+            mine.done.countDown();
+        }
+    }
+
+    private static Counter replays(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("settleup.idempotency.replays")
+                .description("Write requests answered with the stored response of an earlier request with the same key")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    // body is null when the original's was too long to store
+    public record Response(String fingerprint, int status, String contentType, String body,
+                           LocalDateTime completedAt) {
+    }
+
+    public record Outcome(Kind kind, Response response) {
+        static final Outcome RUN = new Outcome(Kind.RUN, null);
+        static final Outcome MISMATCH = new Outcome(Kind.MISMATCH, null);
+        static final Outcome BUSY = new Outcome(Kind.BUSY, null);
+
+        public enum Kind {
+            RUN,        // Run the request, then complete or abandon the key
+            REPLAY,     // Answer with the original's response
+            MISMATCH,   // The key belongs to a different request
+            BUSY        // The original is still running after settleup.idempotency.wait-timeout-ms
+        }
+    }
+
+    private static class InFlight {
+        final String fingerprint;
+        final CountDownLatch done = new CountDownLatch(1);
+
+        InFlight(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.settleup.ingest;
+
+import com.settleup.model.Expense;
+import com.settleup.model.Split;
+import com.settleup.outbox.OutboxWriter;
+import com.settleup.repository.ExpenseBatchRepository;
+import com.settleup.search.ExpenseSearchIndex;
+import com.settleup.service.AnalyticsService;
+import com.settleup.service.BalanceHistoryService;
+import com.settleup.service.LedgerService;
+import com.settleup.sharding.ShardContext;
+import com.settleup.sharding.ShardRouter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Writes expenses accepted by POST /api/expense/async in the background. Every group belongs to
+// one writer thread (one per shard when sharded, else settleup.ingest.writers picked by group
+// id), so a group's expenses are written in the order they were accepted. A writer takes what
+// has queued up, waiting at most settleup.ingest.linger-ms after the first expense for up to
+// settleup.ingest.batch-size, and writes the batch in one transaction: multi-row inserts of the
+// expenses and their splits, and the rollups, balance history, search index, outbox and ledger
+// told in bulk, the way recurring expenses are generated.
+//
+// Groups, payers and participants are checked per batch; an expense referring to one that does
+// not exist fails alone. A batch that fails otherwise is retried, then written one expense at a
+// time so only the expenses at fault fail. Queued expenses live in memory only: they are written
+// before a clean shutdown, but lost if the process dies.
+@Component
+public class ExpenseIngest {
+    private final ExpenseBatchRepository expenseBatchRepository;
+    private final AnalyticsService analyticsService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final ExpenseSearchIndex expenseSearchIndex;
+    private final OutboxWriter outboxWriter;
+    private final LedgerService ledgerService;
+    private final ShardRouter shardRouter;
+    private final IngestProperties properties;
+    private final TransactionTemplate transaction;
+    private final List<Writer> writers = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, IngestJob> jobs;
+    private volatile boolean accepting;
+
+    private final Timer latency;
+    private final DistributionSummary batchSizes;
+    private final Counter written;
+    private final Counter failed;
+
+    public ExpenseIngest(ExpenseBatchRepository expenseBatchRepository,
+                         AnalyticsService analyticsService,
+                         BalanceHistoryService balanceHistoryService,
+                         ExpenseSearchIndex expenseSearchIndex,
+                         OutboxWriter outboxWriter,
+                         LedgerService ledgerService,
+                         ShardRouter shardRouter,
+                         IngestProperties properties,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry) {
+        this.expenseBatchRepository = expenseBatchRepository;
+        this.analyticsService = analyticsService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.expenseSearchIndex = expenseSearchIndex;
+        this.outboxWriter = outboxWriter;
+        this.ledgerService = ledgerService;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.transaction = new TransactionTemplate(transactionManager);
+        int retained = Math.max(1, properties.getRetainedJobs());
+        this.jobs = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, IngestJob> eldest) {
+                return size() > retained;
+            }
+        };
+
+        this.latency = Timer.builder("settleup.ingest.latency")
+                .description("Time from accepting an expense to committing it")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("settleup.ingest.batch.size")
+                .description("Expenses per batch transaction")
+                .register(meterRegistry);
+        this.written = Counter.builder("settleup.ingest.written")
+                .description("Accepted expenses written")
+                .register(meterRegistry);
+        this.failed = Counter.builder("settleup.ingest.failed")
+                .description("Accepted expenses that could not be written")
+                .register(meterRegistry);
+        Gauge.builder("settleup.ingest.queued", writers, all -> all.stream().mapToInt(writer -> writer.queue.size()).sum())
+                .description("Accepted expenses waiting for their writer")
+                .register(meterRegistry);
+
+        if (properties.isEnabled()) {
+            int count = shardRouter.isEnabled() ? shardRouter.getShardCount() : Math.max(1, properties.getWriters());
+            int capacity = Math.max(1, properties.getQueueCapacity() / count);
+            for (int i = 0; i < count; i++) {
+                writers.add(new Writer(shardRouter.isEnabled() ? i : null, capacity, "ingest-" + (i + 1)));
+            }
+            accepting = true;
+            writers.forEach(writer -> writer.thread.start());
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // Queues a validated expense with its splits, which reference it and have no ids yet
+    public IngestJob submit(Expense expense) {
+        long groupId = expense.getGroup().getId();
+        IngestJob job = new IngestJob(ids.incrementAndGet(), groupId);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        if (!accepting || !writerFor(groupId).queue.offer(new Pending(job, expense, System.nanoTime()))) {
+            synchronized (jobs) {
+                jobs.remove(job.getId());
+            }
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many expenses queued");
+        }
+        return job;
+    }
+
+    public Optional<IngestJob> getJob(long id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    // Stops accepting and gives the writers time to write what is queued
+    @PreDestroy
+    public void close() throws InterruptedException {
+        accepting = false;
+        for (Writer writer : writers) {
+            writer.thread.join(10_000);
+            writer.thread.interrupt();
+        }
+    }
+
+    private Writer writerFor(long groupId) {
+        int index = shardRouter.isEnabled() ? shardRouter.shardForGroup(groupId)
+                : (int) Math.floorMod(groupId, (long) writers.size());
+        return writers.get(index);
+    }
+
+    private void drain(Writer writer) {
+        List<Pending> batch = new ArrayList<>();
+        int batchSize = Math.max(1, properties.getBatchSize());
+        while (accepting || !writer.queue.isEmpty()) {
+            try {
+                Pending first = writer.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getLingerMs());
+                while (batch.size() < batchSize) {
+                    writer.queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = writer.queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Integer previous = ShardContext.enter(writer.shard);
+            try {
+                flush(batch);
+            } finally {
+                ShardContext.restore(previous);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        Outcome outcome;
+        try {
+            outcome = writeWithRetry(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e.getMessage());
+            } else {
+                System.err.println("Expense ingest: batch of " + batch.size() + " failed (" + e.getMessage()
+                        + "), writing its expenses one at a time");
+                for (Pending pending : batch) {
+                    flush(List.of(pending));
+                }
+            }
+            return;
+        }
+        batchSizes.record(outcome.written().size());
+        long now = System.nanoTime();
+        for (Pending pending : outcome.written()) {
+            pending.job().written(pending.expense().getId());
+            latency.record(now - pending.acceptedNanos(), TimeUnit.NANOSECONDS);
+        }
+        written.increment(outcome.written().size());
+        outcome.rejected().forEach(rejection -> fail(rejection.pending(), rejection.error()));
+    }
+
+    private Outcome writeWithRetry(List<Pending> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.execute(status -> write(batch));
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (attempt >= Math.max(1, properties.getMaxAttempts())) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // One batch transaction; expenses referring to missing rows are left out
+    private Outcome write(List<Pending> batch) {
+        Set<Long> groupIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (Pending pending : batch) {
+            groupIds.add(pending.expense().getGroup().getId());
+            userIds.add(pending.expense().getPaidBy().getId());
+            pending.expense().getSplits().forEach(split -> userIds.add(split.getUser().getId()));
+        }
+        Set<Long> existingGroups = expenseBatchRepository.findExistingIds("groups", groupIds);
+        Set<Long> existingUsers = expenseBatchRepository.findExistingIds("users", userIds);
+
+        List<Pending> accepted = new ArrayList<>(batch.size());
+        List<Rejection> rejected = new ArrayList<>();
+        for (Pending pending : batch) {
+            Expense expense = pending.expense();
+            if (!existingGroups.contains(expense.getGroup().getId())) {
+                rejected.add(new Rejection(pending, "Group not found"));
+            } else if (!existingUsers.contains(expense.getPaidBy().getId())
+                    || !expense.getSplits().stream().map(Split::getUser).allMatch(user -> existingUsers.contains(user.getId()))) {
+                rejected.add(new Rejection(pending, "User not found"));
+            } else {
+                accepted.add(pending);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return new Outcome(accepted, rejected);
+        }
+
+        List<Expense> expenses = accepted.stream().map(Pending::expense).toList();
+        expenseBatchRepository.insert(expenses);
+        analyticsService.onExpensesCreated(expenses);
+        balanceHistoryService.onExpensesCreated(expenses);
+        expenseSearchIndex.onExpensesSaved(expenses);
+        outboxWriter.expensesCreated(expenses);
+        expenses.stream().map(expense -> expense.getGroup().getId()).distinct().forEach(ledgerService::evictGroup);
+        return new Outcome(accepted, rejected);
+    }
+
+    private void fail(Pending pending, String error) {
+        pending.job().failed(error);
+        failed.increment();
+    }
+
+    private record Pending(IngestJob job, Expense expense, long acceptedNanos) {
+    }
+
+    private record Rejection(Pending pending, String error) {
+    }
+
+    private record Outcome(List<Pending> written, List<Rejection> rejected) {
+    }
+
+    // A writer thread with the queue of its groups
+    private class Writer {
+        private final Integer shard;
+        private final BlockingQueue<Pending> queue;
+        private final Thread thread;
+
+        Writer(Integer shard, int capacity, String name) {
+            this.shard = shard;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(() -> drain(this), name);
+            this.thread.setDaemon(true);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.settleup.ingest;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// One expense accepted for asynchronous writing, updated by its writer and read by status requests
+@Getter
+public class IngestJob {
+    private final long id;
+    private final long groupId;
+    private final LocalDateTime acceptedAt = LocalDateTime.now();
+    private volatile State state = State.QUEUED;
+    private volatile Long expenseId;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    IngestJob(long id, long groupId) {
+        this.id = id;
+        this.groupId = groupId;
+    }
+
+    void written(long expenseId) {
+        this.expenseId = expenseId;
+        finishedAt = LocalDateTime.now();
+        state = State.DONE;
+    }
+
+    void failed(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        state = State.FAILED;
+    }
+
+    public enum State {
+        QUEUED,
+        DONE,
+        FAILED
+    }
+}
@@ -0,0 +1,30 @@
+package com.settleup.ingest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Asynchronous expense writes (settleup.ingest.*)
+@Data
+@ConfigurationProperties(prefix = "settleup.ingest")
+public class IngestProperties {
+    // Accept expenses on POST /api/expense/async
+    private boolean enabled = false;
+
+    // Writer threads, each owning the groups whose id falls on it; one per shard when sharded
+    private int writers = 4;
+
+    // Expenses waiting to be written, over all writers; further submissions answer 503
+    private int queueCapacity = 10_000;
+
+    // Expenses per batch transaction; a writer flushes when it has this many...
+    private int batchSize = 500;
+
+    // ...or when its oldest waiting expense has waited this long
+    private long lingerMs = 20;
+
+    // Attempts per batch when it collides with a concurrent write (rollup rows, deadlocks)
+    private int maxAttempts = 3;
+
+    // Finished jobs kept for the status endpoint, oldest dropped first
+    private int retainedJobs = 100_000;
+}
@@ -0,0 +1,122 @@
+package com.settleup.ledger;
+
+import com.settleup.model.Split;
+import com.settleup.util.LongLongMap;
+
+import java.util.Arrays;
+
+// Open (PENDING and PAID) splits of one group in parallel primitive arrays, one row per split.
+// Amounts are in cents of the base currency, converted with the rates of FX snapshot fxVersion.
+// Settled splits are dropped. Not thread-safe: callers hold the group lock.
+public class GroupLedger {
+    private static final byte PENDING = 0;
+    private static final byte PAID = 1;
+
+    private long[] splitIds;
+    private long[] userIds;
+    private long[] payerIds;
+    private long[] cents;
+    private byte[] statuses;
+    private int size;
+    private final LongLongMap rowBySplitId;
+    private final long fxVersion;
+
+    public GroupLedger(int expectedSize, long fxVersion) {
+        this.fxVersion = fxVersion;
+        int capacity = Math.max(8, expectedSize);
+        splitIds = new long[capacity];
+        userIds = new long[capacity];
+        payerIds = new long[capacity];
+        cents = new long[capacity];
+        statuses = new byte[capacity];
+        rowBySplitId = new LongLongMap(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long fxVersion() {
+        return fxVersion;
+    }
+
+    // Inserts or replaces the row of a split; settled splits are removed
+    public void upsert(long splitId, long userId, long payerId, long amountCents, Split.SplitStatus status) {
+        if (status == Split.SplitStatus.SETTLED) {
+            remove(splitId);
+            return;
+        }
+        int row;
+        if (rowBySplitId.containsKey(splitId)) {
+            row = (int) rowBySplitId.get(splitId);
+        } else {
+            if (size == splitIds.length) {
+                grow();
+            }
+            row = size++;
+            rowBySplitId.put(splitId, row);
+        }
+        splitIds[row] = splitId;
+        userIds[row] = userId;
+        payerIds[row] = payerId;
+        cents[row] = amountCents;
+        statuses[row] = status == Split.SplitStatus.PAID ? PAID : PENDING;
+    }
+
+    // Removes a split by moving the last row into its place
+    public void remove(long splitId) {
+        if (!rowBySplitId.containsKey(splitId)) {
+            return;
+        }
+        int row = (int) rowBySplitId.get(splitId);
+        rowBySplitId.remove(splitId);
+        int last = --size;
+        if (row != last) {
+            splitIds[row] = splitIds[last];
+            userIds[row] = userIds[last];
+            payerIds[row] = payerIds[last];
+            cents[row] = cents[last];
+            statuses[row] = statuses[last];
+            rowBySplitId.put(splitIds[row], row);
+        }
+    }
+
+    // Same definition as SplitService.getUserBalanceInGroup: pending share minus paid share
+    public long balanceCents(long userId) {
+        long balance = 0;
+        for (int i = 0; i < size; i++) {
+            if (userIds[i] == userId) {
+                balance += statuses[i] == PENDING ? cents[i] : -cents[i];
+            }
+        }
+        return balance;
+    }
+
+    // Calls the visitor for every pending split
+    public void forEachPending(RowVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            if (statuses[i] == PENDING) {
+                visitor.visit(splitIds[i], userIds[i], payerIds[i], cents[i]);
+            }
+        }
+    }
+
+    // Heap used by the arrays and the split index
+    public long residentBytes() {
+        return 4L * 8 * splitIds.length + statuses.length + rowBySplitId.sizeInBytes() + 64;
+    }
+
+    private void grow() {
+        int capacity = splitIds.length * 2;
+        splitIds = Arrays.copyOf(splitIds, capacity);
+        userIds = Arrays.copyOf(userIds, capacity);
+        payerIds = Arrays.copyOf(payerIds, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+    }
+
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(long splitId, long userId, long payerId, long amountCents);
+    }
+}
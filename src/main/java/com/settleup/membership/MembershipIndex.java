@@ -0,0 +1,267 @@
+package com.settleup.membership;
+
+import com.settleup.config.BulkDataLoadedEvent;
+import com.settleup.util.AfterCommit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// In-memory group <-> user membership index on compressed (Roaring) bitmaps: the member ids of
+// every group and the group ids of every user. Built by streaming group_members after startup
+// (and after bulk loads), then kept current by GroupService and purges once their writes
+// commit. Changes that commit while a rebuild is scanning are replayed onto the new index
+// before it replaces the old one.
+//
+// Memberships are reference data, so the table is read from the default data source, which
+// holds every group when sharded.
+@Component
+public class MembershipIndex {
+    private static final int FETCH_SIZE = 1000;
+    private static final String SELECT_MEMBERSHIPS = "SELECT group_id, user_id FROM group_members";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    // Bitmaps are not thread-safe: lookups share the read lock, changes and the swap after a
+    // rebuild take the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Bitmaps bitmaps = new Bitmaps();
+    private volatile boolean ready;
+    // Changes applied while a rebuild runs (null otherwise) and whether another scan was
+    // requested meanwhile. Guarded by the write lock.
+    private List<Change> replay;
+    private boolean rescan;
+
+    public MembershipIndex(DataSource dataSource,
+                           MeterRegistry meterRegistry,
+                           @Value("${settleup.membership-index.enabled:false}") boolean enabled) {
+        // Own template: the fetch size makes the rebuild stream rows instead of loading them all
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.enabled = enabled;
+        Gauge.builder("settleup.membership.index.memberships", this, index -> index.read(Bitmaps::memberships))
+                .description("Group memberships held by the membership index")
+                .register(meterRegistry);
+        Gauge.builder("settleup.membership.index.bytes", this, index -> index.read(Bitmaps::sizeInBytes))
+                .description("Approximate size of the membership index bitmaps")
+                .register(meterRegistry);
+    }
+
+    // Lookups are only answered once the first build finished; callers fall back to the database
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Async
+    @EventListener({ApplicationReadyEvent.class, BulkDataLoadedEvent.class})
+    public void rebuildInBackground() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    // Replaces the index with one built from group_members, read as a stream.
+    // A call that arrives while a rebuild runs makes that rebuild scan once more.
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (replay != null) {
+                rescan = true;
+                return;
+            }
+            replay = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        boolean again;
+        do {
+            long started = System.currentTimeMillis();
+            Bitmaps fresh = scan();
+            fresh.optimize();
+            lock.writeLock().lock();
+            try {
+                replay.forEach(change -> change.applyTo(fresh));
+                bitmaps = fresh;
+                ready = true;
+                again = rescan;
+                rescan = false;
+                replay = again ? new ArrayList<>() : null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            System.out.println("Membership index built: " + fresh.memberships() + " memberships of "
+                    + fresh.membersByGroup.size() + " groups, " + fresh.sizeInBytes() / 1024 + " KB, "
+                    + (System.currentTimeMillis() - started) + " ms");
+        } while (again);
+    }
+
+    private Bitmaps scan() {
+        Bitmaps fresh = new Bitmaps();
+        try {
+            jdbcTemplate.query(SELECT_MEMBERSHIPS, rs -> {
+                fresh.add(rs.getLong("group_id"), rs.getLong("user_id"));
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                replay = null;
+                rescan = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        return fresh;
+    }
+
+    public boolean isMember(long groupId, long userId) {
+        return read(index -> {
+            Roaring64Bitmap members = index.membersByGroup.get(groupId);
+            return members != null && members.contains(userId);
+        });
+    }
+
+    // Ascending group ids
+    public long[] groupsOf(long userId) {
+        return read(index -> {
+            Roaring64Bitmap groups = index.groupsByUser.get(userId);
+            return groups == null ? new long[0] : groups.toArray();
+        });
+    }
+
+    // Ascending ids of the groups both users belong to
+    public long[] commonGroups(long userId, long otherUserId) {
+        return read(index -> {
+            Roaring64Bitmap groups = index.groupsByUser.get(userId);
+            Roaring64Bitmap otherGroups = index.groupsByUser.get(otherUserId);
+            if (groups == null || otherGroups == null) {
+                return new long[0];
+            }
+            return Roaring64Bitmap.and(groups, otherGroups).toArray();
+        });
+    }
+
+    // Write-through hooks, called by the writers inside their transaction when there is one
+
+    public void onMembersAdded(long groupId, Collection<Long> userIds) {
+        if (enabled && !userIds.isEmpty()) {
+            List<Long> ids = List.copyOf(userIds);
+            AfterCommit.run(() -> apply(index -> ids.forEach(userId -> index.add(groupId, userId))));
+        }
+    }
+
+    public void onMembersRemoved(long groupId, Collection<Long> userIds) {
+        if (enabled && !userIds.isEmpty()) {
+            List<Long> ids = List.copyOf(userIds);
+            AfterCommit.run(() -> apply(index -> ids.forEach(userId -> index.remove(groupId, userId))));
+        }
+    }
+
+    public void onGroupDeleted(long groupId) {
+        if (enabled) {
+            AfterCommit.run(() -> apply(index -> index.removeGroup(groupId)));
+        }
+    }
+
+    public void onUserDeleted(long userId) {
+        if (enabled) {
+            AfterCommit.run(() -> apply(index -> index.removeUser(userId)));
+        }
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            change.applyTo(bitmaps);
+            if (replay != null) {
+                replay.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> T read(Function<Bitmaps, T> lookup) {
+        lock.readLock().lock();
+        try {
+            return lookup.apply(bitmaps);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private interface Change {
+        void applyTo(Bitmaps target);
+    }
+
+    // Both directions of the membership relation; every pair is in both maps
+    private static final class Bitmaps {
+        private final Map<Long, Roaring64Bitmap> membersByGroup = new HashMap<>();
+        private final Map<Long, Roaring64Bitmap> groupsByUser = new HashMap<>();
+
+        void add(long groupId, long userId) {
+            membersByGroup.computeIfAbsent(groupId, id -> new Roaring64Bitmap()).addLong(userId);
+            groupsByUser.computeIfAbsent(userId, id -> new Roaring64Bitmap()).addLong(groupId);
+        }
+
+        void remove(long groupId, long userId) {
+            removeFrom(membersByGroup, groupId, userId);
+            removeFrom(groupsByUser, userId, groupId);
+        }
+
+        void removeGroup(long groupId) {
+            Roaring64Bitmap members = membersByGroup.remove(groupId);
+            if (members != null) {
+                members.forEach(userId -> removeFrom(groupsByUser, userId, groupId));
+            }
+        }
+
+        void removeUser(long userId) {
+            Roaring64Bitmap groups = groupsByUser.remove(userId);
+            if (groups != null) {
+                groups.forEach(groupId -> removeFrom(membersByGroup, groupId, userId));
+            }
+        }
+
+        void optimize() {
+            membersByGroup.values().forEach(Roaring64Bitmap::runOptimize);
+            groupsByUser.values().forEach(Roaring64Bitmap::runOptimize);
+        }
+
+        long memberships() {
+            return membersByGroup.values().stream().mapToLong(Roaring64Bitmap::getLongCardinality).sum();
+        }
+
+        long sizeInBytes() {
+            return membersByGroup.values().stream().mapToLong(Roaring64Bitmap::getLongSizeInBytes).sum()
+                    + groupsByUser.values().stream().mapToLong(Roaring64Bitmap::getLongSizeInBytes).sum();
+        }
+
+        private static void removeFrom(Map<Long, Roaring64Bitmap> map, long key, long id) {
+            Roaring64Bitmap bitmap = map.get(key);
+            if (bitmap != null) {
+                bitmap.removeLong(id);
+                if (bitmap.isEmpty()) {
+                    map.remove(key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.settleup.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// A member's balance in a group, in one currency, at the end of a day: the running total of
+// their BalanceDeltas up to and including that day. Only days with a change have a bucket, so
+// the balance at the end of any day is the latest bucket on or before it.
+@Entity
+// The key's columns are ordered by Hibernate (bucket_date first), so lookups of a member's
+// buckets by date need their own index
+@Table(name = "balance_buckets", indexes = {
+    @Index(name = "idx_balance_bucket_member_day", columnList = "group_id, user_id, currency, bucket_date")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceBucket {
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal cumulative;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "group_id")
+        private Long groupId;
+
+        @Column(name = "user_id")
+        private Long userId;
+
+        @Column(length = 3)
+        private String currency;
+
+        @Column(name = "bucket_date")
+        private LocalDate bucketDate;
+    }
+}
@@ -0,0 +1,37 @@
+package com.settleup.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One change to a member's balance in a group, in one currency, at the time it was recorded:
+// a new split counts its amount while pending, a payment turns it negative, settling removes it.
+// Together with the daily BalanceBucket totals it answers balances as of any moment.
+@Entity
+@Table(name = "balance_deltas", indexes = {
+    @Index(name = "idx_balance_delta_member_time", columnList = "group_id, user_id, occurred_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceDelta {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal amount;
+}
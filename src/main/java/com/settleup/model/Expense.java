@@ -4,9 +4,14 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_expense_paid_by", columnList = "paid_by_id"),
+       // One expense per occurrence of a recurring expense, however often generation is attempted
+       uniqueConstraints = @UniqueConstraint(name = "uk_expense_recurring_occurrence",
+               columnNames = {"recurring_expense_id", "created_at"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -25,7 +30,47 @@ public class Expense {
     private BigDecimal amount;
     private String description;
 
+    // ISO 4217 code of the amount and of the split amounts. Null for expenses recorded before
+    // the column existed, which are in the base currency (settleup.fx.base-currency).
+    @Column(length = 3)
+    private String currency;
+
+    // Null for expenses recorded before the column existed
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // Recurring expense this is an occurrence of (created_at is the occurrence time); null for
+    // expenses entered directly. Kept when the template is deleted.
+    @Column(name = "recurring_expense_id")
+    private Long recurringExpenseId;
+
     @OneToMany(mappedBy = "expense", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonManagedReference
+    @ToString.Exclude
     private Set<Split> splits;
-} 
\ No newline at end of file
+
+    // Optimistic locking: a write based on a stale copy fails instead of overwriting
+    // a concurrent change. The default fills the column for rows that predate it.
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Identity is the id: hashing an expense must not walk its group, payer or splits
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Expense other && id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : System.identityHashCode(this);
+    }
+}
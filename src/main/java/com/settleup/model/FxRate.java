@@ -0,0 +1,36 @@
+package com.settleup.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// One currency's rate in a versioned FX snapshot: one unit of the currency is worth rate units
+// of the base currency. A snapshot is never changed once written; new rates get a new version,
+// so a query that picked a version converts with the same rates throughout.
+@Entity
+@Table(name = "fx_rates")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FxRate {
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false, precision = 18, scale = 8)
+    private BigDecimal rate;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "version")
+        private Long version;
+
+        @Column(length = 3)
+        private String currency;
+    }
+}
@@ -24,4 +24,18 @@ public class Group {
         inverseJoinColumns = @JoinColumn(name = "user_id")
     )
     private Set<User> members;
-} 
\ No newline at end of file
+
+    // Identity is the id: hashing a group must not load and hash its members
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Group other && id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : System.identityHashCode(this);
+    }
+}
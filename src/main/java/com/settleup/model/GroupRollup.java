@@ -0,0 +1,58 @@
+package com.settleup.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// Pre-aggregated spending of a group along one dimension: amount and number of items per
+// payer, member, month ("2026-10") or split status, in one currency. Maintained by
+// AnalyticsService as expenses and splits change, so analytics reads never scan expenses or splits.
+@Entity
+// The key's columns are ordered by Hibernate (currency first), so reads and updates of a
+// group's rows need their own index
+@Table(name = "group_currency_rollups", indexes = {
+    @Index(name = "idx_group_rollup_key", columnList = "group_id, currency, dimension, dim_key")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupRollup {
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "item_count", nullable = false)
+    private long itemCount;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "group_id")
+        private Long groupId;
+
+        // The expenses' currency; amounts are converted to the base currency when read
+        @Column(length = 3)
+        private String currency;
+
+        @Enumerated(EnumType.STRING)
+        @Column(length = 16)
+        private Dimension dimension;
+
+        @Column(name = "dim_key", length = 32)
+        private String dimKey;
+    }
+
+    public enum Dimension {
+        PAYER,   // expenses by the user who paid, key = user id
+        MEMBER,  // split shares by member, key = user id
+        MONTH,   // expenses by month recorded, key = yyyy-MM
+        STATUS   // split shares by status, key = PENDING / PAID / SETTLED
+    }
+}
@@ -0,0 +1,76 @@
+package com.settleup.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// Change notification written in the same transaction as the change itself and
+// delivered to OutboxConsumers afterwards by the OutboxDispatcher
+@Entity
+@Table(name = "outbox_events", indexes = {
+    @Index(name = "idx_outbox_status_id", columnList = "status, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Events of one group are delivered in id order
+    @Column(name = "group_id", nullable = false)
+    private Long groupId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false)
+    private EventType eventType;
+
+    // Id of the expense or split the event is about
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    // JSON document describing the change
+    @Column(nullable = false, length = 4000)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "dispatched_at")
+    private LocalDateTime dispatchedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (status == null) {
+            status = Status.PENDING;
+        }
+    }
+
+    public enum EventType {
+        EXPENSE_CREATED,
+        EXPENSE_UPDATED,
+        EXPENSE_DELETED,
+        SPLIT_STATUS_CHANGED,
+        SPLIT_AMOUNT_CHANGED,
+        SPLIT_DELETED
+    }
+
+    public enum Status {
+        PENDING,    // Waiting to be delivered
+        DISPATCHED, // Delivered to every consumer
+        FAILED      // Gave up after settleup.outbox.max-attempts
+    }
+}
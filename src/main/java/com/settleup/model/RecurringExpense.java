@@ -0,0 +1,110 @@
+package com.settleup.model;
+
+import com.fasterxml.jackson.annotation.JsonManagedReference;
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Template for an expense that repeats (rent, subscriptions). The RecurringScheduler turns
+// every due occurrence into an expense with one PENDING split per share, stamped with the
+// occurrence time. Lives on its group's shard, next to the expenses it generates.
+@Entity
+@Table(name = "recurring_expenses", indexes = {
+    @Index(name = "idx_recurring_next_run", columnList = "next_run_at"),
+    @Index(name = "idx_recurring_group", columnList = "group_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecurringExpense {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "group_id", nullable = false)
+    private Group group;
+
+    @ManyToOne
+    @JoinColumn(name = "paid_by_id", nullable = false)
+    private User paidBy;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    @Column(length = 3, nullable = false)
+    private String currency;
+
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "split_type", nullable = false)
+    private Split.SplitType splitType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Frequency frequency;
+
+    // Occurrence n is due at startAt plus n periods, so month ends do not drift
+    @Column(name = "start_at", nullable = false)
+    private LocalDateTime startAt;
+
+    // No occurrences after this time; null repeats forever
+    @Column(name = "end_at")
+    private LocalDateTime endAt;
+
+    // Occurrences generated so far
+    @Column(nullable = false)
+    private long occurrences;
+
+    // Due time of the next occurrence; null once the template has ended
+    @Column(name = "next_run_at")
+    private LocalDateTime nextRunAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @OneToMany(mappedBy = "recurringExpense", cascade = CascadeType.ALL, orphanRemoval = true)
+    @JsonManagedReference
+    @ToString.Exclude
+    private List<RecurringExpenseShare> shares;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Identity is the id: hashing a template must not walk its group, payer or shares
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof RecurringExpense other && id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : System.identityHashCode(this);
+    }
+
+    public enum Frequency {
+        DAILY,
+        WEEKLY,
+        MONTHLY,
+        YEARLY;
+
+        // Due time of occurrence n (0 is the first) of a template starting at start
+        public LocalDateTime occurrence(LocalDateTime start, long n) {
+            return switch (this) {
+                case DAILY -> start.plusDays(n);
+                case WEEKLY -> start.plusWeeks(n);
+                case MONTHLY -> start.plusMonths(n);
+                case YEARLY -> start.plusYears(n);
+            };
+        }
+    }
+}
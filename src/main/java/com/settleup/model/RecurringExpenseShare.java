@@ -0,0 +1,48 @@
+package com.settleup.model;
+
+import com.fasterxml.jackson.annotation.JsonBackReference;
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+
+// One participant of a recurring expense and the split amount they get in every occurrence
+@Entity
+@Table(name = "recurring_expense_shares", indexes = {
+    @Index(name = "idx_recurring_shares_template", columnList = "recurring_expense_id"),
+    @Index(name = "idx_recurring_shares_user", columnList = "user_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecurringExpenseShare {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "recurring_expense_id", nullable = false)
+    @JsonBackReference
+    private RecurringExpense recurringExpense;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    // Identity is the id, as for splits
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof RecurringExpenseShare other && id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : System.identityHashCode(this);
+    }
+}
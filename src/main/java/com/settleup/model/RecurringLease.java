@@ -0,0 +1,25 @@
+package com.settleup.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+// Lease on one partition of the recurring expense templates (group id modulo
+// settleup.recurring.partitions). Only the instance holding an unexpired lease generates the
+// partition's occurrences; it renews the lease in every batch transaction.
+@Entity
+@Table(name = "recurring_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecurringLease {
+    @Id
+    @Column(name = "partition_no")
+    private Integer partitionNo;
+
+    @Column(nullable = false, length = 64)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+}
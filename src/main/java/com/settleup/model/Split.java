@@ -9,7 +9,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "splits")
+@Table(name = "splits", indexes = {
+    @Index(name = "idx_splits_user_status", columnList = "user_id, status"),
+    @Index(name = "idx_splits_expense_status", columnList = "expense_id, status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -52,6 +55,12 @@ public class Split {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Bumped on every update so concurrent status/amount changes cannot silently overwrite
+    // each other; existing rows start at 0
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -62,6 +71,21 @@ public class Split {
         updatedAt = LocalDateTime.now();
     }
 
+    // Identity is the id: hashing a split must not walk its expense or user, and stays the
+    // same when its amount or status changes. Splits are saved before they go into a set.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Split other && id != null && id.equals(other.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : System.identityHashCode(this);
+    }
+
     public enum SplitType {
         EQUAL,      // Equal split among all members
         PERCENTAGE, // Split based on percentage
@@ -74,4 +98,4 @@ public class Split {
         PAID,       // User has paid their share
         SETTLED     // Split has been settled through a payment
     }
-} 
\ No newline at end of file
+}
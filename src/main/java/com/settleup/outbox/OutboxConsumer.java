@@ -0,0 +1,10 @@
+package com.settleup.outbox;
+
+import com.settleup.model.OutboxEvent;
+
+// In-process sink for outbox events; every bean of this type receives every event.
+// Delivery is at least once, so handling the same event id twice must be harmless.
+// Throwing makes the dispatcher retry the event (and hold back later events of its group).
+public interface OutboxConsumer {
+    void accept(OutboxEvent event);
+}
@@ -0,0 +1,203 @@
+package com.settleup.outbox;
+
+import com.settleup.model.OutboxEvent;
+import com.settleup.repository.OutboxEventRepository;
+import com.settleup.sharding.ShardRouter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains the outbox: every poll reads a batch of pending events per shard, oldest first,
+// hands each group's events in order to the same delivery thread and marks the delivered ones.
+// A failed event holds back the rest of its group's batch and is retried on the next poll,
+// so events are delivered at least once and in order per group.
+//
+// Same-group writes are serialized until commit (GroupWriteAspect), so a group's events become
+// visible in id order. Run a single dispatching instance per database: the claim is not
+// shared between instances.
+@Component
+public class OutboxDispatcher {
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectProvider<OutboxConsumer> consumers;
+    private final OutboxProperties properties;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transaction;
+    private final ThreadPoolExecutor workers;
+
+    private final Counter dispatched;
+    private final Counter failed;
+    private final Timer deliveryLag;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong oldestPendingSeconds = new AtomicLong();
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            ObjectProvider<OutboxConsumer> consumers,
+                            OutboxProperties properties,
+                            ShardRouter shardRouter,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.consumers = consumers;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+        this.transaction = new TransactionTemplate(transactionManager);
+        // One task per worker and poll, so the queue never needs more room than that
+        int threads = Math.max(1, properties.getWorkers());
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.dispatched = Counter.builder("settleup.outbox.dispatched")
+                .description("Outbox events delivered to all consumers")
+                .register(meterRegistry);
+        this.failed = Counter.builder("settleup.outbox.failed")
+                .description("Outbox deliveries that threw")
+                .register(meterRegistry);
+        this.deliveryLag = Timer.builder("settleup.outbox.delivery.lag")
+                .description("Time from recording an outbox event to delivering it")
+                .register(meterRegistry);
+        Gauge.builder("settleup.outbox.pending", pending, AtomicLong::get)
+                .description("Undelivered outbox events at the last poll")
+                .register(meterRegistry);
+        Gauge.builder("settleup.outbox.lag.seconds", oldestPendingSeconds, AtomicLong::get)
+                .description("Age of the oldest undelivered outbox event at the last poll")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${settleup.outbox.poll-interval-ms:500}")
+    public void poll() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        AtomicLong pendingTotal = new AtomicLong();
+        AtomicLong oldest = new AtomicLong();
+        shardRouter.forEachShard(() -> {
+            long age = drainBatch();
+            oldest.accumulateAndGet(age, Math::max);
+            pendingTotal.addAndGet(outboxEventRepository.countByStatus(OutboxEvent.Status.PENDING));
+        });
+        pending.set(pendingTotal.get());
+        oldestPendingSeconds.set(oldest.get());
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purgeDispatched() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(properties.getRetentionHours());
+        shardRouter.forEachShard(() -> transaction.executeWithoutResult(status ->
+                outboxEventRepository.deleteDispatchedBefore(cutoff)));
+    }
+
+    // Delivers one batch from the current shard; returns the age in seconds of its oldest event
+    private long drainBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.findPending(PageRequest.of(0, properties.getBatchSize()));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long age = Duration.between(batch.get(0).getCreatedAt(), LocalDateTime.now()).toSeconds();
+
+        // Partition by group so each group's events stay in order on one thread
+        int partitions = workers.getMaximumPoolSize();
+        List<List<OutboxEvent>> byWorker = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            byWorker.add(new ArrayList<>());
+        }
+        for (OutboxEvent event : batch) {
+            byWorker.get(Math.floorMod(Long.hashCode(event.getGroupId()), partitions)).add(event);
+        }
+
+        List<OutboxConsumer> sinks = consumers.orderedStream().toList();
+        ConcurrentLinkedQueue<Long> delivered = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (List<OutboxEvent> events : byWorker) {
+            if (!events.isEmpty()) {
+                tasks.add(workers.submit(() -> deliver(events, sinks, delivered, failures)));
+            }
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return age;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Outbox delivery task failed", e.getCause());
+            }
+        }
+
+        transaction.executeWithoutResult(status -> {
+            if (!delivered.isEmpty()) {
+                outboxEventRepository.markDispatched(delivered, LocalDateTime.now());
+            }
+            for (Failure failure : failures) {
+                outboxEventRepository.findById(failure.eventId()).ifPresent(event -> {
+                    event.setAttempts(event.getAttempts() + 1);
+                    event.setLastError(truncate(failure.error()));
+                    if (event.getAttempts() >= properties.getMaxAttempts()) {
+                        event.setStatus(OutboxEvent.Status.FAILED);
+                    }
+                });
+            }
+        });
+        return age;
+    }
+
+    private void deliver(List<OutboxEvent> events, List<OutboxConsumer> sinks, ConcurrentLinkedQueue<Long> delivered,
+                         ConcurrentLinkedQueue<Failure> failures) {
+        Set<Long> blockedGroups = new HashSet<>();
+        for (OutboxEvent event : events) {
+            if (blockedGroups.contains(event.getGroupId())) {
+                continue;
+            }
+            try {
+                for (OutboxConsumer consumer : sinks) {
+                    consumer.accept(event);
+                }
+                delivered.add(event.getId());
+                dispatched.increment();
+                deliveryLag.record(Duration.between(event.getCreatedAt(), LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                blockedGroups.add(event.getGroupId());
+                failures.add(new Failure(event.getId(), e.toString()));
+                failed.increment();
+            }
+        }
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= 1000 ? error : error.substring(0, 1000);
+    }
+
+    private record Failure(long eventId, String error) {
+    }
+
+    @PreDestroy
+    public void close() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,23 @@
+package com.settleup.outbox;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Transactional outbox (settleup.outbox.*)
+@Data
+@ConfigurationProperties(prefix = "settleup.outbox")
+public class OutboxProperties {
+    // Record events with expense and split changes and dispatch them
+    private boolean enabled = false;
+
+    private long pollIntervalMs = 500;
+    private int batchSize = 200;
+
+    // Delivery threads; a group's events always go to the same thread
+    private int workers = 4;
+
+    // Deliveries per event before it is marked FAILED so later events of its group can proceed
+    private int maxAttempts = 10;
+
+    private int retentionHours = 72;
+}
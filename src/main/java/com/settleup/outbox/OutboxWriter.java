@@ -0,0 +1,109 @@
+package com.settleup.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.settleup.model.Expense;
+import com.settleup.model.OutboxEvent;
+import com.settleup.model.Split;
+import com.settleup.repository.OutboxEventRepository;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Records outbox events. Must run inside the transaction that makes the change, so the
+// event is committed (or rolled back) together with it.
+@Component
+public class OutboxWriter {
+    // Ordering key for expenses without a group; group ids start at 1
+    static final long NO_GROUP = 0L;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public OutboxWriter(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper,
+                        OutboxProperties properties) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = properties.isEnabled();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void expenseCreated(Expense expense) {
+        record(groupId(expense), OutboxEvent.EventType.EXPENSE_CREATED, expense.getId(), expensePayload(expense));
+    }
+
+    // Expenses written by set-based inserts, recorded with one saveAll
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void expensesCreated(Collection<Expense> expenses) {
+        if (!enabled || expenses.isEmpty()) {
+            return;
+        }
+        outboxEventRepository.saveAll(expenses.stream()
+                .map(expense -> event(groupId(expense), OutboxEvent.EventType.EXPENSE_CREATED, expense.getId(),
+                        expensePayload(expense)))
+                .toList());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void expenseUpdated(Expense expense) {
+        record(groupId(expense), OutboxEvent.EventType.EXPENSE_UPDATED, expense.getId(), expensePayload(expense));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void expenseDeleted(Expense expense) {
+        record(groupId(expense), OutboxEvent.EventType.EXPENSE_DELETED, expense.getId(), expensePayload(expense));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void splitChanged(Split split, OutboxEvent.EventType eventType) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("splitId", split.getId());
+        payload.put("expenseId", split.getExpense().getId());
+        payload.put("userId", split.getUser().getId());
+        payload.put("amount", split.getAmount());
+        payload.put("status", split.getStatus());
+        record(groupId(split.getExpense()), eventType, split.getId(), payload);
+    }
+
+    private static long groupId(Expense expense) {
+        return expense.getGroup() == null ? NO_GROUP : expense.getGroup().getId();
+    }
+
+    private Map<String, Object> expensePayload(Expense expense) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("expenseId", expense.getId());
+        payload.put("groupId", expense.getGroup() == null ? null : expense.getGroup().getId());
+        payload.put("paidById", expense.getPaidBy() == null ? null : expense.getPaidBy().getId());
+        payload.put("amount", expense.getAmount());
+        payload.put("currency", expense.getCurrency());
+        payload.put("description", expense.getDescription());
+        payload.put("splits", expense.getSplits() == null ? 0 : expense.getSplits().size());
+        return payload;
+    }
+
+    private void record(Long groupId, OutboxEvent.EventType eventType, Long aggregateId, Map<String, Object> payload) {
+        if (enabled) {
+            outboxEventRepository.save(event(groupId, eventType, aggregateId, payload));
+        }
+    }
+
+    private OutboxEvent event(Long groupId, OutboxEvent.EventType eventType, Long aggregateId, Map<String, Object> payload) {
+        try {
+            return OutboxEvent.builder()
+                    .groupId(groupId)
+                    .eventType(eventType)
+                    .aggregateId(aggregateId)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .status(OutboxEvent.Status.PENDING)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize outbox payload", e);
+        }
+    }
+}
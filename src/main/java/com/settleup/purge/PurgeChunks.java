@@ -0,0 +1,103 @@
+package com.settleup.purge;
+
+import com.settleup.concurrency.GroupWrite;
+import com.settleup.repository.PurgeRepository;
+import com.settleup.search.ExpenseSearchIndex;
+import com.settleup.service.AnalyticsService;
+import com.settleup.service.BalanceHistoryService;
+import com.settleup.service.LedgerService;
+import com.settleup.sharding.ShardKey;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// One chunk of a purge per call: its own short transaction on the group's shard, under the
+// group's write lock, so live writes to the group wait for at most one chunk.
+@Component
+public class PurgeChunks {
+    private final PurgeRepository purgeRepository;
+    private final LedgerService ledgerService;
+    private final AnalyticsService analyticsService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final ExpenseSearchIndex expenseSearchIndex;
+
+    public PurgeChunks(PurgeRepository purgeRepository,
+                       LedgerService ledgerService,
+                       AnalyticsService analyticsService,
+                       BalanceHistoryService balanceHistoryService,
+                       ExpenseSearchIndex expenseSearchIndex) {
+        this.purgeRepository = purgeRepository;
+        this.ledgerService = ledgerService;
+        this.analyticsService = analyticsService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.expenseSearchIndex = expenseSearchIndex;
+    }
+
+    // Stops the group's recurring expenses first, so no new occurrences appear during the purge
+    @Transactional
+    public int deleteGroupRecurringExpenses(@ShardKey(ShardKey.Type.GROUP) Long groupId) {
+        return purgeRepository.deleteRecurringExpensesInGroup(groupId);
+    }
+
+    // Deletes up to chunkSize of the group's expenses with their splits
+    @GroupWrite
+    @Transactional
+    public Deleted deleteGroupExpenses(@ShardKey(ShardKey.Type.GROUP) Long groupId, int chunkSize) {
+        List<Long> expenseIds = purgeRepository.findExpenseIdsInGroup(groupId, chunkSize);
+        int splits = purgeRepository.deleteExpenses(expenseIds);
+        expenseSearchIndex.onExpensesPurged(groupId, expenseIds);
+        return new Deleted(expenseIds.size(), splits);
+    }
+
+    // Drops what is kept about the group once it has no expenses left; false if some were added meanwhile
+    @GroupWrite
+    @Transactional
+    public boolean finishGroup(@ShardKey(ShardKey.Type.GROUP) Long groupId) {
+        if (!purgeRepository.findExpenseIdsInGroup(groupId, 1).isEmpty()) {
+            return false;
+        }
+        analyticsService.onGroupPurged(groupId);
+        balanceHistoryService.onGroupPurged(groupId);
+        ledgerService.evictGroup(groupId);
+        return true;
+    }
+
+    // Deletes up to chunkSize expenses the user paid in the group, or once there are none,
+    // up to chunkSize of the user's splits in the group's other expenses
+    @GroupWrite
+    @Transactional
+    public Deleted deleteUserInGroup(@ShardKey(ShardKey.Type.GROUP) Long groupId, Long userId, int chunkSize) {
+        List<Long> expenseIds = purgeRepository.findExpenseIdsPaidBy(groupId, userId, chunkSize);
+        Deleted deleted;
+        if (!expenseIds.isEmpty()) {
+            deleted = new Deleted(expenseIds.size(), purgeRepository.deleteExpenses(expenseIds));
+            expenseSearchIndex.onExpensesPurged(groupId, expenseIds);
+        } else {
+            deleted = new Deleted(0, purgeRepository.deleteSplits(
+                    purgeRepository.findSplitIdsOfUserInGroup(groupId, userId, chunkSize)));
+        }
+        if (!deleted.isEmpty()) {
+            ledgerService.evictGroup(groupId);
+        }
+        return deleted;
+    }
+
+    // Same for the user's expenses and splits without a group, on the shard the caller is on.
+    // Nothing is kept per group about them, and no group lock covers them.
+    @Transactional
+    public Deleted deleteUserWithoutGroup(Long userId, int chunkSize) {
+        List<Long> expenseIds = purgeRepository.findUngroupedExpenseIdsPaidBy(userId, chunkSize);
+        if (!expenseIds.isEmpty()) {
+            return new Deleted(expenseIds.size(), purgeRepository.deleteExpenses(expenseIds));
+        }
+        return new Deleted(0, purgeRepository.deleteSplits(purgeRepository.findUngroupedSplitIdsOfUser(userId, chunkSize)));
+    }
+
+    public record Deleted(int expenses, int splits) {
+        boolean isEmpty() {
+            return expenses == 0 && splits == 0;
+        }
+    }
+}
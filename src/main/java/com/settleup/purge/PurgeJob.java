@@ -0,0 +1,61 @@
+package com.settleup.purge;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Progress of one purge, updated by the purge thread and read by status requests
+@Getter
+public class PurgeJob {
+    private final long id;
+    private final Target target;
+    private final long targetId;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final AtomicLong chunks = new AtomicLong();
+    private final AtomicLong expensesDeleted = new AtomicLong();
+    private final AtomicLong splitsDeleted = new AtomicLong();
+    private final AtomicLong membershipsDeleted = new AtomicLong();
+    private volatile State state = State.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    PurgeJob(long id, Target target, long targetId) {
+        this.id = id;
+        this.target = target;
+        this.targetId = targetId;
+    }
+
+    void started() {
+        startedAt = LocalDateTime.now();
+        state = State.RUNNING;
+    }
+
+    void finished() {
+        finishedAt = LocalDateTime.now();
+        state = State.DONE;
+    }
+
+    void failed(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        state = State.FAILED;
+    }
+
+    boolean isActive() {
+        return state == State.QUEUED || state == State.RUNNING;
+    }
+
+    public enum Target {
+        GROUP,  // the group, its recurring expenses, expenses, splits, memberships and rollups
+        USER    // the user, expenses they paid, splits they owe, their recurring expenses and shares, and their memberships
+    }
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+}
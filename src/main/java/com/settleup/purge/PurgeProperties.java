@@ -0,0 +1,18 @@
+package com.settleup.purge;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Background deletion of groups and users (settleup.purge.*)
+@Data
+@ConfigurationProperties(prefix = "settleup.purge")
+public class PurgeProperties {
+    // Expenses, splits or memberships deleted per transaction
+    private int chunkSize = 500;
+
+    // Pause between chunks, leaving the database and the group lock to live traffic
+    private long pauseMs = 20;
+
+    // Finished jobs kept for status queries
+    private int keepFinished = 100;
+}
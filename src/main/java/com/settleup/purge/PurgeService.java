@@ -0,0 +1,222 @@
+package com.settleup.purge;
+
+import com.settleup.membership.MembershipIndex;
+import com.settleup.repository.PurgeRepository;
+import com.settleup.service.AnalyticsService;
+import com.settleup.service.BalanceHistoryService;
+import com.settleup.sharding.ReferenceDataReplicator;
+import com.settleup.sharding.ShardRouter;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+// Deletes groups and users with everything that references them, in the background and in
+// chunks: expenses and splits per group on the group's shard (a user's expenses without a
+// group on every shard), then memberships and the row itself on the global database. Jobs run one at a time; progress is kept in memory.
+//
+// A write that adds an expense while the purge is finishing makes the final delete fail on
+// its foreign key; the purge then goes around again, up to MAX_PASSES times.
+@Service
+public class PurgeService {
+    private static final int MAX_PASSES = 3;
+
+    private final PurgeChunks purgeChunks;
+    private final PurgeRepository purgeRepository;
+    private final AnalyticsService analyticsService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final ReferenceDataReplicator referenceDataReplicator;
+    private final MembershipIndex membershipIndex;
+    private final ShardRouter shardRouter;
+    private final PurgeProperties properties;
+    private final TransactionTemplate transaction;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, PurgeJob> jobs = new LinkedHashMap<>();
+
+    public PurgeService(PurgeChunks purgeChunks,
+                        PurgeRepository purgeRepository,
+                        AnalyticsService analyticsService,
+                        BalanceHistoryService balanceHistoryService,
+                        ReferenceDataReplicator referenceDataReplicator,
+                        MembershipIndex membershipIndex,
+                        ShardRouter shardRouter,
+                        PurgeProperties properties,
+                        PlatformTransactionManager transactionManager) {
+        this.purgeChunks = purgeChunks;
+        this.purgeRepository = purgeRepository;
+        this.analyticsService = analyticsService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.referenceDataReplicator = referenceDataReplicator;
+        this.membershipIndex = membershipIndex;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    // Queues a purge, or returns the one already queued or running for the same target
+    public PurgeJob submit(PurgeJob.Target target, long targetId) {
+        PurgeJob job;
+        synchronized (jobs) {
+            for (PurgeJob existing : jobs.values()) {
+                if (existing.getTarget() == target && existing.getTargetId() == targetId && existing.isActive()) {
+                    return existing;
+                }
+            }
+            job = new PurgeJob(ids.incrementAndGet(), target, targetId);
+            jobs.put(job.getId(), job);
+            trimFinished();
+        }
+        executor.execute(() -> run(job));
+        return job;
+    }
+
+    public Optional<PurgeJob> getJob(long id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    public List<PurgeJob> getJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    private void run(PurgeJob job) {
+        job.started();
+        System.out.println("Purge " + job.getId() + ": deleting " + job.getTarget().name().toLowerCase()
+                + " " + job.getTargetId());
+        try {
+            for (int pass = 1; ; pass++) {
+                try {
+                    if (job.getTarget() == PurgeJob.Target.GROUP) {
+                        purgeGroup(job);
+                    } else {
+                        purgeUser(job);
+                    }
+                    break;
+                } catch (DataIntegrityViolationException e) {
+                    if (pass == MAX_PASSES) {
+                        throw e;
+                    }
+                }
+            }
+            job.finished();
+            System.out.println("Purge " + job.getId() + " finished: " + job.getExpensesDeleted() + " expenses, "
+                    + job.getSplitsDeleted() + " splits, " + job.getMembershipsDeleted() + " memberships in "
+                    + job.getChunks() + " chunks");
+        } catch (RuntimeException e) {
+            job.failed(e.getMessage());
+            System.err.println("Purge " + job.getId() + " failed: " + e.getMessage());
+        }
+    }
+
+    private void purgeGroup(PurgeJob job) {
+        long groupId = job.getTargetId();
+        purgeChunks.deleteGroupRecurringExpenses(groupId);
+        do {
+            drain(job, () -> record(job, purgeChunks.deleteGroupExpenses(groupId, properties.getChunkSize())));
+        } while (!purgeChunks.finishGroup(groupId));
+
+        drain(job, () -> countMemberships(job, transaction.execute(status ->
+                purgeRepository.deleteGroupMemberships(groupId, properties.getChunkSize()))));
+        transaction.executeWithoutResult(status -> purgeRepository.deleteGroup(groupId));
+        referenceDataReplicator.deleteGroup(groupId);
+        membershipIndex.onGroupDeleted(groupId);
+    }
+
+    private void purgeUser(PurgeJob job) {
+        long userId = job.getTargetId();
+        Set<Long> groupIds = new TreeSet<>();
+        shardRouter.forEachShard(() -> {
+            transaction.executeWithoutResult(status -> purgeRepository.deleteRecurringExpensesOfUser(userId));
+            drain(job, () -> record(job, purgeChunks.deleteUserWithoutGroup(userId, properties.getChunkSize())));
+            groupIds.addAll(purgeRepository.findGroupIdsInvolvingUser(userId));
+        });
+        for (Long groupId : groupIds) {
+            drain(job, () -> record(job, purgeChunks.deleteUserInGroup(groupId, userId, properties.getChunkSize())));
+            if (analyticsService.isEnabled()) {
+                analyticsService.rebuildGroup(groupId);
+            }
+            if (balanceHistoryService.isEnabled()) {
+                balanceHistoryService.rebuildGroup(groupId);
+            }
+        }
+
+        drain(job, () -> countMemberships(job, transaction.execute(status ->
+                purgeRepository.deleteUserMemberships(userId, properties.getChunkSize()))));
+        transaction.executeWithoutResult(status -> purgeRepository.deleteUser(userId));
+        referenceDataReplicator.deleteUser(userId);
+        membershipIndex.onUserDeleted(userId);
+    }
+
+    // Runs chunks until one deletes nothing, pausing between them
+    private void drain(PurgeJob job, IntSupplier chunk) {
+        while (chunk.getAsInt() > 0) {
+            long chunks = job.getChunks().incrementAndGet();
+            if (chunks % 20 == 0) {
+                System.out.println("Purge " + job.getId() + ": " + job.getExpensesDeleted() + " expenses, "
+                        + job.getSplitsDeleted() + " splits deleted so far");
+            }
+            pause();
+        }
+    }
+
+    private static int record(PurgeJob job, PurgeChunks.Deleted deleted) {
+        job.getExpensesDeleted().addAndGet(deleted.expenses());
+        job.getSplitsDeleted().addAndGet(deleted.splits());
+        return deleted.expenses() + deleted.splits();
+    }
+
+    private static int countMemberships(PurgeJob job, Integer deleted) {
+        job.getMembershipsDeleted().addAndGet(deleted);
+        return deleted;
+    }
+
+    private void pause() {
+        if (properties.getPauseMs() > 0) {
+            try {
+                Thread.sleep(properties.getPauseMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Purge interrupted", e);
+            }
+        }
+    }
+
+    private void trimFinished() {
+        int finished = (int) jobs.values().stream().filter(job -> !job.isActive()).count();
+        Iterator<PurgeJob> iterator = jobs.values().iterator();
+        while (finished > properties.getKeepFinished() && iterator.hasNext()) {
+            if (!iterator.next().isActive()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+}
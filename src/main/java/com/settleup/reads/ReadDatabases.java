@@ -0,0 +1,71 @@
+package com.settleup.reads;
+
+import com.settleup.sharding.ShardRouter;
+import com.settleup.sharding.ShardingProperties;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// R2DBC clients for the non-blocking split reads: the main database (spring.r2dbc.*) and, with
+// sharding, one per shard (settleup.sharding.shards[].r2dbc-url) in the order of ShardRouter's
+// shards. A query waiting on one of these holds neither a request thread nor a JDBC connection.
+@Component
+public class ReadDatabases {
+    private final ShardRouter shardRouter;
+    private final DatabaseClient main;
+    private final List<ConnectionFactory> shardConnectionFactories = new ArrayList<>();
+    private final List<DatabaseClient> shards = new ArrayList<>();
+
+    public ReadDatabases(ConnectionFactory connectionFactory, ShardingProperties properties, ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+        this.main = DatabaseClient.create(connectionFactory);
+        if (shardRouter.isEnabled()) {
+            for (ShardingProperties.Shard shard : properties.getShards()) {
+                if (shard.getR2dbcUrl() == null) {
+                    throw new IllegalStateException("settleup.sharding.shards[].r2dbc-url is required with sharding enabled");
+                }
+                ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(shard.getR2dbcUrl()).mutate();
+                if (shard.getUsername() != null) {
+                    options.option(ConnectionFactoryOptions.USER, shard.getUsername());
+                }
+                if (shard.getPassword() != null) {
+                    options.option(ConnectionFactoryOptions.PASSWORD, shard.getPassword());
+                }
+                ConnectionFactory shardConnectionFactory = ConnectionFactories.get(options.build());
+                shardConnectionFactories.add(shardConnectionFactory);
+                shards.add(DatabaseClient.create(shardConnectionFactory));
+            }
+        }
+    }
+
+    // Users and groups
+    public DatabaseClient main() {
+        return main;
+    }
+
+    // Expenses and splits of a group
+    public DatabaseClient forGroup(long groupId) {
+        return shardRouter.isEnabled() ? shards.get(shardRouter.shardForGroup(groupId)) : main;
+    }
+
+    // Every database holding expenses and splits, for cross-group reads
+    public List<DatabaseClient> all() {
+        return shardRouter.isEnabled() ? shards : List.of(main);
+    }
+
+    @PreDestroy
+    public void close() {
+        for (ConnectionFactory connectionFactory : shardConnectionFactories) {
+            if (connectionFactory instanceof Disposable disposable) {
+                disposable.dispose();
+            }
+        }
+    }
+}
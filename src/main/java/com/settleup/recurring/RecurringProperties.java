@@ -0,0 +1,33 @@
+package com.settleup.recurring;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Recurring expense scheduler (settleup.recurring.*)
+@Data
+@ConfigurationProperties(prefix = "settleup.recurring")
+public class RecurringProperties {
+    // Generate due occurrences on this instance
+    private boolean enabled = true;
+
+    private long pollIntervalMs = 60_000;
+
+    // Templates are split into this many partitions by group id, each leased to one instance
+    // at a time. Must be the same on every instance.
+    private int partitions = 16;
+
+    // Partitions worked on in parallel by this instance, each holding one connection at a time
+    private int threads = 2;
+
+    // Templates per batch transaction; each becomes one expense with all its splits
+    private int batchSize = 500;
+
+    // How long a claimed partition stays ours without a renewal; every batch renews it
+    private long leaseMs = 60_000;
+
+    // Pause between batches, leaving the connection pool to live traffic
+    private long pauseMs = 10;
+
+    // Attempts per batch when it collides with a concurrent write (rollup rows, deadlocks)
+    private int maxAttempts = 3;
+}
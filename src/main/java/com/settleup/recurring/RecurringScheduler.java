@@ -0,0 +1,254 @@
+package com.settleup.recurring;
+
+import com.settleup.dto.RecurringRunResult;
+import com.settleup.model.Expense;
+import com.settleup.outbox.OutboxWriter;
+import com.settleup.repository.RecurringLeaseRepository;
+import com.settleup.repository.RecurringOccurrenceRepository;
+import com.settleup.repository.RecurringOccurrenceRepository.Due;
+import com.settleup.search.ExpenseSearchIndex;
+import com.settleup.service.AnalyticsService;
+import com.settleup.service.BalanceHistoryService;
+import com.settleup.service.LedgerService;
+import com.settleup.sharding.ShardContext;
+import com.settleup.sharding.ShardRouter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Generates the due occurrences of recurring expenses. Templates are partitioned by group id;
+// every run walks the partitions of every shard, claims the ones no other instance holds and
+// drains each in batch transactions of settleup.recurring.batch-size templates: set-based inserts
+// of one expense per template and all their splits, the templates moved on to their next
+// occurrence, and the rollups, balance history, search index, outbox and ledger told in bulk. A template that is
+// several occurrences behind catches up one occurrence per batch.
+//
+// Each batch first renews the partition's lease, so a batch only commits while the lease is
+// ours; the unique (recurring_expense_id, created_at) key on expense backs this up.
+// Batches do not take the group write locks; a collision with a live write on the same rollup
+// or balance bucket row fails the batch, which is retried.
+@Component
+public class RecurringScheduler {
+    private final RecurringOccurrenceRepository occurrenceRepository;
+    private final RecurringLeaseRepository leaseRepository;
+    private final AnalyticsService analyticsService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final ExpenseSearchIndex expenseSearchIndex;
+    private final OutboxWriter outboxWriter;
+    private final LedgerService ledgerService;
+    private final ShardRouter shardRouter;
+    private final RecurringProperties properties;
+    private final TransactionTemplate transaction;
+    private final ExecutorService workers;
+    private final String owner = UUID.randomUUID().toString();
+    private final Counter generated;
+
+    public RecurringScheduler(RecurringOccurrenceRepository occurrenceRepository,
+                              RecurringLeaseRepository leaseRepository,
+                              AnalyticsService analyticsService,
+                              BalanceHistoryService balanceHistoryService,
+                              ExpenseSearchIndex expenseSearchIndex,
+                              OutboxWriter outboxWriter,
+                              LedgerService ledgerService,
+                              ShardRouter shardRouter,
+                              RecurringProperties properties,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.occurrenceRepository = occurrenceRepository;
+        this.leaseRepository = leaseRepository;
+        this.analyticsService = analyticsService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.expenseSearchIndex = expenseSearchIndex;
+        this.outboxWriter = outboxWriter;
+        this.ledgerService = ledgerService;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.transaction = new TransactionTemplate(transactionManager);
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, properties.getThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "recurring-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.generated = Counter.builder("settleup.recurring.generated")
+                .description("Expenses generated from recurring expenses")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${settleup.recurring.poll-interval-ms:60000}")
+    public void poll() {
+        if (properties.isEnabled()) {
+            run();
+        }
+    }
+
+    // Generates everything due now in the partitions this instance can claim
+    public synchronized RecurringRunResult run() {
+        long started = System.currentTimeMillis();
+        RecurringRunResult result = new RecurringRunResult();
+        Totals totals = new Totals();
+
+        // Start at a random partition, so instances polling at the same time spread out
+        int partitions = properties.getPartitions();
+        int offset = ThreadLocalRandom.current().nextInt(partitions);
+        List<Integer> shards = new ArrayList<>();
+        if (shardRouter.isEnabled()) {
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                shards.add(shard);
+            }
+        } else {
+            shards.add(null);
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            int partition = (offset + i) % partitions;
+            for (Integer shard : shards) {
+                tasks.add(() -> {
+                    drainPartition(shard, partition, totals);
+                    return null;
+                });
+            }
+        }
+        try {
+            for (Future<Void> task : workers.invokeAll(tasks)) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Recurring expense generation failed", e.getCause());
+        }
+
+        result.setPartitions(totals.claimed.get());
+        result.setPartitionsHeldElsewhere(totals.heldElsewhere.get());
+        result.setExpenses(totals.expenses.get());
+        result.setSplits(totals.splits.get());
+        result.setBatches(totals.batches.get());
+        result.setMillis(System.currentTimeMillis() - started);
+        if (result.getExpenses() > 0) {
+            System.out.println("Recurring expenses: " + result.getExpenses() + " occurrences with " + result.getSplits()
+                    + " splits generated in " + result.getBatches() + " batches, " + result.getMillis() + " ms");
+        }
+        return result;
+    }
+
+    private void drainPartition(Integer shard, int partition, Totals totals) {
+        Integer previous = ShardContext.enter(shard);
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (!leaseRepository.claim(partition, owner, now, leaseUntil(now))) {
+                totals.heldElsewhere.incrementAndGet();
+                return;
+            }
+            totals.claimed.incrementAndGet();
+            try {
+                Batch batch;
+                while ((batch = generateWithRetry(partition)).expenses() > 0) {
+                    totals.expenses.addAndGet(batch.expenses());
+                    totals.splits.addAndGet(batch.splits());
+                    totals.batches.incrementAndGet();
+                    generated.increment(batch.expenses());
+                    pause();
+                }
+            } finally {
+                leaseRepository.release(partition, owner, LocalDateTime.now());
+            }
+        } catch (RuntimeException e) {
+            // Left for the next run; the other partitions carry on
+            System.err.println("Recurring expenses: partition " + partition
+                    + (shard == null ? "" : " on shard " + shard) + " failed: " + e.getMessage());
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    private Batch generateWithRetry(int partition) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.execute(status -> generateBatch(partition));
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                if (attempt >= Math.max(1, properties.getMaxAttempts())) {
+                    throw e;
+                }
+                pause();
+            }
+        }
+    }
+
+    // One batch transaction; no expenses when nothing is due or the lease was lost
+    private Batch generateBatch(int partition) {
+        LocalDateTime now = LocalDateTime.now();
+        // Holds the lease row until commit, so no other instance can claim the partition meanwhile
+        if (!leaseRepository.renew(partition, owner, leaseUntil(now))) {
+            return Batch.NONE;
+        }
+        List<Due> due = occurrenceRepository.findDue(now, properties.getPartitions(), partition, properties.getBatchSize());
+        if (due.isEmpty()) {
+            return Batch.NONE;
+        }
+        List<Long> templateIds = due.stream().map(Due::id).toList();
+        int splits = occurrenceRepository.insertOccurrences(templateIds);
+        List<Expense> expenses = occurrenceRepository.findOccurrences(templateIds);
+        occurrenceRepository.advance(due);
+
+        analyticsService.onExpensesCreated(expenses);
+        balanceHistoryService.onExpensesCreated(expenses);
+        expenseSearchIndex.onExpensesSaved(expenses);
+        outboxWriter.expensesCreated(expenses);
+        due.stream().map(Due::groupId).distinct().forEach(ledgerService::evictGroup);
+        return new Batch(expenses.size(), splits);
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plus(Duration.ofMillis(properties.getLeaseMs()));
+    }
+
+    private void pause() {
+        if (properties.getPauseMs() > 0) {
+            try {
+                Thread.sleep(properties.getPauseMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Recurring expense generation interrupted", e);
+            }
+        }
+    }
+
+    private record Batch(int expenses, int splits) {
+        static final Batch NONE = new Batch(0, 0);
+    }
+
+    private static class Totals {
+        final AtomicInteger claimed = new AtomicInteger();
+        final AtomicInteger heldElsewhere = new AtomicInteger();
+        final AtomicLong expenses = new AtomicLong();
+        final AtomicLong splits = new AtomicLong();
+        final AtomicLong batches = new AtomicLong();
+    }
+
+    @PreDestroy
+    public void close() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,130 @@
+package com.settleup.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Balance history: the balance_deltas journal and the daily running totals in balance_buckets.
+// Writes run in the caller's transaction; a balance as of any moment is the latest bucket before
+// its day plus that day's deltas up to the moment.
+@Repository
+public class BalanceHistoryRepository {
+    private static final String INSERT_DELTA =
+            "INSERT INTO balance_deltas (group_id, user_id, currency, occurred_at, amount) VALUES (?, ?, ?, ?, ?)";
+    // The day's bucket and every later one include the delta
+    private static final String ADD_TO_BUCKETS = "UPDATE balance_buckets SET cumulative = cumulative + ? "
+            + "WHERE group_id = ? AND user_id = ? AND currency = ? AND bucket_date >= ?";
+    // A day without a bucket starts from the previous bucket, which ADD_TO_BUCKETS left alone
+    private static final String INSERT_BUCKET =
+            "INSERT INTO balance_buckets (group_id, user_id, currency, bucket_date, cumulative) "
+                    + "SELECT ?, ?, ?, ?, COALESCE((SELECT p.cumulative FROM balance_buckets p "
+                    + "WHERE p.group_id = ? AND p.user_id = ? AND p.currency = ? AND p.bucket_date < ? "
+                    + "ORDER BY p.bucket_date DESC LIMIT 1), 0) + ? "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM balance_buckets b "
+                    + "WHERE b.group_id = ? AND b.user_id = ? AND b.currency = ? AND b.bucket_date = ?)";
+
+    private static final String BALANCE_AT = "SELECT x.currency, SUM(x.amount) AS amount FROM ("
+            + "SELECT b.currency, b.cumulative AS amount FROM balance_buckets b "
+            + "WHERE b.group_id = ? AND b.user_id = ? AND b.bucket_date = (SELECT MAX(p.bucket_date) FROM balance_buckets p "
+            + "WHERE p.group_id = b.group_id AND p.user_id = b.user_id AND p.currency = b.currency AND p.bucket_date < ?) "
+            + "UNION ALL "
+            + "SELECT d.currency, d.amount FROM balance_deltas d "
+            + "WHERE d.group_id = ? AND d.user_id = ? AND d.occurred_at >= ? AND d.occurred_at <= ?"
+            + ") x GROUP BY x.currency";
+
+    // Reconstructed from the splits as they are now: each split counts from its creation, and a
+    // paid or settled one changes at its last update. Earlier edits and deleted splits are not known.
+    private static final String[] REBUILD = {
+            "INSERT INTO balance_deltas (group_id, user_id, currency, occurred_at, amount) "
+                    + "SELECT e.group_id, s.user_id, COALESCE(e.currency, ?), s.created_at, "
+                    + "CASE WHEN s.status = 'PENDING' OR s.updated_at IS NOT NULL THEN s.amount "
+                    + "WHEN s.status = 'PAID' THEN -s.amount ELSE 0 END "
+                    + "FROM splits s JOIN expense e ON e.id = s.expense_id WHERE e.group_id = ?",
+            "INSERT INTO balance_deltas (group_id, user_id, currency, occurred_at, amount) "
+                    + "SELECT e.group_id, s.user_id, COALESCE(e.currency, ?), s.updated_at, "
+                    + "CASE WHEN s.status = 'PAID' THEN -2 * s.amount ELSE -s.amount END "
+                    + "FROM splits s JOIN expense e ON e.id = s.expense_id "
+                    + "WHERE e.group_id = ? AND s.status <> 'PENDING' AND s.updated_at IS NOT NULL"
+    };
+    private static final String REBUILD_BUCKETS =
+            "INSERT INTO balance_buckets (group_id, user_id, currency, bucket_date, cumulative) "
+                    + "SELECT d.group_id, d.user_id, d.currency, d.bucket_date, "
+                    + "SUM(d.amount) OVER (PARTITION BY d.user_id, d.currency ORDER BY d.bucket_date) "
+                    + "FROM (SELECT group_id, user_id, currency, CAST(occurred_at AS DATE) AS bucket_date, SUM(amount) AS amount "
+                    + "FROM balance_deltas WHERE group_id = ? "
+                    + "GROUP BY group_id, user_id, currency, CAST(occurred_at AS DATE)) d";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BalanceHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Records the deltas and adds them to the daily buckets: three batched statements. Writers of
+    // a group hold its write lock; a recurring batch racing one for a new bucket fails on its key.
+    public void apply(Map<Change, BigDecimal> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        Map<Change, BigDecimal> byDay = new LinkedHashMap<>();
+        deltas.forEach((change, amount) -> {
+            rows.add(new Object[]{change.groupId(), change.userId(), change.currency(),
+                    Timestamp.valueOf(change.occurredAt()), amount});
+            Change day = new Change(change.groupId(), change.userId(), change.currency(),
+                    change.occurredAt().toLocalDate().atStartOfDay());
+            byDay.merge(day, amount, BigDecimal::add);
+        });
+        jdbcTemplate.batchUpdate(INSERT_DELTA, rows);
+
+        List<Object[]> additions = new ArrayList<>(byDay.size());
+        List<Object[]> buckets = new ArrayList<>(byDay.size());
+        byDay.forEach((day, amount) -> {
+            Date date = Date.valueOf(day.occurredAt().toLocalDate());
+            additions.add(new Object[]{amount, day.groupId(), day.userId(), day.currency(), date});
+            buckets.add(new Object[]{day.groupId(), day.userId(), day.currency(), date,
+                    day.groupId(), day.userId(), day.currency(), date, amount,
+                    day.groupId(), day.userId(), day.currency(), date});
+        });
+        jdbcTemplate.batchUpdate(ADD_TO_BUCKETS, additions);
+        jdbcTemplate.batchUpdate(INSERT_BUCKET, buckets);
+    }
+
+    // A member's balance per currency as of the given moment, inclusive
+    public Map<String, BigDecimal> balanceAt(long groupId, long userId, LocalDateTime at) {
+        LocalDate day = at.toLocalDate();
+        Map<String, BigDecimal> balances = new LinkedHashMap<>();
+        jdbcTemplate.query(BALANCE_AT, rs -> {
+            balances.put(rs.getString("currency"), rs.getBigDecimal("amount"));
+        }, groupId, userId, Date.valueOf(day), groupId, userId,
+                Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(at));
+        return balances;
+    }
+
+    public void deleteGroup(long groupId) {
+        jdbcTemplate.update("DELETE FROM balance_deltas WHERE group_id = ?", groupId);
+        jdbcTemplate.update("DELETE FROM balance_buckets WHERE group_id = ?", groupId);
+    }
+
+    // Replaces the group's history with one reconstructed from its splits
+    public void rebuildGroup(long groupId, String baseCurrency) {
+        deleteGroup(groupId);
+        for (String sql : REBUILD) {
+            jdbcTemplate.update(sql, baseCurrency, groupId);
+        }
+        jdbcTemplate.update(REBUILD_BUCKETS, groupId);
+    }
+
+    // Where and when a balance changed; occurredAt is the start of the day for bucket totals
+    public record Change(long groupId, long userId, String currency, LocalDateTime occurredAt) {
+    }
+}
@@ -0,0 +1,122 @@
+package com.settleup.repository;
+
+import com.settleup.model.Expense;
+import com.settleup.model.Split;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+// Multi-row inserts of new expenses with their splits: one INSERT ... VALUES statement per
+// ROWS_PER_STATEMENT expenses and one per ROWS_PER_STATEMENT splits, instead of a statement per
+// row. Runs on the caller's transaction and shard.
+@Repository
+public class ExpenseBatchRepository {
+    // Keeps statements well below the bind parameter limits of the drivers
+    private static final int ROWS_PER_STATEMENT = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExpenseBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Inserts the expenses and then their splits, setting the generated ids on both
+    public void insert(List<Expense> expenses) {
+        List<Split> splits = new ArrayList<>();
+        for (int from = 0; from < expenses.size(); from += ROWS_PER_STATEMENT) {
+            insertExpenses(expenses.subList(from, Math.min(expenses.size(), from + ROWS_PER_STATEMENT)));
+        }
+        for (Expense expense : expenses) {
+            splits.addAll(expense.getSplits());
+        }
+        for (int from = 0; from < splits.size(); from += ROWS_PER_STATEMENT) {
+            insertSplits(splits.subList(from, Math.min(splits.size(), from + ROWS_PER_STATEMENT)));
+        }
+        // Splits hash by id, so sets built before the ids were known are rebuilt
+        for (Expense expense : expenses) {
+            expense.setSplits(new HashSet<>(expense.getSplits()));
+        }
+    }
+
+    // Which of the ids have a row in the table (users or groups)
+    public Set<Long> findExistingIds(String table, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE id IN ("
+                + placeholders(ids.size()) + ")", Long.class, ids.toArray()));
+    }
+
+    private void insertExpenses(List<Expense> expenses) {
+        List<Long> ids = insertRows("INSERT INTO expense (group_id, paid_by_id, amount, currency, description, created_at)",
+                expenses, (expense, values) -> {
+                    values.add(expense.getGroup().getId());
+                    values.add(expense.getPaidBy().getId());
+                    values.add(expense.getAmount());
+                    values.add(expense.getCurrency());
+                    values.add(expense.getDescription());
+                    values.add(Timestamp.valueOf(expense.getCreatedAt()));
+                });
+        for (int i = 0; i < expenses.size(); i++) {
+            expenses.get(i).setId(ids.get(i));
+        }
+    }
+
+    private void insertSplits(List<Split> splits) {
+        List<Long> ids = insertRows("INSERT INTO splits (expense_id, user_id, amount, split_type, status, created_at)",
+                splits, (split, values) -> {
+                    values.add(split.getExpense().getId());
+                    values.add(split.getUser().getId());
+                    values.add(split.getAmount());
+                    values.add(split.getSplitType().name());
+                    values.add(split.getStatus().name());
+                    values.add(Timestamp.valueOf(split.getCreatedAt()));
+                });
+        for (int i = 0; i < splits.size(); i++) {
+            splits.get(i).setId(ids.get(i));
+        }
+    }
+
+    // One INSERT ... VALUES statement for all the rows; the generated ids come back in row order
+    private <T> List<Long> insertRows(String insert, List<T> rows, BiConsumer<T, List<Object>> columns) {
+        List<Object> values = new ArrayList<>();
+        rows.forEach(row -> columns.accept(row, values));
+        int width = values.size() / rows.size();
+        String sql = insert + " VALUES " + String.join(", ",
+                Collections.nCopies(rows.size(), "(" + placeholders(width) + ")"));
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, new String[]{"id"});
+            for (int i = 0; i < values.size(); i++) {
+                statement.setObject(i + 1, values.get(i));
+            }
+            return statement;
+        }, keys);
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != rows.size()) {
+            throw new IllegalStateException("Expected " + rows.size() + " generated ids, got " + generated.size());
+        }
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Map<String, Object> key : generated) {
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
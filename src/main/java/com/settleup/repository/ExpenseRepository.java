@@ -2,7 +2,25 @@ package com.settleup.repository;
 
 import com.settleup.model.Expense;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     // You can add custom query methods here if needed
+
+    // Every expense with its group, payer, and splits with their users, in one statement
+    @Query("SELECT DISTINCT e FROM Expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.paidBy " +
+           "LEFT JOIN FETCH e.splits s LEFT JOIN FETCH s.user ORDER BY e.id")
+    List<Expense> findAllWithSplits();
+
+    // A group's expenses with their group, payer, and splits with their users, in one statement
+    @Query("SELECT DISTINCT e FROM Expense e LEFT JOIN FETCH e.group LEFT JOIN FETCH e.paidBy " +
+           "LEFT JOIN FETCH e.splits s LEFT JOIN FETCH s.user WHERE e.group.id = :groupId ORDER BY e.id")
+    List<Expense> findWithSplitsByGroupId(@Param("groupId") Long groupId);
+
+    @Query("SELECT e.group.id FROM Expense e WHERE e.id = :expenseId")
+    Optional<Long> findGroupIdById(@Param("expenseId") Long expenseId);
 } 
\ No newline at end of file
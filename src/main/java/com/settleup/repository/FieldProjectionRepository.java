@@ -0,0 +1,94 @@
+package com.settleup.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Selects only the requested columns of an entity, so narrow reads never load full entity graphs.
+// Associations are left-joined, so rows without a group or payer are returned like the full reads do.
+@Repository
+public class FieldProjectionRepository {
+    private final EntityManager entityManager;
+
+    public FieldProjectionRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    // fieldPaths maps each output field to its attribute path (e.g. "userId" -> "user.id");
+    // filters are equality conditions on attribute paths
+    public List<Map<String, Object>> find(Class<?> entityType,
+                                          Map<String, String> fieldPaths,
+                                          List<String> fields,
+                                          Map<String, Object> filters) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(entityType);
+        Map<String, From<?, ?>> joins = new HashMap<>();
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String field : fields) {
+            selections.add(path(root, joins, fieldPaths.get(field)).alias(field));
+        }
+        query.multiselect(selections);
+
+        List<Predicate> predicates = new ArrayList<>();
+        filters.forEach((attribute, value) -> predicates.add(cb.equal(path(root, joins, attribute), value)));
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(tuple -> toMap(tuple, fields))
+                .toList();
+    }
+
+    public Optional<Map<String, Object>> findOne(Class<?> entityType,
+                                                 Map<String, String> fieldPaths,
+                                                 List<String> fields,
+                                                 Map<String, Object> filters) {
+        return find(entityType, fieldPaths, fields, filters).stream().findFirst();
+    }
+
+    // Associations on the way are left-joined once per query and shared by later paths; the id of
+    // the last one is its foreign key column and needs no join
+    private static Path<?> path(Root<?> root, Map<String, From<?, ?>> joins, String attributePath) {
+        String[] attributes = attributePath.split("\\.");
+        int joined = attributes.length - (attributes.length > 1 && attributes[attributes.length - 1].equals("id") ? 2 : 1);
+        From<?, ?> from = root;
+        String prefix = "";
+        for (int i = 0; i < joined; i++) {
+            From<?, ?> parent = from;
+            String attribute = attributes[i];
+            prefix = prefix + attribute + ".";
+            from = joins.computeIfAbsent(prefix, key -> parent.join(attribute, JoinType.LEFT));
+        }
+        Path<?> path = from;
+        for (int i = joined; i < attributes.length; i++) {
+            path = path.get(attributes[i]);
+        }
+        return path;
+    }
+
+    private static Map<String, Object> toMap(Tuple tuple, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            row.put(field, tuple.get(field));
+        }
+        return row;
+    }
+}
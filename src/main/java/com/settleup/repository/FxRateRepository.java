@@ -0,0 +1,48 @@
+package com.settleup.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Reads and writes FX snapshots in the fx_rates table. A snapshot is inserted once, as one
+// batch, and never updated.
+@Repository
+public class FxRateRepository {
+    private static final String INSERT_RATE = "INSERT INTO fx_rates (version, currency, rate) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FxRateRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Null when no snapshot was stored yet
+    public Long findLatestVersion() {
+        return jdbcTemplate.queryForObject("SELECT MAX(version) FROM fx_rates", Long.class);
+    }
+
+    // Rate per currency code, in code order
+    public Map<String, BigDecimal> findRates(long version) {
+        Map<String, BigDecimal> rates = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT currency, rate FROM fx_rates WHERE version = ? ORDER BY currency",
+                rs -> {
+                    rates.put(rs.getString("currency"), rs.getBigDecimal("rate"));
+                }, version);
+        return rates;
+    }
+
+    public void insert(long version, Map<String, BigDecimal> rates) {
+        jdbcTemplate.batchUpdate(INSERT_RATE, rates.entrySet().stream()
+                .map(entry -> new Object[]{version, entry.getKey(), entry.getValue()})
+                .toList());
+    }
+
+    // Writes a snapshot that may already exist, leaving it as given
+    public void replace(long version, Map<String, BigDecimal> rates) {
+        jdbcTemplate.update("DELETE FROM fx_rates WHERE version = ?", version);
+        insert(version, rates);
+    }
+}
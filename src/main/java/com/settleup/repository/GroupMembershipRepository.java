@@ -0,0 +1,100 @@
+package com.settleup.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Set-based writes to the group_members join table. Works on member ids only, so large groups
+// never have their member collection loaded and rewritten by Hibernate.
+@Repository
+public class GroupMembershipRepository {
+    // Ids per IN list / per multi-row INSERT
+    static final int CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GroupMembershipRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Adds the users to the group; existing memberships are left alone.
+    // Returns the number of memberships created: one multi-row INSERT per chunk, whose update
+    // count is the rows inserted (a JDBC batch may only report SUCCESS_NO_INFO, e.g. with
+    // reWriteBatchedInserts)
+    public int addMembers(long groupId, Collection<Long> userIds) {
+        int added = 0;
+        for (List<Long> chunk : chunks(userIds)) {
+            List<Object> args = new ArrayList<>(chunk.size() * 2);
+            chunk.forEach(userId -> {
+                args.add(groupId);
+                args.add(userId);
+            });
+            added += jdbcTemplate.update("INSERT INTO group_members (group_id, user_id) VALUES "
+                    + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)"))
+                    + " ON CONFLICT DO NOTHING", args.toArray());
+        }
+        return added;
+    }
+
+    // Returns the number of memberships removed
+    public int removeMembers(long groupId, Collection<Long> userIds) {
+        int removed = 0;
+        for (List<Long> chunk : chunks(userIds)) {
+            List<Object> args = new ArrayList<>(chunk.size() + 1);
+            args.add(groupId);
+            args.addAll(chunk);
+            removed += jdbcTemplate.update("DELETE FROM group_members WHERE group_id = ? AND user_id IN ("
+                    + placeholders(chunk.size()) + ")", args.toArray());
+        }
+        return removed;
+    }
+
+    // The subset of the given ids that belong to existing users
+    public Set<Long> findExistingUserIds(Collection<Long> userIds) {
+        Set<Long> existing = new HashSet<>();
+        for (List<Long> chunk : chunks(userIds)) {
+            existing.addAll(jdbcTemplate.queryForList("SELECT id FROM users WHERE id IN ("
+                    + placeholders(chunk.size()) + ")", Long.class, chunk.toArray()));
+        }
+        return existing;
+    }
+
+    public boolean isMember(long groupId, long userId) {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM group_members WHERE group_id = ? AND user_id = ?",
+                Integer.class, groupId, userId).isEmpty();
+    }
+
+    public List<Long> findGroupIds(long userId) {
+        return jdbcTemplate.queryForList("SELECT group_id FROM group_members WHERE user_id = ? ORDER BY group_id",
+                Long.class, userId);
+    }
+
+    // Groups both users belong to
+    public List<Long> findCommonGroupIds(long userId, long otherUserId) {
+        return jdbcTemplate.queryForList("SELECT a.group_id FROM group_members a JOIN group_members b"
+                + " ON b.group_id = a.group_id AND b.user_id = ? WHERE a.user_id = ? ORDER BY a.group_id",
+                Long.class, otherUserId, userId);
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -2,7 +2,20 @@ package com.settleup.repository;
 
 import com.settleup.model.Group;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface GroupRepository extends JpaRepository<Group, Long> {
     // You can add custom query methods here if needed
+
+    // Groups with their members, in one statement; initializes the members of groups already in the session
+    @Query("SELECT DISTINCT g FROM Group g LEFT JOIN FETCH g.members WHERE g.id IN :ids")
+    List<Group> findWithMembersByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Every group with its members, in one statement
+    @Query("SELECT DISTINCT g FROM Group g LEFT JOIN FETCH g.members ORDER BY g.id")
+    List<Group> findAllWithMembers();
 } 
\ No newline at end of file
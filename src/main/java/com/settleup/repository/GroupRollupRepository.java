@@ -0,0 +1,10 @@
+package com.settleup.repository;
+
+import com.settleup.model.GroupRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface GroupRollupRepository extends JpaRepository<GroupRollup, GroupRollup.Key> {
+    List<GroupRollup> findByIdGroupId(Long groupId);
+}
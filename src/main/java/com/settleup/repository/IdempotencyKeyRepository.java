@@ -0,0 +1,70 @@
+package com.settleup.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Idempotency keys of write requests (idempotency_keys). Each call is a single statement outside
+// any transaction, so a claim is visible to every instance as soon as it is made. Keys are not
+// sharded; they always live on the global database.
+@Repository
+public class IdempotencyKeyRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Takes the key for a new request; also takes over a claim left without a response since
+    // staleBefore by an instance that stopped. False when the key is completed or still in progress.
+    public boolean claim(String key, String fingerprint, LocalDateTime now, LocalDateTime staleBefore) {
+        try {
+            jdbcTemplate.update("INSERT INTO idempotency_keys (idempotency_key, fingerprint, created_at) VALUES (?, ?, ?)",
+                    key, fingerprint, Timestamp.valueOf(now));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return jdbcTemplate.update("UPDATE idempotency_keys SET fingerprint = ?, created_at = ? "
+                            + "WHERE idempotency_key = ? AND response_status IS NULL AND created_at < ?",
+                    fingerprint, Timestamp.valueOf(now), key, Timestamp.valueOf(staleBefore)) > 0;
+        }
+    }
+
+    public Optional<Stored> find(String key) {
+        List<Stored> rows = jdbcTemplate.query("SELECT fingerprint, response_status, content_type, response_body, "
+                        + "completed_at FROM idempotency_keys WHERE idempotency_key = ?",
+                (rs, rowNum) -> {
+                    Timestamp completedAt = rs.getTimestamp("completed_at");
+                    return new Stored(rs.getString("fingerprint"), rs.getObject("response_status", Integer.class),
+                            rs.getString("content_type"), rs.getString("response_body"),
+                            completedAt == null ? null : completedAt.toLocalDateTime());
+                }, key);
+        return rows.stream().findFirst();
+    }
+
+    public void complete(String key, int status, String contentType, String body, LocalDateTime now) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET response_status = ?, content_type = ?, response_body = ?, "
+                + "completed_at = ? WHERE idempotency_key = ?", status, contentType, body, Timestamp.valueOf(now), key);
+    }
+
+    // Gives up a claim whose request failed, so the next retry runs it again
+    public void release(String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ? AND response_status IS NULL", key);
+    }
+
+    public int deleteCreatedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?", Timestamp.valueOf(cutoff));
+    }
+
+    // A key's row; status is null while the original request is still running
+    public record Stored(String fingerprint, Integer status, String contentType, String body,
+                         LocalDateTime completedAt) {
+        public boolean isCompleted() {
+            return status != null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.settleup.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// Set-based deletes for the purge jobs. Every method touches at most one chunk of rows, picked
+// by id, so each statement holds its row locks briefly. Runs on the caller's transaction and shard.
+@Repository
+public class PurgeRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public PurgeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Long> findExpenseIdsInGroup(long groupId, int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM expense WHERE group_id = ? ORDER BY id LIMIT ?",
+                Long.class, groupId, limit);
+    }
+
+    public List<Long> findExpenseIdsPaidBy(long groupId, long userId, int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM expense WHERE group_id = ? AND paid_by_id = ? ORDER BY id LIMIT ?",
+                Long.class, groupId, userId, limit);
+    }
+
+    public List<Long> findSplitIdsOfUserInGroup(long groupId, long userId, int limit) {
+        return jdbcTemplate.queryForList("SELECT s.id FROM splits s JOIN expense e ON e.id = s.expense_id "
+                + "WHERE e.group_id = ? AND s.user_id = ? ORDER BY s.id LIMIT ?", Long.class, groupId, userId, limit);
+    }
+
+    // Expenses without a group the user paid, and the user's splits in other ones
+    public List<Long> findUngroupedExpenseIdsPaidBy(long userId, int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM expense WHERE group_id IS NULL AND paid_by_id = ? ORDER BY id LIMIT ?",
+                Long.class, userId, limit);
+    }
+
+    public List<Long> findUngroupedSplitIdsOfUser(long userId, int limit) {
+        return jdbcTemplate.queryForList("SELECT s.id FROM splits s JOIN expense e ON e.id = s.expense_id "
+                + "WHERE e.group_id IS NULL AND s.user_id = ? ORDER BY s.id LIMIT ?", Long.class, userId, limit);
+    }
+
+    // Groups with expenses paid by, or splits owed by, the user; expenses without a group are not counted
+    public List<Long> findGroupIdsInvolvingUser(long userId) {
+        return jdbcTemplate.queryForList("SELECT group_id FROM expense WHERE paid_by_id = ? AND group_id IS NOT NULL "
+                + "UNION SELECT e.group_id FROM splits s JOIN expense e ON e.id = s.expense_id "
+                + "WHERE s.user_id = ? AND e.group_id IS NOT NULL",
+                Long.class, userId, userId);
+    }
+
+    // Deletes the expenses and all their splits; returns the number of splits deleted
+    public int deleteExpenses(Collection<Long> expenseIds) {
+        if (expenseIds.isEmpty()) {
+            return 0;
+        }
+        Object[] ids = expenseIds.toArray();
+        int splits = jdbcTemplate.update("DELETE FROM splits WHERE expense_id IN (" + placeholders(ids.length) + ")", ids);
+        jdbcTemplate.update("DELETE FROM expense WHERE id IN (" + placeholders(ids.length) + ")", ids);
+        return splits;
+    }
+
+    public int deleteSplits(Collection<Long> splitIds) {
+        if (splitIds.isEmpty()) {
+            return 0;
+        }
+        Object[] ids = splitIds.toArray();
+        return jdbcTemplate.update("DELETE FROM splits WHERE id IN (" + placeholders(ids.length) + ")", ids);
+    }
+
+    // Recurring expense templates are few per group or user, so they go in one statement each
+    public int deleteRecurringExpensesInGroup(long groupId) {
+        jdbcTemplate.update("DELETE FROM recurring_expense_shares WHERE recurring_expense_id IN "
+                + "(SELECT id FROM recurring_expenses WHERE group_id = ?)", groupId);
+        return jdbcTemplate.update("DELETE FROM recurring_expenses WHERE group_id = ?", groupId);
+    }
+
+    // Templates the user pays, and the user's shares in everyone else's
+    public int deleteRecurringExpensesOfUser(long userId) {
+        jdbcTemplate.update("DELETE FROM recurring_expense_shares WHERE user_id = ? OR recurring_expense_id IN "
+                + "(SELECT id FROM recurring_expenses WHERE paid_by_id = ?)", userId, userId);
+        return jdbcTemplate.update("DELETE FROM recurring_expenses WHERE paid_by_id = ?", userId);
+    }
+
+    // Memberships are removed a chunk of members (or groups) at a time
+    public int deleteGroupMemberships(long groupId, int limit) {
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT user_id FROM group_members WHERE group_id = ? LIMIT ?",
+                Long.class, groupId, limit);
+        return deleteMemberships("group_id = ? AND user_id", groupId, userIds);
+    }
+
+    public int deleteUserMemberships(long userId, int limit) {
+        List<Long> groupIds = jdbcTemplate.queryForList("SELECT group_id FROM group_members WHERE user_id = ? LIMIT ?",
+                Long.class, userId, limit);
+        return deleteMemberships("user_id = ? AND group_id", userId, groupIds);
+    }
+
+    public int deleteGroup(long groupId) {
+        return jdbcTemplate.update("DELETE FROM groups WHERE id = ?", groupId);
+    }
+
+    public int deleteUser(long userId) {
+        return jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+
+    private int deleteMemberships(String condition, long ownerId, List<Long> otherIds) {
+        if (otherIds.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>(otherIds.size() + 1);
+        args.add(ownerId);
+        args.addAll(otherIds);
+        return jdbcTemplate.update("DELETE FROM group_members WHERE " + condition + " IN ("
+                + placeholders(otherIds.size()) + ")", args.toArray());
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
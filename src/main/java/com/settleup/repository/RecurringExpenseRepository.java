@@ -0,0 +1,15 @@
+package com.settleup.repository;
+
+import com.settleup.model.RecurringExpense;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface RecurringExpenseRepository extends JpaRepository<RecurringExpense, Long> {
+    // Templates with their shares and participants, for rendering in one statement
+    @Query("SELECT DISTINCT r FROM RecurringExpense r JOIN FETCH r.group JOIN FETCH r.paidBy "
+            + "LEFT JOIN FETCH r.shares sh LEFT JOIN FETCH sh.user WHERE r.group.id = :groupId ORDER BY r.id")
+    List<RecurringExpense> findByGroupIdWithShares(@Param("groupId") Long groupId);
+}
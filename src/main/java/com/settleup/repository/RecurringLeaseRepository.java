@@ -0,0 +1,50 @@
+package com.settleup.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+// Partition leases of the recurring expense scheduler (recurring_leases). Each call is one
+// conditional statement, so two instances can never both hold a partition: the row lock taken
+// by a renewal inside a batch transaction makes a competing claim wait for that batch to commit.
+@Repository
+public class RecurringLeaseRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public RecurringLeaseRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Takes the partition if it is free, expired or already ours
+    public boolean claim(int partition, String owner, LocalDateTime now, LocalDateTime until) {
+        int updated = jdbcTemplate.update("UPDATE recurring_leases SET owner = ?, lease_until = ? "
+                        + "WHERE partition_no = ? AND (owner = ? OR lease_until < ?)",
+                owner, Timestamp.valueOf(until), partition, owner, Timestamp.valueOf(now));
+        if (updated > 0) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO recurring_leases (partition_no, owner, lease_until) VALUES (?, ?, ?)",
+                    partition, owner, Timestamp.valueOf(until));
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Held by another instance
+            return false;
+        }
+    }
+
+    // Extends a lease we hold; false when it was lost to another instance
+    public boolean renew(int partition, String owner, LocalDateTime until) {
+        return jdbcTemplate.update("UPDATE recurring_leases SET lease_until = ? WHERE partition_no = ? AND owner = ?",
+                Timestamp.valueOf(until), partition, owner) > 0;
+    }
+
+    // Lets other instances take the partition right away
+    public void release(int partition, String owner, LocalDateTime now) {
+        jdbcTemplate.update("UPDATE recurring_leases SET lease_until = ? WHERE partition_no = ? AND owner = ?",
+                Timestamp.valueOf(now), partition, owner);
+    }
+}
@@ -0,0 +1,131 @@
+package com.settleup.repository;
+
+import com.settleup.model.Expense;
+import com.settleup.model.Group;
+import com.settleup.model.RecurringExpense;
+import com.settleup.model.Split;
+import com.settleup.model.User;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Set-based generation of recurring expense occurrences. For a batch of due templates, one
+// INSERT ... SELECT writes an expense per template for its next occurrence and one more writes
+// all their splits; the database hands out the ids. Generated rows are found again through
+// the (recurring_expense_id, created_at) key, which also rejects an occurrence generated twice.
+// Runs on the caller's transaction and shard.
+@Repository
+public class RecurringOccurrenceRepository {
+    // Templates joined to the expenses of their current occurrence
+    private static final String OCCURRENCES = "FROM recurring_expenses r "
+            + "JOIN expense e ON e.recurring_expense_id = r.id AND e.created_at = r.next_run_at ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RecurringOccurrenceRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Templates of one partition (group id modulo partitions) due at now, earliest first
+    public List<Due> findDue(LocalDateTime now, int partitions, int partition, int limit) {
+        return jdbcTemplate.query("SELECT id, group_id, frequency, start_at, end_at, occurrences FROM recurring_expenses "
+                        + "WHERE next_run_at <= ? AND MOD(group_id, ?) = ? ORDER BY next_run_at, id LIMIT ?",
+                (rs, row) -> new Due(rs.getLong("id"), rs.getLong("group_id"),
+                        RecurringExpense.Frequency.valueOf(rs.getString("frequency")),
+                        rs.getTimestamp("start_at").toLocalDateTime(), toLocalDateTime(rs.getTimestamp("end_at")),
+                        rs.getLong("occurrences")),
+                Timestamp.valueOf(now), partitions, partition, limit);
+    }
+
+    // Writes the next occurrence of each template as an expense with its splits; returns the number of splits
+    public int insertOccurrences(Collection<Long> templateIds) {
+        Object[] ids = templateIds.toArray();
+        String in = "WHERE r.id IN (" + placeholders(ids.length) + ")";
+        jdbcTemplate.update("INSERT INTO expense (group_id, paid_by_id, amount, currency, description, created_at, "
+                + "recurring_expense_id) SELECT r.group_id, r.paid_by_id, r.amount, r.currency, r.description, "
+                + "r.next_run_at, r.id FROM recurring_expenses r " + in, ids);
+        return jdbcTemplate.update("INSERT INTO splits (expense_id, user_id, amount, split_type, status, created_at) "
+                + "SELECT e.id, sh.user_id, sh.amount, r.split_type, 'PENDING', e.created_at " + OCCURRENCES
+                + "JOIN recurring_expense_shares sh ON sh.recurring_expense_id = r.id " + in, ids);
+    }
+
+    // The expenses just written by insertOccurrences, with their splits, as detached objects
+    // carrying ids only for the group, payer and users
+    public List<Expense> findOccurrences(Collection<Long> templateIds) {
+        Object[] ids = templateIds.toArray();
+        String in = "WHERE r.id IN (" + placeholders(ids.length) + ")";
+        Map<Long, Expense> expenses = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT e.id, e.group_id, e.paid_by_id, e.amount, e.currency, e.description, e.created_at, "
+                + "e.recurring_expense_id " + OCCURRENCES + in, rs -> {
+                    Expense expense = Expense.builder()
+                            .id(rs.getLong("id"))
+                            .group(Group.builder().id(rs.getLong("group_id")).build())
+                            .paidBy(user(rs.getLong("paid_by_id")))
+                            .amount(rs.getBigDecimal("amount"))
+                            .currency(rs.getString("currency"))
+                            .description(rs.getString("description"))
+                            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                            .recurringExpenseId(rs.getLong("recurring_expense_id"))
+                            .splits(new HashSet<>())
+                            .build();
+                    expenses.put(expense.getId(), expense);
+                }, ids);
+        jdbcTemplate.query("SELECT s.id, s.expense_id, s.user_id, s.amount, s.split_type, s.created_at "
+                + OCCURRENCES + "JOIN splits s ON s.expense_id = e.id " + in, rs -> {
+                    Expense expense = expenses.get(rs.getLong("expense_id"));
+                    expense.getSplits().add(Split.builder()
+                            .id(rs.getLong("id"))
+                            .expense(expense)
+                            .user(user(rs.getLong("user_id")))
+                            .amount(rs.getBigDecimal("amount"))
+                            .splitType(Split.SplitType.valueOf(rs.getString("split_type")))
+                            .status(Split.SplitStatus.PENDING)
+                            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                            .build());
+                }, ids);
+        return new ArrayList<>(expenses.values());
+    }
+
+    // Moves each template on to its next occurrence, or ends it (next_run_at null)
+    public void advance(List<Due> templates) {
+        jdbcTemplate.batchUpdate("UPDATE recurring_expenses SET occurrences = ?, next_run_at = ? WHERE id = ?",
+                templates.stream().map(due -> {
+                    LocalDateTime next = due.next();
+                    return new Object[]{due.occurrences() + 1, next == null ? null : Timestamp.valueOf(next), due.id()};
+                }).toList());
+    }
+
+    // A template whose occurrence number occurrences is due
+    public record Due(long id, long groupId, RecurringExpense.Frequency frequency, LocalDateTime startAt,
+                      LocalDateTime endAt, long occurrences) {
+        // Due time of the occurrence after this one, null when it would fall after endAt
+        LocalDateTime next() {
+            LocalDateTime next = frequency.occurrence(startAt, occurrences + 1);
+            return endAt != null && next.isAfter(endAt) ? null : next;
+        }
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
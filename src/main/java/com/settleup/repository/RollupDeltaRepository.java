@@ -0,0 +1,98 @@
+package com.settleup.repository;
+
+import com.settleup.model.GroupRollup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Set-based writes to group_currency_rollups: incremental deltas from expense/split writes and full
+// per-group recomputation for the backfill. Runs in the caller's transaction.
+@Repository
+public class RollupDeltaRepository {
+    private static final String ADD_DELTA = "UPDATE group_currency_rollups SET amount = amount + ?, item_count = item_count + ? "
+            + "WHERE group_id = ? AND currency = ? AND dimension = ? AND dim_key = ?";
+    private static final String INSERT_ROLLUP = "INSERT INTO group_currency_rollups "
+            + "(group_id, currency, dimension, dim_key, amount, item_count) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Month of an expense; older rows without created_at fall back to their first split
+    private static final String EXPENSE_MONTH = "TO_CHAR(COALESCE(e.created_at, "
+            + "(SELECT MIN(s.created_at) FROM splits s WHERE s.expense_id = e.id)), 'YYYY-MM')";
+
+    // Each statement takes the base currency, for expenses recorded without one, and the group id
+    private static final String[] REBUILD = {
+            "INSERT INTO group_currency_rollups (group_id, currency, dimension, dim_key, amount, item_count) "
+                    + "SELECT p.group_id, p.currency, 'PAYER', CAST(p.paid_by_id AS VARCHAR(32)), COALESCE(SUM(p.amount), 0), COUNT(*) "
+                    + "FROM (SELECT e.group_id, COALESCE(e.currency, ?) AS currency, e.paid_by_id, e.amount FROM expense e "
+                    + "WHERE e.group_id = ? AND e.paid_by_id IS NOT NULL) p GROUP BY p.group_id, p.currency, p.paid_by_id",
+            "INSERT INTO group_currency_rollups (group_id, currency, dimension, dim_key, amount, item_count) "
+                    + "SELECT m.group_id, m.currency, 'MONTH', m.expense_month, COALESCE(SUM(m.amount), 0), COUNT(*) "
+                    + "FROM (SELECT e.group_id, COALESCE(e.currency, ?) AS currency, e.amount, " + EXPENSE_MONTH
+                    + " AS expense_month FROM expense e WHERE e.group_id = ?) m "
+                    + "WHERE m.expense_month IS NOT NULL GROUP BY m.group_id, m.currency, m.expense_month",
+            "INSERT INTO group_currency_rollups (group_id, currency, dimension, dim_key, amount, item_count) "
+                    + "SELECT x.group_id, x.currency, 'MEMBER', CAST(x.user_id AS VARCHAR(32)), SUM(x.amount), COUNT(*) "
+                    + "FROM (SELECT e.group_id, COALESCE(e.currency, ?) AS currency, s.user_id, s.amount "
+                    + "FROM splits s JOIN expense e ON e.id = s.expense_id WHERE e.group_id = ?) x "
+                    + "GROUP BY x.group_id, x.currency, x.user_id",
+            "INSERT INTO group_currency_rollups (group_id, currency, dimension, dim_key, amount, item_count) "
+                    + "SELECT x.group_id, x.currency, 'STATUS', x.status, SUM(x.amount), COUNT(*) "
+                    + "FROM (SELECT e.group_id, COALESCE(e.currency, ?) AS currency, s.status, s.amount "
+                    + "FROM splits s JOIN expense e ON e.id = s.expense_id WHERE e.group_id = ?) x "
+                    + "GROUP BY x.group_id, x.currency, x.status"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RollupDeltaRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Adds each [amount, count] delta to its rollup row, creating missing rows.
+    // Callers hold the group's write lock, so no other writer creates the same row meanwhile.
+    public void apply(Map<GroupRollup.Key, Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<GroupRollup.Key, Delta>> entries = new ArrayList<>(deltas.entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(ADD_DELTA, entries.stream()
+                .map(entry -> new Object[]{entry.getValue().amount(), entry.getValue().count(),
+                        entry.getKey().getGroupId(), entry.getKey().getCurrency(), entry.getKey().getDimension().name(),
+                        entry.getKey().getDimKey()})
+                .toList());
+
+        List<Object[]> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                GroupRollup.Key key = entries.get(i).getKey();
+                Delta delta = entries.get(i).getValue();
+                missing.add(new Object[]{key.getGroupId(), key.getCurrency(), key.getDimension().name(), key.getDimKey(),
+                        delta.amount(), delta.count()});
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ROLLUP, missing);
+        }
+    }
+
+    // Replaces the group's rollups with values computed from its expenses and splits
+    public void deleteGroup(long groupId) {
+        jdbcTemplate.update("DELETE FROM group_currency_rollups WHERE group_id = ?", groupId);
+    }
+
+    public void rebuildGroup(long groupId, String baseCurrency) {
+        deleteGroup(groupId);
+        for (String sql : REBUILD) {
+            jdbcTemplate.update(sql, baseCurrency, groupId);
+        }
+    }
+
+    public record Delta(BigDecimal amount, long count) {
+        public Delta plus(Delta other) {
+            return new Delta(amount.add(other.amount), count + other.count);
+        }
+    }
+}
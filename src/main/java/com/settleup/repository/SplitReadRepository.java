@@ -0,0 +1,144 @@
+package com.settleup.repository;
+
+import com.settleup.fx.FxSnapshot;
+import com.settleup.model.Split;
+import com.settleup.model.User;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Split reads over R2DBC, the same queries as SplitRepository and FieldProjectionRepository in SQL.
+// Each method runs one statement on the given database (ReadDatabases): the main one or a shard.
+@Repository
+public class SplitReadRepository {
+    // Amounts are converted to the base currency with the rates of one FX snapshot and rounded
+    // to cents per split before they are summed, as in SplitRepository
+    private static final String IN_BASE = "ROUND(s.amount * r.rate, 2)";
+    private static final String FX_JOIN = " JOIN expense e ON e.id = s.expense_id "
+            + "JOIN fx_rates r ON r.version = :fxVersion AND r.currency = COALESCE(e.currency, :baseCurrency)";
+
+    private static final String SPLIT_WITH_USER = "SELECT s.id, s.amount, s.split_type, s.status, s.created_at, "
+            + "s.updated_at, s.version, u.id AS user_id, u.name, u.email, u.password "
+            + "FROM splits s JOIN users u ON u.id = s.user_id ";
+
+    // Column of each field of SparseFields.SPLIT
+    private static final Map<String, String> SPLIT_COLUMNS = Map.ofEntries(
+            Map.entry("id", "s.id"),
+            Map.entry("amount", "s.amount"),
+            Map.entry("currency", "e.currency"),
+            Map.entry("status", "s.status"),
+            Map.entry("splitType", "s.split_type"),
+            Map.entry("createdAt", "s.created_at"),
+            Map.entry("updatedAt", "s.updated_at"),
+            Map.entry("userId", "s.user_id"),
+            Map.entry("userName", "u.name"),
+            Map.entry("expenseId", "s.expense_id"),
+            Map.entry("groupId", "e.group_id"));
+
+    public Mono<Boolean> userExists(DatabaseClient db, long userId) {
+        return db.sql("SELECT id FROM users WHERE id = :id").bind("id", userId)
+                .map(row -> true).first().defaultIfEmpty(false);
+    }
+
+    public Mono<Boolean> groupExists(DatabaseClient db, long groupId) {
+        return db.sql("SELECT id FROM groups WHERE id = :id").bind("id", groupId)
+                .map(row -> true).first().defaultIfEmpty(false);
+    }
+
+    // A user's balance in a group in the base currency: pending shares minus paid shares
+    public Mono<BigDecimal> getBalanceInGroup(DatabaseClient db, long userId, long groupId, FxSnapshot fx) {
+        return fx(db.sql("SELECT COALESCE(SUM(CASE WHEN s.status = 'PENDING' THEN " + IN_BASE + " ELSE -" + IN_BASE
+                        + " END), 0) FROM splits s" + FX_JOIN
+                        + " WHERE s.user_id = :userId AND e.group_id = :groupId AND s.status IN ('PENDING', 'PAID')"), fx)
+                .bind("userId", userId)
+                .bind("groupId", groupId)
+                .map(row -> row.get(0, BigDecimal.class))
+                .one();
+    }
+
+    // Total of a user's pending shares in the base currency
+    public Mono<BigDecimal> getTotalPendingByUser(DatabaseClient db, long userId, FxSnapshot fx) {
+        return fx(db.sql("SELECT COALESCE(SUM(" + IN_BASE + "), 0) FROM splits s" + FX_JOIN
+                        + " WHERE s.user_id = :userId AND s.status = 'PENDING'"), fx)
+                .bind("userId", userId)
+                .map(row -> row.get(0, BigDecimal.class))
+                .one();
+    }
+
+    public Flux<Split> findByUser(DatabaseClient db, long userId) {
+        return db.sql(SPLIT_WITH_USER + "WHERE s.user_id = :userId ORDER BY s.id")
+                .bind("userId", userId)
+                .map(SplitReadRepository::split)
+                .all();
+    }
+
+    public Flux<Split> findPendingByGroup(DatabaseClient db, long groupId) {
+        return db.sql(SPLIT_WITH_USER + "JOIN expense e ON e.id = s.expense_id "
+                        + "WHERE e.group_id = :groupId AND s.status = 'PENDING' ORDER BY s.id")
+                .bind("groupId", groupId)
+                .map(SplitReadRepository::split)
+                .all();
+    }
+
+    // Only the requested fields (names from SparseFields.SPLIT) of a user's splits
+    public Flux<Map<String, Object>> findFieldsByUser(DatabaseClient db, List<String> fields, long userId) {
+        return db.sql(selectFields(fields) + " WHERE s.user_id = :userId ORDER BY s.id")
+                .bind("userId", userId)
+                .map(row -> fields(row, fields))
+                .all();
+    }
+
+    // Only the requested fields (names from SparseFields.SPLIT) of a group's pending splits
+    public Flux<Map<String, Object>> findPendingFieldsByGroup(DatabaseClient db, List<String> fields, long groupId) {
+        return db.sql(selectFields(fields) + " WHERE e.group_id = :groupId AND s.status = 'PENDING' ORDER BY s.id")
+                .bind("groupId", groupId)
+                .map(row -> fields(row, fields))
+                .all();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec fx(DatabaseClient.GenericExecuteSpec spec, FxSnapshot fx) {
+        return spec.bind("fxVersion", fx.getVersion()).bind("baseCurrency", fx.getBaseCurrency());
+    }
+
+    private static String selectFields(List<String> fields) {
+        return "SELECT " + fields.stream().map(SPLIT_COLUMNS::get).collect(Collectors.joining(", "))
+                + " FROM splits s JOIN expense e ON e.id = s.expense_id JOIN users u ON u.id = s.user_id";
+    }
+
+    private static Map<String, Object> fields(Readable row, List<String> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            values.put(fields.get(i), row.get(i));
+        }
+        return values;
+    }
+
+    // The expense is left out: it is not rendered with a split
+    private static Split split(Readable row) {
+        User user = User.builder()
+                .id(row.get("user_id", Long.class))
+                .name(row.get("name", String.class))
+                .email(row.get("email", String.class))
+                .password(row.get("password", String.class))
+                .build();
+        return Split.builder()
+                .id(row.get("id", Long.class))
+                .user(user)
+                .amount(row.get("amount", BigDecimal.class))
+                .splitType(Split.SplitType.valueOf(row.get("split_type", String.class)))
+                .status(Split.SplitStatus.valueOf(row.get("status", String.class)))
+                .createdAt(row.get("created_at", LocalDateTime.class))
+                .updatedAt(row.get("updated_at", LocalDateTime.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
@@ -1,5 +1,9 @@
 package com.settleup.repository;
 
+import com.settleup.dto.MemberBalance;
+import com.settleup.dto.OpenSplit;
+import com.settleup.dto.PairwiseDebt;
+import com.settleup.dto.UserTotal;
 import com.settleup.model.*;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -10,12 +14,17 @@ import java.util.List;
 import java.util.Optional;
 
 public interface SplitRepository extends JpaRepository<Split, Long> {
+    // Amounts are converted to the base currency in the query, with the rates of one FX
+    // snapshot (FxRateTable), and rounded to cents per split before they are summed
+    String IN_BASE = "ROUND(s.amount * r.rate, 2)";
+    String FX_RATE = "r.id.version = :fxVersion AND r.id.currency = COALESCE(e.currency, :baseCurrency)";
     
     // Find all splits for a specific user
     List<Split> findByUser(User user);
     
-    // Find all splits for a specific expense
-    List<Split> findByExpense(Expense expense);
+    // Find all splits for a specific expense, with their users loaded so they render without a query each
+    @Query("SELECT s FROM Split s JOIN FETCH s.user WHERE s.expense = :expense")
+    List<Split> findByExpense(@Param("expense") Expense expense);
     
     // Find all splits for a user in a specific group
     @Query("SELECT s FROM Split s WHERE s.user = :user AND s.expense.group = :group")
@@ -30,18 +39,72 @@ public interface SplitRepository extends JpaRepository<Split, Long> {
     // Find a specific split for a user in an expense
     Optional<Split> findByUserAndExpense(User user, Expense expense);
     
-    // Calculate total amount owed by a user in a group
-    @Query("SELECT COALESCE(SUM(s.amount), 0) FROM Split s WHERE s.user = :user AND s.expense.group = :group AND s.status = 'PENDING'")
-    BigDecimal getTotalOwedByUserInGroup(@Param("user") User user, @Param("group") Group group);
+    // A user's balance in a group in the base currency: pending shares minus paid shares
+    @Query("SELECT COALESCE(SUM(CASE WHEN s.status = 'PENDING' THEN " + IN_BASE + " ELSE -" + IN_BASE + " END), 0) " +
+           "FROM Split s JOIN s.expense e, FxRate r " +
+           "WHERE s.user.id = :userId AND e.group.id = :groupId AND s.status IN ('PENDING', 'PAID') AND " + FX_RATE)
+    BigDecimal getBalanceInGroup(@Param("userId") Long userId, @Param("groupId") Long groupId,
+                                 @Param("fxVersion") long fxVersion, @Param("baseCurrency") String baseCurrency);
     
-    // Calculate total amount paid by a user in a group
-    @Query("SELECT COALESCE(SUM(s.amount), 0) FROM Split s WHERE s.user = :user AND s.expense.group = :group AND s.status = 'PAID'")
-    BigDecimal getTotalPaidByUserInGroup(@Param("user") User user, @Param("group") Group group);
+    // Total of a user's pending shares in the base currency
+    @Query("SELECT COALESCE(SUM(" + IN_BASE + "), 0) FROM Split s JOIN s.expense e, FxRate r " +
+           "WHERE s.user.id = :userId AND s.status = 'PENDING' AND " + FX_RATE)
+    BigDecimal getTotalPendingByUser(@Param("userId") Long userId,
+                                     @Param("fxVersion") long fxVersion, @Param("baseCurrency") String baseCurrency);
     
-    // Find all pending splits for a group
-    @Query("SELECT s FROM Split s WHERE s.expense.group = :group AND s.status = 'PENDING'")
+    // Every user's balance in every group they have pending or paid shares in, as getBalanceInGroup
+    @Query("SELECT s.user.id AS userId, e.group.id AS groupId, " +
+           "SUM(CASE WHEN s.status = 'PENDING' THEN " + IN_BASE + " ELSE -" + IN_BASE + " END) AS balance " +
+           "FROM Split s JOIN s.expense e, FxRate r " +
+           "WHERE e.group.id IS NOT NULL AND s.status IN ('PENDING', 'PAID') AND " + FX_RATE +
+           " GROUP BY s.user.id, e.group.id")
+    List<MemberBalance> getBalancesInGroups(@Param("fxVersion") long fxVersion,
+                                            @Param("baseCurrency") String baseCurrency);
+    
+    // Every user's total of pending shares, as getTotalPendingByUser
+    @Query("SELECT s.user.id AS userId, SUM(" + IN_BASE + ") AS amount FROM Split s JOIN s.expense e, FxRate r " +
+           "WHERE s.status = 'PENDING' AND " + FX_RATE + " GROUP BY s.user.id")
+    List<UserTotal> getTotalPendingByUsers(@Param("fxVersion") long fxVersion,
+                                           @Param("baseCurrency") String baseCurrency);
+    
+    // Find all pending splits for a group, with their users loaded so they render without a session
+    @Query("SELECT s FROM Split s JOIN FETCH s.user WHERE s.expense.group = :group AND s.status = 'PENDING'")
     List<Split> findPendingSplitsByGroup(@Param("group") Group group);
     
+    // Pending amounts between a user and each counterparty in the base currency, aggregated
+    // per (debtor, creditor). The user's side is one query each way, so each can use an index:
+    // what the user owes by the split's user (idx_splits_user_status), what is owed to them by
+    // the expense's payer (idx_expense_paid_by, then idx_splits_expense_status).
+    String PAIRWISE_DEBTS = "SELECT s.user.id AS debtorId, s.user.name AS debtorName, " +
+           "e.paidBy.id AS creditorId, e.paidBy.name AS creditorName, SUM(" + IN_BASE + ") AS amount " +
+           "FROM Split s JOIN s.expense e, FxRate r " +
+           "WHERE s.status = 'PENDING' AND s.user.id <> e.paidBy.id AND " + FX_RATE + " AND ";
+    String PAIRWISE_GROUPING = " GROUP BY s.user.id, s.user.name, e.paidBy.id, e.paidBy.name";
+
+    @Query(PAIRWISE_DEBTS + "s.user.id = :userId" + PAIRWISE_GROUPING)
+    List<PairwiseDebt> findPendingDebtsOwedByUser(@Param("userId") Long userId,
+                                                  @Param("fxVersion") long fxVersion,
+                                                  @Param("baseCurrency") String baseCurrency);
+
+    @Query(PAIRWISE_DEBTS + "e.paidBy.id = :userId" + PAIRWISE_GROUPING)
+    List<PairwiseDebt> findPendingDebtsOwedToUser(@Param("userId") Long userId,
+                                                  @Param("fxVersion") long fxVersion,
+                                                  @Param("baseCurrency") String baseCurrency);
+    
+    // Pending and paid splits of a group with their payer and base currency amount, for the
+    // in-memory group ledger
+    @Query("SELECT s.id AS splitId, s.user.id AS userId, e.paidBy.id AS payerId, " +
+           IN_BASE + " AS amount, s.status AS status " +
+           "FROM Split s JOIN s.expense e, FxRate r " +
+           "WHERE e.group.id = :groupId AND s.status <> 'SETTLED' AND " + FX_RATE)
+    List<OpenSplit> findOpenSplitsByGroupId(@Param("groupId") Long groupId,
+                                            @Param("fxVersion") long fxVersion,
+                                            @Param("baseCurrency") String baseCurrency);
+    
+    // Group a split belongs to, for per-group write serialization
+    @Query("SELECT s.expense.group.id FROM Split s WHERE s.id = :splitId")
+    Optional<Long> findGroupIdById(@Param("splitId") Long splitId);
+    
     // Count pending splits for a user
     long countByUserAndStatus(User user, Split.SplitStatus status);
     
@@ -0,0 +1,221 @@
+package com.settleup.search;
+
+import com.settleup.config.BulkDataLoadedEvent;
+import com.settleup.dto.ExpenseSearchHit;
+import com.settleup.model.Expense;
+import com.settleup.sharding.ShardRouter;
+import com.settleup.util.AfterCommit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-process search over expense descriptions, one inverted index per group. Built by
+// streaming the expense table after startup (and after bulk loads), then kept current by
+// ExpenseService writes once they commit. Changes that commit while a rebuild is scanning
+// are replayed onto the new index before it replaces the old one.
+@Component
+public class ExpenseSearchIndex {
+    private static final int FETCH_SIZE = 1000;
+    private static final String SELECT_EXPENSES =
+            "SELECT id, group_id, description, amount, paid_by_id FROM expense ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+
+    private volatile Map<Long, GroupIndex> groups = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+    // Changes applied while a rebuild runs (null otherwise) and whether another scan was
+    // requested meanwhile. Guarded by this.
+    private List<Change> replay;
+    private boolean rescan;
+
+    public ExpenseSearchIndex(DataSource dataSource,
+                              ShardRouter shardRouter,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${settleup.search.enabled:false}") boolean enabled) {
+        // Own template: the fetch size makes the rebuild stream rows instead of loading them all
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        Gauge.builder("settleup.search.documents", this, index -> index.documentCount())
+                .description("Expenses held by the description search index")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Async
+    @EventListener({ApplicationReadyEvent.class, BulkDataLoadedEvent.class})
+    public void rebuildInBackground() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    // Replaces the index with one built from the database, reading expenses as a stream.
+    // A call that arrives while a rebuild runs makes that rebuild scan once more.
+    public void rebuild() {
+        synchronized (this) {
+            if (replay != null) {
+                rescan = true;
+                return;
+            }
+            replay = new ArrayList<>();
+        }
+        boolean again;
+        do {
+            long started = System.currentTimeMillis();
+            Map<Long, GroupIndex> fresh = scan();
+            synchronized (this) {
+                replay.forEach(change -> change.applyTo(fresh));
+                groups = fresh;
+                ready = true;
+                again = rescan;
+                rescan = false;
+                replay = again ? new ArrayList<>() : null;
+            }
+            System.out.println("Expense search index built: " + documentCount() + " expenses in "
+                    + fresh.size() + " groups, " + (System.currentTimeMillis() - started) + " ms");
+        } while (again);
+    }
+
+    private Map<Long, GroupIndex> scan() {
+        Map<Long, GroupIndex> fresh = new ConcurrentHashMap<>();
+        try {
+            shardRouter.forEachShard(() -> readOnlyTransaction.executeWithoutResult(status ->
+                    jdbcTemplate.query(SELECT_EXPENSES, rs -> {
+                        long groupId = rs.getLong("group_id");
+                        // Indexes are per group; an expense without one is skipped, as the hooks skip it
+                        if (rs.wasNull()) {
+                            return;
+                        }
+                        long paidById = rs.getLong("paid_by_id");
+                        Long payer = rs.wasNull() ? null : paidById;
+                        new Change(groupId, rs.getLong("id"), new GroupIndex.Document(
+                                rs.getString("description"), rs.getBigDecimal("amount"), payer)).applyTo(fresh);
+                    })));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+                rescan = false;
+            }
+            throw e;
+        }
+        return fresh;
+    }
+
+    public List<ExpenseSearchHit> search(Long groupId, String query, int limit) {
+        if (!enabled) {
+            throw new IllegalStateException("Expense search is disabled (settleup.search.enabled)");
+        }
+        List<String> prefixes = Tokenizer.tokenize(query);
+        GroupIndex index = groups.get(groupId);
+        if (prefixes.isEmpty() || index == null || limit <= 0) {
+            return List.of();
+        }
+        List<ExpenseSearchHit> hits = new ArrayList<>();
+        for (Map.Entry<Long, GroupIndex.Document> hit : index.search(prefixes, limit)) {
+            GroupIndex.Document document = hit.getValue();
+            hits.add(new ExpenseSearchHit(hit.getKey(), document.description(), document.amount(),
+                    document.paidById()));
+        }
+        return hits;
+    }
+
+    // Write-through hooks, called by ExpenseService inside the writing transaction
+
+    public void onExpenseSaved(Expense expense) {
+        if (!enabled || expense.getGroup() == null) {
+            return;
+        }
+        Change change = upsert(expense);
+        AfterCommit.run(() -> apply(change));
+    }
+
+    // Expenses written by set-based inserts that bypass the per-expense hooks
+    public void onExpensesSaved(Collection<Expense> expenses) {
+        if (!enabled || expenses.isEmpty()) {
+            return;
+        }
+        List<Change> changes = expenses.stream()
+                .filter(expense -> expense.getGroup() != null)
+                .map(ExpenseSearchIndex::upsert)
+                .toList();
+        AfterCommit.run(() -> changes.forEach(this::apply));
+    }
+
+    public void onExpenseDeleted(Expense expense) {
+        if (!enabled || expense.getGroup() == null) {
+            return;
+        }
+        Change change = new Change(expense.getGroup().getId(), expense.getId(), null);
+        AfterCommit.run(() -> apply(change));
+    }
+
+    // Expenses removed by set-based deletes that bypass the per-expense hooks
+    public void onExpensesPurged(long groupId, Collection<Long> expenseIds) {
+        if (!enabled || expenseIds.isEmpty()) {
+            return;
+        }
+        List<Change> changes = expenseIds.stream().map(id -> new Change(groupId, id, null)).toList();
+        AfterCommit.run(() -> changes.forEach(this::apply));
+    }
+
+    private static Change upsert(Expense expense) {
+        return new Change(expense.getGroup().getId(), expense.getId(), new GroupIndex.Document(
+                expense.getDescription(), expense.getAmount(),
+                expense.getPaidBy() == null ? null : expense.getPaidBy().getId()));
+    }
+
+    private synchronized void apply(Change change) {
+        change.applyTo(groups);
+        if (replay != null) {
+            replay.add(change);
+        }
+    }
+
+    private long documentCount() {
+        return groups.values().stream().mapToLong(GroupIndex::size).sum();
+    }
+
+    // An upsert, or a removal when document is null
+    private record Change(long groupId, long expenseId, GroupIndex.Document document) {
+        void applyTo(Map<Long, GroupIndex> target) {
+            if (document != null) {
+                target.computeIfAbsent(groupId, id -> new GroupIndex()).upsert(expenseId, document);
+            } else {
+                GroupIndex index = target.get(groupId);
+                if (index != null) {
+                    index.remove(expenseId);
+                }
+            }
+        }
+    }
+}
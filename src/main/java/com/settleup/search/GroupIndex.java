@@ -0,0 +1,149 @@
+package com.settleup.search;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index over the expense descriptions of one group: sorted term dictionary for
+// prefix lookups, postings sorted by expense id. Work per query depends on the size of the
+// group, never on the total number of expenses.
+final class GroupIndex {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+
+    record Document(String description, BigDecimal amount, Long paidById) {
+    }
+
+    void upsert(long expenseId, Document document) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(expenseId);
+            documents.put(expenseId, document);
+            for (String token : Tokenizer.tokenize(document.description())) {
+                terms.computeIfAbsent(token, t -> new Postings()).add(expenseId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long expenseId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(expenseId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Newest expenses whose description has, for every query token, a word starting with it
+    List<Map.Entry<Long, Document>> search(List<String> prefixes, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Collection<Postings>> matches = new ArrayList<>(prefixes.size());
+            int driver = 0;
+            long smallest = Long.MAX_VALUE;
+            for (String prefix : prefixes) {
+                Collection<Postings> postings = terms.subMap(prefix, prefix + Character.MAX_VALUE).values();
+                long total = postings.stream().mapToLong(Postings::size).sum();
+                if (total == 0) {
+                    return List.of();
+                }
+                if (total < smallest) {
+                    smallest = total;
+                    driver = matches.size();
+                }
+                matches.add(postings);
+            }
+
+            // Walk the rarest token's ids newest first and keep those every other token matches
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+            for (Postings postings : matches.get(driver)) {
+                cursors.add(new Cursor(postings));
+            }
+            List<Map.Entry<Long, Document>> hits = new ArrayList<>(limit);
+            long previous = Long.MIN_VALUE;
+            while (!cursors.isEmpty() && hits.size() < limit) {
+                Cursor cursor = cursors.poll();
+                long id = cursor.current();
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+                if (id == previous) {
+                    continue;
+                }
+                previous = id;
+                if (matchesAll(id, matches, driver)) {
+                    hits.add(Map.entry(id, documents.get(id)));
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean matchesAll(long id, List<Collection<Postings>> matches, int driver) {
+        for (int i = 0; i < matches.size(); i++) {
+            if (i != driver && matches.get(i).stream().noneMatch(postings -> postings.contains(id))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void removeLocked(long expenseId) {
+        Document previous = documents.remove(expenseId);
+        if (previous == null) {
+            return;
+        }
+        for (String token : Tokenizer.tokenize(previous.description())) {
+            Postings postings = terms.get(token);
+            if (postings != null) {
+                postings.remove(expenseId);
+                if (postings.size() == 0) {
+                    terms.remove(token);
+                }
+            }
+        }
+    }
+
+    // Position in one postings list, ordered so the newest id comes out of the queue first
+    private static final class Cursor implements Comparable<Cursor> {
+        private final Postings postings;
+        private int position;
+
+        Cursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        long current() {
+            return postings.newest(position);
+        }
+
+        boolean advance() {
+            return ++position < postings.size();
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return Long.compare(other.current(), current());
+        }
+    }
+}
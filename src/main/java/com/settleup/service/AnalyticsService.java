@@ -0,0 +1,240 @@
+package com.settleup.service;
+
+import com.settleup.concurrency.GroupWrite;
+import com.settleup.dto.GroupAnalytics;
+import com.settleup.dto.RollupEntry;
+import com.settleup.fx.FxRateTable;
+import com.settleup.fx.FxSnapshot;
+import com.settleup.model.Expense;
+import com.settleup.model.GroupRollup;
+import com.settleup.model.Split;
+import com.settleup.repository.GroupRollupRepository;
+import com.settleup.repository.RollupDeltaRepository;
+import com.settleup.repository.RollupDeltaRepository.Delta;
+import com.settleup.sharding.ShardKey;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Spending analytics served from the group_currency_rollups table. ExpenseService and SplitService
+// report every change here inside their transaction, so the rollups commit together with it;
+// reads cost one indexed lookup of the group's rollup rows. Rollups are kept per currency and
+// converted to the base currency when read, with the current FX snapshot, as balances are.
+@Service
+public class AnalyticsService {
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final GroupRollupRepository groupRollupRepository;
+    private final RollupDeltaRepository rollupDeltaRepository;
+    private final FxRateTable fxRateTable;
+    private final boolean enabled;
+
+    public AnalyticsService(GroupRollupRepository groupRollupRepository,
+                            RollupDeltaRepository rollupDeltaRepository,
+                            FxRateTable fxRateTable,
+                            @Value("${settleup.analytics.enabled:false}") boolean enabled) {
+        this.groupRollupRepository = groupRollupRepository;
+        this.rollupDeltaRepository = rollupDeltaRepository;
+        this.fxRateTable = fxRateTable;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Amounts in the base currency: each currency's rollup is converted in cents, then summed
+    @Transactional(readOnly = true)
+    public GroupAnalytics getGroupAnalytics(@ShardKey(ShardKey.Type.GROUP) Long groupId) {
+        FxSnapshot fx = fxRateTable.current();
+        Map<GroupRollup.Dimension, Map<String, long[]>> totals = new EnumMap<>(GroupRollup.Dimension.class);
+        for (GroupRollup.Dimension dimension : GroupRollup.Dimension.values()) {
+            totals.put(dimension, new LinkedHashMap<>());
+        }
+        for (GroupRollup rollup : groupRollupRepository.findByIdGroupId(groupId)) {
+            long[] total = totals.get(rollup.getId().getDimension())
+                    .computeIfAbsent(rollup.getId().getDimKey(), key -> new long[2]);
+            total[0] += fx.toBaseCents(rollup.getAmount().movePointRight(2).longValueExact(), rollup.getId().getCurrency());
+            total[1] += rollup.getItemCount();
+        }
+        Map<GroupRollup.Dimension, List<RollupEntry>> byDimension = new EnumMap<>(GroupRollup.Dimension.class);
+        totals.forEach((dimension, entries) -> {
+            List<RollupEntry> list = new ArrayList<>();
+            entries.forEach((key, total) -> {
+                if (total[1] != 0) {
+                    list.add(new RollupEntry(key, BigDecimal.valueOf(total[0], 2), total[1]));
+                }
+            });
+            byDimension.put(dimension, list);
+        });
+        Comparator<RollupEntry> largestFirst = Comparator.comparing(RollupEntry::getAmount).reversed();
+        byDimension.get(GroupRollup.Dimension.PAYER).sort(largestFirst);
+        byDimension.get(GroupRollup.Dimension.MEMBER).sort(largestFirst);
+        byDimension.get(GroupRollup.Dimension.MONTH).sort(Comparator.comparing(RollupEntry::getKey));
+        byDimension.get(GroupRollup.Dimension.STATUS).sort(Comparator.comparing(RollupEntry::getKey));
+        return new GroupAnalytics(groupId,
+                byDimension.get(GroupRollup.Dimension.PAYER),
+                byDimension.get(GroupRollup.Dimension.MEMBER),
+                byDimension.get(GroupRollup.Dimension.MONTH),
+                byDimension.get(GroupRollup.Dimension.STATUS));
+    }
+
+    // Write hooks, called inside the transaction that makes the change
+
+    public void onExpenseCreated(Expense expense, Collection<Split> splits) {
+        if (enabled) {
+            rollupDeltaRepository.apply(expenseDeltas(expense, splits, 1));
+        }
+    }
+
+    // Expenses written by set-based inserts, with their splits: one set of deltas for all of them
+    public void onExpensesCreated(Collection<Expense> expenses) {
+        if (!enabled || expenses.isEmpty()) {
+            return;
+        }
+        Map<GroupRollup.Key, Delta> deltas = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            expenseDeltas(expense, expense.getSplits(), 1).forEach((key, delta) -> deltas.merge(key, delta, Delta::plus));
+        }
+        rollupDeltaRepository.apply(deltas);
+    }
+
+    public void onExpenseDeleted(Expense expense) {
+        if (enabled) {
+            rollupDeltaRepository.apply(expenseDeltas(expense, expense.getSplits(), -1));
+        }
+    }
+
+    // What the expense adds to the rollups before an edit, to hand back to onExpenseChanged
+    public Map<GroupRollup.Key, Delta> snapshot(Expense expense) {
+        return enabled ? expenseDeltas(expense, expense.getSplits(), 1) : Map.of();
+    }
+
+    // An expense was edited: its payer, amount, currency and splits may all have changed, so the
+    // rollups move by what it adds now minus what it added before, each in its own currency
+    public void onExpenseChanged(Expense expense, Map<GroupRollup.Key, Delta> before) {
+        if (!enabled || expense.getGroup() == null) {
+            return;
+        }
+        Map<GroupRollup.Key, Delta> deltas = expenseDeltas(expense, expense.getSplits(), 1);
+        before.forEach((key, delta) -> deltas.merge(key, new Delta(delta.amount().negate(), -delta.count()), Delta::plus));
+        deltas.values().removeIf(delta -> delta.amount().signum() == 0 && delta.count() == 0);
+        rollupDeltaRepository.apply(deltas);
+    }
+
+    public void onSplitStatusChanged(Split split, Split.SplitStatus previous) {
+        if (!enabled || previous == split.getStatus() || split.getExpense().getGroup() == null) {
+            return;
+        }
+        Map<GroupRollup.Key, Delta> deltas = new LinkedHashMap<>();
+        long groupId = split.getExpense().getGroup().getId();
+        String currency = currency(split.getExpense());
+        add(deltas, groupId, currency, GroupRollup.Dimension.STATUS, previous.name(), split.getAmount().negate(), -1);
+        add(deltas, groupId, currency, GroupRollup.Dimension.STATUS, split.getStatus().name(), split.getAmount(), 1);
+        rollupDeltaRepository.apply(deltas);
+    }
+
+    public void onSplitAmountChanged(Split split, BigDecimal previous) {
+        if (!enabled || split.getExpense().getGroup() == null) {
+            return;
+        }
+        BigDecimal difference = split.getAmount().subtract(previous);
+        if (difference.signum() == 0) {
+            return;
+        }
+        Map<GroupRollup.Key, Delta> deltas = new LinkedHashMap<>();
+        long groupId = split.getExpense().getGroup().getId();
+        String currency = currency(split.getExpense());
+        add(deltas, groupId, currency, GroupRollup.Dimension.MEMBER, split.getUser().getId().toString(), difference, 0);
+        add(deltas, groupId, currency, GroupRollup.Dimension.STATUS, split.getStatus().name(), difference, 0);
+        rollupDeltaRepository.apply(deltas);
+    }
+
+    public void onSplitDeleted(Split split) {
+        if (enabled && split.getExpense().getGroup() != null) {
+            Map<GroupRollup.Key, Delta> deltas = new LinkedHashMap<>();
+            addSplit(deltas, split.getExpense().getGroup().getId(), currency(split.getExpense()), split, -1);
+            rollupDeltaRepository.apply(deltas);
+        }
+    }
+
+    // Called in the transaction that removes the group's last expenses
+    public void onGroupPurged(Long groupId) {
+        if (enabled) {
+            rollupDeltaRepository.deleteGroup(groupId);
+        }
+    }
+
+    // Recomputes one group's rollups from its expenses and splits, under the group's write lock
+    @GroupWrite
+    @Transactional
+    public void rebuildGroup(@ShardKey(ShardKey.Type.GROUP) Long groupId) {
+        rollupDeltaRepository.rebuildGroup(groupId, fxRateTable.current().getBaseCurrency());
+    }
+
+    private Map<GroupRollup.Key, Delta> expenseDeltas(Expense expense, Collection<Split> splits, int sign) {
+        Map<GroupRollup.Key, Delta> deltas = new LinkedHashMap<>();
+        // Rollups are per group; an expense without one has none
+        if (expense.getGroup() == null) {
+            return deltas;
+        }
+        long groupId = expense.getGroup().getId();
+        String currency = currency(expense);
+        BigDecimal amount = expense.getAmount() == null ? BigDecimal.ZERO : expense.getAmount();
+        BigDecimal signedAmount = sign < 0 ? amount.negate() : amount;
+        if (expense.getPaidBy() != null) {
+            add(deltas, groupId, currency, GroupRollup.Dimension.PAYER, expense.getPaidBy().getId().toString(), signedAmount, sign);
+        }
+        LocalDateTime recorded = recordedAt(expense, splits);
+        if (recorded != null) {
+            add(deltas, groupId, currency, GroupRollup.Dimension.MONTH, recorded.format(MONTH), signedAmount, sign);
+        }
+        if (splits != null) {
+            for (Split split : splits) {
+                addSplit(deltas, groupId, currency, split, sign);
+            }
+        }
+        return deltas;
+    }
+
+    private static void addSplit(Map<GroupRollup.Key, Delta> deltas, long groupId, String currency, Split split, int sign) {
+        BigDecimal amount = sign < 0 ? split.getAmount().negate() : split.getAmount();
+        add(deltas, groupId, currency, GroupRollup.Dimension.MEMBER, split.getUser().getId().toString(), amount, sign);
+        add(deltas, groupId, currency, GroupRollup.Dimension.STATUS, split.getStatus().name(), amount, sign);
+    }
+
+    // Same rule as the backfill: expenses recorded without a currency are in the base currency
+    private String currency(Expense expense) {
+        return expense.getCurrency() != null ? expense.getCurrency() : fxRateTable.current().getBaseCurrency();
+    }
+
+    // Same rule as the backfill: created_at, or the first split for rows that predate it
+    private static LocalDateTime recordedAt(Expense expense, Collection<Split> splits) {
+        if (expense.getCreatedAt() != null || splits == null) {
+            return expense.getCreatedAt();
+        }
+        return splits.stream()
+                .map(Split::getCreatedAt)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+    }
+
+    private static void add(Map<GroupRollup.Key, Delta> deltas, long groupId, String currency,
+                            GroupRollup.Dimension dimension, String key, BigDecimal amount, long count) {
+        deltas.merge(new GroupRollup.Key(groupId, currency, dimension, key), new Delta(amount, count), Delta::plus);
+    }
+}
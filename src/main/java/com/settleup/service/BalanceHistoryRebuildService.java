@@ -0,0 +1,72 @@
+package com.settleup.service;
+
+import com.settleup.config.BulkDataLoadedEvent;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Builds the balance history from existing splits: after a bulk load, or on demand for data
+// written before the history was kept. Walks the groups a batch of ids at a time and rebuilds
+// each in its own short transaction, like the analytics backfill.
+@Service
+public class BalanceHistoryRebuildService {
+    private final BalanceHistoryService balanceHistoryService;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BalanceHistoryRebuildService(BalanceHistoryService balanceHistoryService,
+                                        JdbcTemplate jdbcTemplate,
+                                        @Value("${settleup.balance-history.rebuild-batch-size:500}") int batchSize) {
+        this.balanceHistoryService = balanceHistoryService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Async
+    @EventListener(BulkDataLoadedEvent.class)
+    public void onBulkDataLoaded() {
+        rebuild();
+    }
+
+    @Async
+    public void rebuild() {
+        if (!balanceHistoryService.isEnabled() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            long lastId = 0;
+            int rebuilt = 0;
+            List<Long> batch;
+            do {
+                batch = jdbcTemplate.queryForList("SELECT id FROM groups WHERE id > ? ORDER BY id LIMIT ?",
+                        Long.class, lastId, batchSize);
+                for (Long groupId : batch) {
+                    balanceHistoryService.rebuildGroup(groupId);
+                    rebuilt++;
+                }
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1);
+                    System.out.println("Balance history rebuild: " + rebuilt + " groups rebuilt");
+                }
+            } while (batch.size() == batchSize);
+            System.out.println("Balance history rebuild finished: " + rebuilt + " groups in "
+                    + (System.currentTimeMillis() - started) + " ms");
+        } catch (RuntimeException e) {
+            System.err.println("Balance history rebuild failed: " + e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+}
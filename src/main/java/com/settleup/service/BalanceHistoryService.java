@@ -0,0 +1,232 @@
+package com.settleup.service;
+
+import com.settleup.concurrency.GroupWrite;
+import com.settleup.dto.BalanceChange;
+import com.settleup.dto.HistoricalBalance;
+import com.settleup.fx.FxRateTable;
+import com.settleup.fx.FxSnapshot;
+import com.settleup.model.Expense;
+import com.settleup.model.Split;
+import com.settleup.repository.BalanceHistoryRepository;
+import com.settleup.repository.BalanceHistoryRepository.Change;
+import com.settleup.repository.GroupRepository;
+import com.settleup.repository.UserRepository;
+import com.settleup.sharding.ShardKey;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Balances as of any moment, from the balance_deltas journal and its daily running totals in
+// balance_buckets. ExpenseService and SplitService report every change here inside their
+// transaction, the way they do to AnalyticsService. A split counts its amount while pending and
+// minus its amount once paid, like the live balance; a change counts from when it was recorded,
+// so a later edit never rewrites an earlier balance. Each currency's total is converted to the
+// base currency with the current FX snapshot.
+@Service
+public class BalanceHistoryService {
+    private final BalanceHistoryRepository balanceHistoryRepository;
+    private final UserRepository userRepository;
+    private final GroupRepository groupRepository;
+    private final FxRateTable fxRateTable;
+    private final boolean enabled;
+
+    public BalanceHistoryService(BalanceHistoryRepository balanceHistoryRepository,
+                                 UserRepository userRepository,
+                                 GroupRepository groupRepository,
+                                 FxRateTable fxRateTable,
+                                 @Value("${settleup.balance-history.enabled:false}") boolean enabled) {
+        this.balanceHistoryRepository = balanceHistoryRepository;
+        this.userRepository = userRepository;
+        this.groupRepository = groupRepository;
+        this.fxRateTable = fxRateTable;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // A user's balance in a group as of the given moment: one bucket per currency plus that day's deltas
+    @Transactional(readOnly = true)
+    public HistoricalBalance getBalanceAt(Long userId, @ShardKey(ShardKey.Type.GROUP) Long groupId, LocalDateTime at) {
+        checkMember(userId, groupId);
+        return new HistoricalBalance(userId, groupId, at, balanceAt(userId, groupId, at, fxRateTable.current()));
+    }
+
+    // How a user's balance in a group moved between two moments, both converted with the same snapshot
+    @Transactional(readOnly = true)
+    public BalanceChange getBalanceChange(Long userId, @ShardKey(ShardKey.Type.GROUP) Long groupId,
+                                          LocalDateTime from, LocalDateTime to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        checkMember(userId, groupId);
+        FxSnapshot fx = fxRateTable.current();
+        BigDecimal opening = balanceAt(userId, groupId, from, fx);
+        BigDecimal closing = balanceAt(userId, groupId, to, fx);
+        return new BalanceChange(userId, groupId, from, to, opening, closing, closing.subtract(opening));
+    }
+
+    // Write hooks, called inside the transaction that makes the change
+
+    public void onExpenseCreated(Expense expense, Collection<Split> splits) {
+        if (enabled) {
+            Map<Change, BigDecimal> deltas = new LinkedHashMap<>();
+            addCreated(deltas, expense, splits);
+            balanceHistoryRepository.apply(deltas);
+        }
+    }
+
+    // Expenses written by set-based inserts, with their splits: one set of deltas for all of them
+    public void onExpensesCreated(Collection<Expense> expenses) {
+        if (!enabled || expenses.isEmpty()) {
+            return;
+        }
+        Map<Change, BigDecimal> deltas = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            addCreated(deltas, expense, expense.getSplits());
+        }
+        balanceHistoryRepository.apply(deltas);
+    }
+
+    public void onExpenseDeleted(Expense expense) {
+        if (enabled && expense.getGroup() != null) {
+            apply(expense.getGroup().getId(), contributions(expense, expense.getSplits()), Map.of());
+        }
+    }
+
+    // What the expense's splits contribute before an edit, to hand back to onExpenseChanged
+    public Map<Contribution, BigDecimal> snapshot(Expense expense) {
+        return enabled ? contributions(expense, expense.getSplits()) : Map.of();
+    }
+
+    // An expense was edited: its currency, split amounts or participants may all have changed
+    public void onExpenseChanged(Expense expense, Map<Contribution, BigDecimal> before) {
+        if (enabled && expense.getGroup() != null) {
+            apply(expense.getGroup().getId(), before, contributions(expense, expense.getSplits()));
+        }
+    }
+
+    public void onSplitStatusChanged(Split split, Split.SplitStatus previous) {
+        if (enabled && previous != split.getStatus() && split.getExpense().getGroup() != null) {
+            Expense expense = split.getExpense();
+            apply(expense.getGroup().getId(),
+                    Map.of(contributionKey(expense, split), contribution(previous, split.getAmount())),
+                    Map.of(contributionKey(expense, split), contribution(split.getStatus(), split.getAmount())));
+        }
+    }
+
+    public void onSplitAmountChanged(Split split, BigDecimal previous) {
+        if (enabled && split.getAmount().compareTo(previous) != 0 && split.getExpense().getGroup() != null) {
+            Expense expense = split.getExpense();
+            apply(expense.getGroup().getId(),
+                    Map.of(contributionKey(expense, split), contribution(split.getStatus(), previous)),
+                    Map.of(contributionKey(expense, split), contribution(split.getStatus(), split.getAmount())));
+        }
+    }
+
+    public void onSplitDeleted(Split split) {
+        if (enabled && split.getExpense().getGroup() != null) {
+            Expense expense = split.getExpense();
+            apply(expense.getGroup().getId(),
+                    Map.of(contributionKey(expense, split), contribution(split.getStatus(), split.getAmount())), Map.of());
+        }
+    }
+
+    // Called in the transaction that removes the group's last expenses
+    public void onGroupPurged(Long groupId) {
+        if (enabled) {
+            balanceHistoryRepository.deleteGroup(groupId);
+        }
+    }
+
+    // Replaces one group's history with one reconstructed from its splits, under the group's write lock
+    @GroupWrite
+    @Transactional
+    public void rebuildGroup(@ShardKey(ShardKey.Type.GROUP) Long groupId) {
+        balanceHistoryRepository.rebuildGroup(groupId, fxRateTable.current().getBaseCurrency());
+    }
+
+    private void checkMember(Long userId, Long groupId) {
+        userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
+        groupRepository.findById(groupId).orElseThrow(() -> new RuntimeException("Group not found"));
+    }
+
+    // Rounded to cents per currency, as the live balance rounds per split
+    private BigDecimal balanceAt(Long userId, Long groupId, LocalDateTime at, FxSnapshot fx) {
+        long cents = 0;
+        for (Map.Entry<String, BigDecimal> balance : balanceHistoryRepository.balanceAt(groupId, userId, at).entrySet()) {
+            cents += fx.toBaseCents(balance.getValue().movePointRight(2).longValueExact(), balance.getKey());
+        }
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    // New splits count from when they were written; recurring occurrences carry their due time.
+    // Balances are per group, so an expense without one records nothing.
+    private void addCreated(Map<Change, BigDecimal> deltas, Expense expense, Collection<Split> splits) {
+        if (splits == null || expense.getGroup() == null) {
+            return;
+        }
+        long groupId = expense.getGroup().getId();
+        String currency = currency(expense);
+        LocalDateTime now = LocalDateTime.now();
+        for (Split split : splits) {
+            LocalDateTime at = split.getCreatedAt() != null ? split.getCreatedAt() : now;
+            deltas.merge(new Change(groupId, split.getUser().getId(), currency, at),
+                    contribution(split.getStatus(), split.getAmount()), BigDecimal::add);
+        }
+    }
+
+    // Records the difference between two sets of contributions as of now
+    private void apply(long groupId, Map<Contribution, BigDecimal> before, Map<Contribution, BigDecimal> after) {
+        Map<Contribution, BigDecimal> difference = new LinkedHashMap<>(after);
+        before.forEach((key, amount) -> difference.merge(key, amount.negate(), BigDecimal::add));
+        LocalDateTime now = LocalDateTime.now();
+        Map<Change, BigDecimal> deltas = new LinkedHashMap<>();
+        difference.forEach((key, amount) -> {
+            if (amount.signum() != 0) {
+                deltas.put(new Change(groupId, key.userId(), key.currency(), now), amount);
+            }
+        });
+        balanceHistoryRepository.apply(deltas);
+    }
+
+    private Map<Contribution, BigDecimal> contributions(Expense expense, Collection<Split> splits) {
+        Map<Contribution, BigDecimal> contributions = new LinkedHashMap<>();
+        if (splits != null) {
+            for (Split split : splits) {
+                contributions.merge(contributionKey(expense, split), contribution(split.getStatus(), split.getAmount()),
+                        BigDecimal::add);
+            }
+        }
+        return contributions;
+    }
+
+    private Contribution contributionKey(Expense expense, Split split) {
+        return new Contribution(split.getUser().getId(), currency(expense));
+    }
+
+    private String currency(Expense expense) {
+        return expense.getCurrency() != null ? expense.getCurrency() : fxRateTable.current().getBaseCurrency();
+    }
+
+    // Pending splits are owed, paid ones are owed back, settled ones no longer count
+    private static BigDecimal contribution(Split.SplitStatus status, BigDecimal amount) {
+        return switch (status) {
+            case PENDING -> amount;
+            case PAID -> amount.negate();
+            case SETTLED -> BigDecimal.ZERO;
+        };
+    }
+
+    // A user's share of balances in one currency
+    public record Contribution(long userId, String currency) {
+    }
+}
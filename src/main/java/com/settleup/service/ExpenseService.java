@@ -3,12 +3,29 @@ package com.settleup.service;
 import com.settleup.model.*;
 import com.settleup.repository.*;
 import com.settleup.dto.AddExpenseRequest;
+import com.settleup.dto.ExpenseSearchHit;
+import com.settleup.dto.SparseFields;
+import com.settleup.dto.UpdateExpenseRequest;
+import com.settleup.concurrency.GroupWrite;
+import com.settleup.fx.FxRateTable;
+import com.settleup.ingest.ExpenseIngest;
+import com.settleup.ingest.IngestJob;
+import com.settleup.outbox.OutboxWriter;
+import com.settleup.search.ExpenseSearchIndex;
+import com.settleup.sharding.ShardKey;
+import com.settleup.sharding.ShardRouter;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -19,33 +36,102 @@ public class ExpenseService {
     private final UserRepository userRepository;
     private final SplitRepository splitRepository;
     private final SplitService splitService;
+    private final FieldProjectionRepository fieldProjectionRepository;
+    private final ShardRouter shardRouter;
+    private final LedgerService ledgerService;
+    private final OutboxWriter outboxWriter;
+    private final ExpenseSearchIndex expenseSearchIndex;
+    private final AnalyticsService analyticsService;
+    private final PurgeRepository purgeRepository;
+    private final FxRateTable fxRateTable;
+    private final BalanceHistoryService balanceHistoryService;
+    private final ExpenseIngest expenseIngest;
 
-    public ExpenseService(ExpenseRepository expenseRepository, GroupRepository groupRepository, UserRepository userRepository, SplitRepository splitRepository, SplitService splitService) {
+    public ExpenseService(ExpenseRepository expenseRepository, GroupRepository groupRepository, UserRepository userRepository, SplitRepository splitRepository, SplitService splitService, FieldProjectionRepository fieldProjectionRepository, ShardRouter shardRouter, LedgerService ledgerService, OutboxWriter outboxWriter, ExpenseSearchIndex expenseSearchIndex, AnalyticsService analyticsService, PurgeRepository purgeRepository, FxRateTable fxRateTable, BalanceHistoryService balanceHistoryService, ExpenseIngest expenseIngest) {
         this.expenseRepository = expenseRepository;
         this.groupRepository = groupRepository;
         this.userRepository = userRepository;
         this.splitRepository = splitRepository;
         this.splitService = splitService;
+        this.fieldProjectionRepository = fieldProjectionRepository;
+        this.shardRouter = shardRouter;
+        this.ledgerService = ledgerService;
+        this.outboxWriter = outboxWriter;
+        this.expenseSearchIndex = expenseSearchIndex;
+        this.analyticsService = analyticsService;
+        this.purgeRepository = purgeRepository;
+        this.fxRateTable = fxRateTable;
+        this.balanceHistoryService = balanceHistoryService;
+        this.expenseIngest = expenseIngest;
     }
 
+    // Two statements whatever the number of expenses: the expenses with their splits, then the
+    // members of their groups. Everything is loaded before rendering, which also lets gathered
+    // expenses outlive their shard's session.
+    @Transactional(readOnly = true)
     public List<Expense> getAllExpenses() {
-        return expenseRepository.findAll();
+        return shardRouter.scatterList(() -> {
+            List<Expense> expenses = expenseRepository.findAllWithSplits();
+            Set<Long> groupIds = new HashSet<>();
+            expenses.forEach(expense -> {
+                if (expense.getGroup() != null) {
+                    groupIds.add(expense.getGroup().getId());
+                }
+            });
+            if (!groupIds.isEmpty()) {
+                groupRepository.findWithMembersByIdIn(groupIds);
+            }
+            return expenses;
+        });
     }
 
-    public Optional<Expense> getExpenseById(Long id) {
+    public Optional<Expense> getExpenseById(@ShardKey(ShardKey.Type.EXPENSE) Long id) {
         return expenseRepository.findById(id);
     }
 
-    public Expense createExpense(Expense expense) {
-        return expenseRepository.save(expense);
+    // Sparse fieldset reads: only the requested columns are selected
+    public List<Map<String, Object>> getAllExpenses(String fields) {
+        List<String> requested = SparseFields.parse(fields, SparseFields.EXPENSE);
+        return shardRouter.scatterList(() -> fieldProjectionRepository.find(Expense.class, SparseFields.EXPENSE,
+                requested, Map.of()));
+    }
+
+    public Optional<Map<String, Object>> getExpenseById(@ShardKey(ShardKey.Type.EXPENSE) Long id, String fields) {
+        return fieldProjectionRepository.findOne(Expense.class, SparseFields.EXPENSE,
+                SparseFields.parse(fields, SparseFields.EXPENSE), Map.of("id", id));
+    }
+
+    @GroupWrite
+    @Transactional
+    public Expense createExpense(@ShardKey(value = ShardKey.Type.GROUP, property = "group.id") Expense expense) {
+        expense.setCurrency(fxRateTable.resolveCurrency(expense.getCurrency()));
+        Expense saved = expenseRepository.save(expense);
+        outboxWriter.expenseCreated(saved);
+        expenseSearchIndex.onExpenseSaved(saved);
+        analyticsService.onExpenseCreated(saved, saved.getSplits());
+        balanceHistoryService.onExpenseCreated(saved, saved.getSplits());
+        return saved;
     }
 
-    public void deleteExpense(Long id) {
-        expenseRepository.deleteById(id);
+    @GroupWrite
+    @Transactional
+    public void deleteExpense(@ShardKey(ShardKey.Type.EXPENSE) Long id) {
+        expenseRepository.findById(id).ifPresent(expense -> {
+            outboxWriter.expenseDeleted(expense);
+            expenseSearchIndex.onExpenseDeleted(expense);
+            analyticsService.onExpenseDeleted(expense);
+            balanceHistoryService.onExpenseDeleted(expense);
+            // Two set-based deletes instead of Hibernate removing each split row by row
+            purgeRepository.deleteExpenses(List.of(expense.getId()));
+            ledgerService.evictGroup(expense.getGroup() == null ? null : expense.getGroup().getId());
+        });
     }
 
-    // Add an expense and split equally among group members
-    public Expense addExpense(Long groupId, Long paidById, BigDecimal amount, String description) {
+    // Add an expense and split equally among group members; a null currency is the base currency
+    @GroupWrite
+    @Transactional
+    public Expense addExpense(@ShardKey(ShardKey.Type.GROUP) Long groupId, Long paidById, BigDecimal amount, String description,
+                              String currency) {
         Group group = groupRepository.findById(groupId).orElseThrow();
         User paidBy = userRepository.findById(paidById).orElseThrow();
         
@@ -54,6 +140,7 @@ public class ExpenseService {
                 .group(group)
                 .paidBy(paidBy)
                 .amount(amount)
+                .currency(fxRateTable.resolveCurrency(currency))
                 .description(description)
                 .splits(new HashSet<>())
                 .build();
@@ -63,11 +150,18 @@ public class ExpenseService {
         // Create splits using SplitService
         Set<Split> splits = splitService.createEqualSplits(expense, group.getMembers());
         expense.setSplits(splits);
+        outboxWriter.expenseCreated(expense);
+        expenseSearchIndex.onExpenseSaved(expense);
+        analyticsService.onExpenseCreated(expense, splits);
+        balanceHistoryService.onExpenseCreated(expense, splits);
         
-        return expenseRepository.save(expense);
+        // The expense is managed by this transaction, so the splits are flushed on commit
+        return expense;
     }
 
-    public Expense addExpense(AddExpenseRequest request) {
+    @GroupWrite
+    @Transactional
+    public Expense addExpense(@ShardKey(value = ShardKey.Type.GROUP, property = "groupId") AddExpenseRequest request) {
         Group group = groupRepository.findById(request.getGroupId()).orElseThrow();
         User paidBy = userRepository.findById(request.getPaidById()).orElseThrow();
 
@@ -76,62 +170,268 @@ public class ExpenseService {
                 .group(group)
                 .paidBy(paidBy)
                 .amount(request.getAmount())
+                .currency(fxRateTable.resolveCurrency(request.getCurrency()))
                 .description(request.getDescription())
                 .splits(new HashSet<>())
                 .build();
         expense = expenseRepository.save(expense);
 
         Set<Split> splits = new HashSet<>();
-        if (request.getSplitType() == Split.SplitType.EQUAL) {
-            // Equal split among all provided users
-            List<AddExpenseRequest.SplitDetail> splitDetails = request.getSplits();
-            int n = splitDetails.size();
-            BigDecimal total = request.getAmount();
-            BigDecimal equalAmount = total.divide(BigDecimal.valueOf(n), 2, BigDecimal.ROUND_HALF_UP);
-            for (AddExpenseRequest.SplitDetail detail : splitDetails) {
-                User user = userRepository.findById(detail.getUserId()).orElseThrow();
-                Split split = Split.builder()
-                        .expense(expense)
-                        .user(user)
-                        .amount(equalAmount)
-                        .splitType(Split.SplitType.EQUAL)
-                        .status(Split.SplitStatus.PENDING)
-                        .build();
-                splits.add(splitRepository.save(split));
+        List<BigDecimal> shares = allocate(request.getSplitType(), request.getAmount(), request.getSplits());
+        for (int i = 0; i < shares.size(); i++) {
+            User user = userRepository.findById(request.getSplits().get(i).getUserId()).orElseThrow();
+            Split split = Split.builder()
+                    .expense(expense)
+                    .user(user)
+                    .amount(shares.get(i))
+                    .splitType(request.getSplitType())
+                    .status(Split.SplitStatus.PENDING)
+                    .build();
+            splits.add(splitRepository.save(split));
+        }
+
+        expense.setSplits(splits);
+        ledgerService.onSplitsSaved(splits);
+        outboxWriter.expenseCreated(expense);
+        expenseSearchIndex.onExpenseSaved(expense);
+        analyticsService.onExpenseCreated(expense, splits);
+        balanceHistoryService.onExpenseCreated(expense, splits);
+        return expense;
+    }
+
+    // Validates an expense and queues it for the ingest writers, which check that the group and
+    // users exist and write it in a batch; its shares are worked out here, as addExpense does
+    public IngestJob submitExpense(AddExpenseRequest request) {
+        if (request.getGroupId() == null || request.getPaidById() == null) {
+            throw new IllegalArgumentException("groupId and paidById are required");
+        }
+        if (request.getAmount() == null || request.getAmount().signum() <= 0) {
+            throw new IllegalArgumentException("amount must be positive");
+        }
+        String currency = fxRateTable.resolveCurrency(request.getCurrency());
+        checkSplits(request.getSplitType(), request.getSplits());
+        List<BigDecimal> shares = allocate(request.getSplitType(), request.getAmount(), request.getSplits());
+
+        LocalDateTime now = LocalDateTime.now();
+        Expense expense = Expense.builder()
+                .group(Group.builder().id(request.getGroupId()).build())
+                .paidBy(userWithId(request.getPaidById()))
+                .amount(request.getAmount())
+                .currency(currency)
+                .description(request.getDescription())
+                .createdAt(now)
+                .splits(new HashSet<>())
+                .build();
+        for (int i = 0; i < shares.size(); i++) {
+            if (shares.get(i).signum() <= 0) {
+                throw new IllegalArgumentException("Every split needs a positive share");
             }
-        } else if (request.getSplitType() == Split.SplitType.PERCENTAGE) {
-            // Split based on percentage
-            for (AddExpenseRequest.SplitDetail detail : request.getSplits()) {
-                User user = userRepository.findById(detail.getUserId()).orElseThrow();
-                BigDecimal userAmount = request.getAmount().multiply(BigDecimal.valueOf(detail.getPercentage() / 100.0));
-                userAmount = userAmount.setScale(2, BigDecimal.ROUND_HALF_UP);
-                Split split = Split.builder()
-                        .expense(expense)
-                        .user(user)
-                        .amount(userAmount)
-                        .splitType(Split.SplitType.PERCENTAGE)
-                        .status(Split.SplitStatus.PENDING)
-                        .build();
-                splits.add(splitRepository.save(split));
+            expense.getSplits().add(Split.builder()
+                    .expense(expense)
+                    .user(userWithId(request.getSplits().get(i).getUserId()))
+                    .amount(shares.get(i))
+                    .splitType(request.getSplitType())
+                    .status(Split.SplitStatus.PENDING)
+                    .createdAt(now)
+                    .build());
+        }
+        return expenseIngest.submit(expense);
+    }
+
+    public boolean isIngestEnabled() {
+        return expenseIngest.isEnabled();
+    }
+
+    public Optional<IngestJob> getIngestJob(Long jobId) {
+        return expenseIngest.getJob(jobId);
+    }
+
+    // Edit an expense in place: the new allocation is diffed against the current splits, so only
+    // shares that change are updated, new participants get a split and dropped ones lose theirs.
+    // Untouched splits keep their id and status, including PAID. A PAID or SETTLED share records
+    // what was paid, so an edit that would resize or drop one is rejected (IllegalArgumentException).
+    @GroupWrite
+    @Transactional
+    public Expense updateExpense(@ShardKey(ShardKey.Type.EXPENSE) Long id, UpdateExpenseRequest request) {
+        Expense expense = expenseRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Expense not found"));
+        User previousPayer = expense.getPaidBy();
+        BigDecimal previousAmount = expense.getAmount();
+        String previousCurrency = expense.getCurrency();
+        Map<GroupRollup.Key, RollupDeltaRepository.Delta> previousRollups = analyticsService.snapshot(expense);
+        Map<BalanceHistoryService.Contribution, BigDecimal> previousBalances = balanceHistoryService.snapshot(expense);
+        if (request.getPaidById() != null) {
+            expense.setPaidBy(userRepository.findById(request.getPaidById())
+                    .orElseThrow(() -> new RuntimeException("User not found")));
+        }
+        if (request.getAmount() != null) {
+            expense.setAmount(request.getAmount());
+        }
+        if (request.getDescription() != null) {
+            expense.setDescription(request.getDescription());
+        }
+        if (request.getCurrency() != null) {
+            expense.setCurrency(fxRateTable.resolveCurrency(request.getCurrency()));
+        }
+
+        Map<Long, Split> current = new HashMap<>();
+        List<Split> removed = new ArrayList<>();
+        for (Split split : expense.getSplits()) {
+            Split duplicate = current.put(split.getUser().getId(), split);
+            if (duplicate != null) {
+                removed.add(duplicate);
             }
-        } else if (request.getSplitType() == Split.SplitType.CUSTOM) {
-            // Custom amount for each user
-            for (AddExpenseRequest.SplitDetail detail : request.getSplits()) {
-                User user = userRepository.findById(detail.getUserId()).orElseThrow();
-                Split split = Split.builder()
+        }
+        Split.SplitType splitType = request.getSplitType() != null ? request.getSplitType()
+                : current.values().stream().map(Split::getSplitType).findFirst().orElse(Split.SplitType.EQUAL);
+        Map<Long, BigDecimal> target = targetAllocation(expense, request, splitType, current, previousAmount);
+
+        List<Split> added = new ArrayList<>();
+        List<Split> resized = new ArrayList<>();
+        for (Map.Entry<Long, BigDecimal> entry : target.entrySet()) {
+            Split split = current.remove(entry.getKey());
+            if (split == null) {
+                User user = userRepository.findById(entry.getKey())
+                        .orElseThrow(() -> new RuntimeException("User not found"));
+                Split created = splitRepository.save(Split.builder()
                         .expense(expense)
                         .user(user)
-                        .amount(detail.getAmount().setScale(2, BigDecimal.ROUND_HALF_UP))
-                        .splitType(Split.SplitType.CUSTOM)
+                        .amount(entry.getValue())
+                        .splitType(splitType)
                         .status(Split.SplitStatus.PENDING)
-                        .build();
-                splits.add(splitRepository.save(split));
+                        .build());
+                expense.getSplits().add(created);
+                added.add(created);
+            } else if (split.getAmount().compareTo(entry.getValue()) != 0 || split.getSplitType() != splitType) {
+                checkPending(split, "resize");
+                // Managed, so the change is flushed as an update of this row only
+                split.setAmount(entry.getValue());
+                split.setSplitType(splitType);
+                resized.add(split);
             }
+        }
+        current.values().forEach(split -> checkPending(split, "remove"));
+        removed.addAll(current.values());
+        removed.forEach(expense.getSplits()::remove);
+        splitRepository.deleteAll(removed);
+
+        boolean payerChanged = previousPayer == null || !previousPayer.getId().equals(expense.getPaidBy().getId());
+        // Every split of the expense converts differently in another currency
+        boolean currencyChanged = !fxRateTable.resolveCurrency(previousCurrency).equals(expense.getCurrency());
+        if (payerChanged || currencyChanged) {
+            ledgerService.evictGroup(expense.getGroup() == null ? null : expense.getGroup().getId());
         } else {
-            throw new IllegalArgumentException("Unsupported split type");
+            ledgerService.onSplitsSaved(added);
+            ledgerService.onSplitsSaved(resized);
+            removed.forEach(ledgerService::onSplitDeleted);
         }
+        analyticsService.onExpenseChanged(expense, previousRollups);
+        balanceHistoryService.onExpenseChanged(expense, previousBalances);
+        outboxWriter.expenseUpdated(expense);
+        resized.forEach(split -> outboxWriter.splitChanged(split, OutboxEvent.EventType.SPLIT_AMOUNT_CHANGED));
+        removed.forEach(split -> outboxWriter.splitChanged(split, OutboxEvent.EventType.SPLIT_DELETED));
+        expenseSearchIndex.onExpenseSaved(expense);
+        return expense;
+    }
 
-        expense.setSplits(splits);
-        return expenseRepository.save(expense);
+    private static void checkPending(Split split, String change) {
+        if (split.getStatus() != Split.SplitStatus.PENDING) {
+            throw new IllegalArgumentException("Cannot " + change + " the " + split.getStatus() + " share of user "
+                    + split.getUser().getId());
+        }
+    }
+
+    // Target share per user for an edit. Without new split details the participants stay; an
+    // equal split is recomputed, other split types keep their amounts unless the total changes.
+    private Map<Long, BigDecimal> targetAllocation(Expense expense, UpdateExpenseRequest request, Split.SplitType splitType,
+                                                   Map<Long, Split> current, BigDecimal previousAmount) {
+        List<AddExpenseRequest.SplitDetail> details = request.getSplits();
+        if (details == null) {
+            if (splitType != Split.SplitType.EQUAL) {
+                if (previousAmount != null && previousAmount.compareTo(expense.getAmount()) != 0) {
+                    throw new IllegalArgumentException("Split details are required to change the amount of a "
+                            + splitType + " expense");
+                }
+                Map<Long, BigDecimal> unchanged = new LinkedHashMap<>();
+                current.forEach((userId, split) -> unchanged.put(userId, split.getAmount()));
+                return unchanged;
+            }
+            details = new ArrayList<>();
+            for (Long userId : current.keySet()) {
+                AddExpenseRequest.SplitDetail detail = new AddExpenseRequest.SplitDetail();
+                detail.setUserId(userId);
+                details.add(detail);
+            }
+        }
+        List<BigDecimal> shares = allocate(splitType, expense.getAmount(), details);
+        Map<Long, BigDecimal> target = new LinkedHashMap<>();
+        for (int i = 0; i < shares.size(); i++) {
+            if (target.put(details.get(i).getUserId(), shares.get(i)) != null) {
+                throw new IllegalArgumentException("User " + details.get(i).getUserId() + " appears twice in the splits");
+            }
+        }
+        return target;
+    }
+
+    // Share of each split detail, in order, for the given split type and total
+    static List<BigDecimal> allocate(Split.SplitType splitType, BigDecimal total,
+                                             List<AddExpenseRequest.SplitDetail> details) {
+        if (details == null || details.isEmpty()) {
+            throw new IllegalArgumentException("An expense needs at least one participant");
+        }
+        List<BigDecimal> shares = new ArrayList<>(details.size());
+        for (AddExpenseRequest.SplitDetail detail : details) {
+            if (splitType == Split.SplitType.EQUAL) {
+                // Equal split among all provided users
+                shares.add(total.divide(BigDecimal.valueOf(details.size()), 2, BigDecimal.ROUND_HALF_UP));
+            } else if (splitType == Split.SplitType.PERCENTAGE) {
+                // Split based on percentage
+                shares.add(total.multiply(BigDecimal.valueOf(detail.getPercentage() / 100.0))
+                        .setScale(2, BigDecimal.ROUND_HALF_UP));
+            } else if (splitType == Split.SplitType.CUSTOM) {
+                // Custom amount for each user
+                shares.add(detail.getAmount().setScale(2, BigDecimal.ROUND_HALF_UP));
+            } else {
+                throw new IllegalArgumentException("Unsupported split type");
+            }
+        }
+        return shares;
+    }
+
+    // Everything allocate reads from a split for this split type is there; nothing is checked
+    // against the database, which is left to the ingest writers
+    private static void checkSplits(Split.SplitType splitType, List<AddExpenseRequest.SplitDetail> details) {
+        if (splitType == null) {
+            throw new IllegalArgumentException("splitType is required");
+        }
+        if (details == null || details.isEmpty()) {
+            throw new IllegalArgumentException("An expense needs at least one participant");
+        }
+        for (AddExpenseRequest.SplitDetail detail : details) {
+            if (detail == null || detail.getUserId() == null) {
+                throw new IllegalArgumentException("Every split needs a userId");
+            }
+            if (splitType == Split.SplitType.PERCENTAGE && detail.getPercentage() == null) {
+                throw new IllegalArgumentException("The split of user " + detail.getUserId() + " needs a percentage");
+            }
+            if (splitType == Split.SplitType.CUSTOM && detail.getAmount() == null) {
+                throw new IllegalArgumentException("The split of user " + detail.getUserId() + " needs an amount");
+            }
+        }
+    }
+
+    private static User userWithId(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    public boolean isSearchReady() {
+        return expenseSearchIndex.isReady();
+    }
+
+    // Newest expenses of a group whose description matches every word of the query as a prefix
+    public List<ExpenseSearchHit> searchExpenses(Long groupId, String query, int limit) {
+        return expenseSearchIndex.search(groupId, query, limit);
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,49 +1,163 @@
 package com.settleup.service;
 
+import com.settleup.dto.BulkMembershipResult;
+import com.settleup.dto.SparseFields;
+import com.settleup.membership.MembershipIndex;
 import com.settleup.model.Group;
 import com.settleup.model.User;
+import com.settleup.purge.PurgeJob;
+import com.settleup.purge.PurgeService;
+import com.settleup.repository.FieldProjectionRepository;
+import com.settleup.repository.GroupMembershipRepository;
 import com.settleup.repository.GroupRepository;
 import com.settleup.repository.UserRepository;
+import com.settleup.sharding.ReferenceDataReplicator;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class GroupService {
     private final GroupRepository groupRepository;
     private final UserRepository userRepository;
+    private final FieldProjectionRepository fieldProjectionRepository;
+    private final ReferenceDataReplicator referenceDataReplicator;
+    private final GroupMembershipRepository groupMembershipRepository;
+    private final PurgeService purgeService;
+    private final MembershipIndex membershipIndex;
 
-    public GroupService(GroupRepository groupRepository, UserRepository userRepository) {
+    public GroupService(GroupRepository groupRepository, UserRepository userRepository,
+                        FieldProjectionRepository fieldProjectionRepository,
+                        ReferenceDataReplicator referenceDataReplicator,
+                        GroupMembershipRepository groupMembershipRepository,
+                        PurgeService purgeService,
+                        MembershipIndex membershipIndex) {
         this.groupRepository = groupRepository;
         this.userRepository = userRepository;
+        this.fieldProjectionRepository = fieldProjectionRepository;
+        this.referenceDataReplicator = referenceDataReplicator;
+        this.groupMembershipRepository = groupMembershipRepository;
+        this.purgeService = purgeService;
+        this.membershipIndex = membershipIndex;
     }
 
+    // Members are rendered with every group, so they are fetched in the same statement
     public List<Group> getAllGroups() {
-        return groupRepository.findAll();
+        return groupRepository.findAllWithMembers();
     }
 
     public Optional<Group> getGroupById(Long id) {
         return groupRepository.findById(id);
     }
 
+    // Sparse fieldset reads: only the requested columns are selected, members are never loaded
+    public List<Map<String, Object>> getAllGroups(String fields) {
+        return fieldProjectionRepository.find(Group.class, SparseFields.GROUP,
+                SparseFields.parse(fields, SparseFields.GROUP), Map.of());
+    }
+
+    public Optional<Map<String, Object>> getGroupById(Long id, String fields) {
+        return fieldProjectionRepository.findOne(Group.class, SparseFields.GROUP,
+                SparseFields.parse(fields, SparseFields.GROUP), Map.of("id", id));
+    }
+
     public Group createGroup(Group group) {
         if (group.getMembers() == null) {
             group.setMembers(new HashSet<>());
         }
-        return groupRepository.save(group);
+        Group saved = groupRepository.save(group);
+        referenceDataReplicator.replicateGroup(saved);
+        membershipIndex.onMembersAdded(saved.getId(), saved.getMembers().stream().map(User::getId).toList());
+        return saved;
     }
 
-    public void deleteGroup(Long id) {
-        groupRepository.deleteById(id);
+    // Deletes the group with its expenses, splits and memberships in the background
+    public PurgeJob deleteGroup(Long id) {
+        if (!groupRepository.existsById(id)) {
+            throw new RuntimeException("Group not found");
+        }
+        return purgeService.submit(PurgeJob.Target.GROUP, id);
     }
 
     public Group addMember(Long groupId, Long userId) {
         Group group = groupRepository.findById(groupId).orElseThrow();
         User user = userRepository.findById(userId).orElseThrow();
         group.getMembers().add(user);
-        return groupRepository.save(group);
+        Group saved = groupRepository.save(group);
+        referenceDataReplicator.replicateGroup(saved);
+        membershipIndex.onMembersAdded(groupId, List.of(userId));
+        return saved;
+    }
+
+    // Add many users at once; users already in the group and unknown ids are skipped
+    @Transactional
+    public BulkMembershipResult addMembers(Long groupId, List<Long> userIds) {
+        Set<Long> requested = requestedIds(groupId, userIds);
+        Set<Long> known = groupMembershipRepository.findExistingUserIds(requested);
+        int added = groupMembershipRepository.addMembers(groupId, known);
+        referenceDataReplicator.addMembers(groupId, known);
+        membershipIndex.onMembersAdded(groupId, known);
+        return result(groupId, requested, known, added);
+    }
+
+    // Remove many users at once; ids that are not members are skipped
+    @Transactional
+    public BulkMembershipResult removeMembers(Long groupId, List<Long> userIds) {
+        Set<Long> requested = requestedIds(groupId, userIds);
+        Set<Long> known = groupMembershipRepository.findExistingUserIds(requested);
+        int removed = groupMembershipRepository.removeMembers(groupId, known);
+        referenceDataReplicator.removeMembers(groupId, known);
+        membershipIndex.onMembersRemoved(groupId, known);
+        return result(groupId, requested, known, removed);
+    }
+
+    // Membership lookups answer from the in-memory bitmap index once it is built, from
+    // group_members before that (or when settleup.membership-index.enabled is off)
+
+    public boolean isMember(Long groupId, Long userId) {
+        if (membershipIndex.isReady()) {
+            return membershipIndex.isMember(groupId, userId);
+        }
+        return groupMembershipRepository.isMember(groupId, userId);
+    }
+
+    public List<Long> getGroupIdsOfUser(Long userId) {
+        if (membershipIndex.isReady()) {
+            return Arrays.stream(membershipIndex.groupsOf(userId)).boxed().toList();
+        }
+        return groupMembershipRepository.findGroupIds(userId);
+    }
+
+    public List<Long> getCommonGroupIds(Long userId, Long otherUserId) {
+        if (membershipIndex.isReady()) {
+            return Arrays.stream(membershipIndex.commonGroups(userId, otherUserId)).boxed().toList();
+        }
+        return groupMembershipRepository.findCommonGroupIds(userId, otherUserId);
+    }
+
+    private Set<Long> requestedIds(Long groupId, List<Long> userIds) {
+        if (!groupRepository.existsById(groupId)) {
+            throw new RuntimeException("Group not found");
+        }
+        if (userIds == null || userIds.isEmpty()) {
+            throw new IllegalArgumentException("userIds must not be empty");
+        }
+        Set<Long> requested = new LinkedHashSet<>(userIds);
+        requested.removeIf(Objects::isNull);
+        return requested;
+    }
+
+    private static BulkMembershipResult result(Long groupId, Set<Long> requested, Set<Long> known, int changed) {
+        List<Long> unknown = requested.stream().filter(id -> !known.contains(id)).toList();
+        return new BulkMembershipResult(groupId, requested.size(), changed, known.size() - changed, unknown);
     }
-} 
\ No newline at end of file
+}
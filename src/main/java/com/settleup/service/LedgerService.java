@@ -0,0 +1,278 @@
+package com.settleup.service;
+
+import com.settleup.dto.LedgerEntry;
+import com.settleup.dto.OpenSplit;
+import com.settleup.dto.Settlement;
+import com.settleup.fx.FxRateTable;
+import com.settleup.fx.FxSnapshot;
+import com.settleup.ledger.GroupLedger;
+import com.settleup.model.Split;
+import com.settleup.repository.SplitRepository;
+import com.settleup.sharding.ShardKey;
+import com.settleup.util.AfterCommit;
+import com.settleup.util.LongLongMap;
+import com.settleup.util.StripedLocks;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// In-memory group ledgers (settleup.ledger.*): a group's open splits are loaded on first access,
+// kept in a GroupLedger and evicted least-recently-used beyond max-groups. Split writes go to
+// the database first and are applied to resident ledgers once their transaction commits.
+// Amounts are held in the base currency; a ledger converted with an older FX snapshot than the
+// current one is reloaded on its next read.
+@Service
+public class LedgerService {
+    private static final int LOCK_STRIPES = 64;
+
+    private final SplitRepository splitRepository;
+    private final FxRateTable fxRateTable;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+    private final Map<Long, GroupLedger> resident;
+    private final Map<Long, Gauge> residentGauges = new HashMap<>();
+
+    public LedgerService(SplitRepository splitRepository,
+                         FxRateTable fxRateTable,
+                         MeterRegistry meterRegistry,
+                         @Value("${settleup.ledger.enabled:false}") boolean enabled,
+                         @Value("${settleup.ledger.max-groups:1000}") int maxGroups) {
+        this.splitRepository = splitRepository;
+        this.fxRateTable = fxRateTable;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.resident = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, GroupLedger> eldest) {
+                if (size() > maxGroups) {
+                    unregisterGauge(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("settleup.ledger.resident.groups", this, service -> service.residentGroups())
+                .description("Groups held by the in-memory ledger")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal getUserBalance(@ShardKey(ShardKey.Type.GROUP) Long groupId, Long userId) {
+        return BigDecimal.valueOf(withLedger(groupId, ledger -> ledger.balanceCents(userId)), 2);
+    }
+
+    @Transactional(readOnly = true)
+    public List<LedgerEntry> getPendingSplits(@ShardKey(ShardKey.Type.GROUP) Long groupId) {
+        return withLedger(groupId, ledger -> {
+            List<LedgerEntry> entries = new ArrayList<>();
+            ledger.forEachPending((splitId, userId, payerId, cents) ->
+                    entries.add(new LedgerEntry(splitId, userId, payerId, BigDecimal.valueOf(cents, 2))));
+            return entries;
+        });
+    }
+
+    // Fewest-payments plan that clears all pending splits of the group: net every member's
+    // position, then repeatedly match the largest debtor with the largest creditor
+    @Transactional(readOnly = true)
+    public List<Settlement> getSettlements(@ShardKey(ShardKey.Type.GROUP) Long groupId) {
+        LongLongMap net = withLedger(groupId, ledger -> {
+            LongLongMap positions = new LongLongMap();
+            ledger.forEachPending((splitId, userId, payerId, cents) -> {
+                if (userId != payerId) {
+                    positions.addTo(userId, -cents);
+                    positions.addTo(payerId, cents);
+                }
+            });
+            return positions;
+        });
+
+        List<long[]> debtors = new ArrayList<>();
+        List<long[]> creditors = new ArrayList<>();
+        net.forEach((userId, cents) -> {
+            if (cents < 0) {
+                debtors.add(new long[]{userId, -cents});
+            } else if (cents > 0) {
+                creditors.add(new long[]{userId, cents});
+            }
+        });
+        debtors.sort((a, b) -> Long.compare(b[1], a[1]));
+        creditors.sort((a, b) -> Long.compare(b[1], a[1]));
+
+        List<Settlement> settlements = new ArrayList<>();
+        int d = 0;
+        int c = 0;
+        while (d < debtors.size() && c < creditors.size()) {
+            long[] debtor = debtors.get(d);
+            long[] creditor = creditors.get(c);
+            long amount = Math.min(debtor[1], creditor[1]);
+            settlements.add(new Settlement(debtor[0], creditor[0], BigDecimal.valueOf(amount, 2)));
+            debtor[1] -= amount;
+            creditor[1] -= amount;
+            if (debtor[1] == 0) {
+                d++;
+            }
+            if (creditor[1] == 0) {
+                c++;
+            }
+        }
+        return settlements;
+    }
+
+    // Write-through hooks, called by the services after writing splits to the database
+
+    public void onSplitsSaved(Collection<Split> splits) {
+        if (!enabled) {
+            return;
+        }
+        List<Runnable> changes = new ArrayList<>();
+        for (Split split : splits) {
+            if (split.getExpense().getGroup() == null) {
+                continue;
+            }
+            long groupId = split.getExpense().getGroup().getId();
+            long splitId = split.getId();
+            long userId = split.getUser().getId();
+            long payerId = split.getExpense().getPaidBy().getId();
+            long cents = toCents(split.getAmount());
+            String currency = split.getExpense().getCurrency();
+            Split.SplitStatus status = split.getStatus();
+            // Converted with the snapshot current when the change is applied; a ledger built from
+            // another one is reloaded before its next read anyway
+            changes.add(() -> applyIfResident(groupId, ledger -> ledger.upsert(splitId, userId, payerId,
+                    fxRateTable.current().toBaseCents(cents, currency), status)));
+        }
+        AfterCommit.run(changes);
+    }
+
+    public void onSplitSaved(Split split) {
+        onSplitsSaved(List.of(split));
+    }
+
+    public void onSplitDeleted(Split split) {
+        if (!enabled || split.getExpense().getGroup() == null) {
+            return;
+        }
+        long groupId = split.getExpense().getGroup().getId();
+        long splitId = split.getId();
+        AfterCommit.run(List.of(() -> applyIfResident(groupId, ledger -> ledger.remove(splitId))));
+    }
+
+    // Drops a group so its next read reloads from the database
+    public void evictGroup(Long groupId) {
+        if (!enabled || groupId == null) {
+            return;
+        }
+        AfterCommit.run(List.of(() -> {
+            ReentrantLock lock = lockFor(groupId);
+            lock.lock();
+            try {
+                synchronized (resident) {
+                    resident.remove(groupId);
+                    unregisterGauge(groupId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }));
+    }
+
+    // Runs the read against the group's ledger under the group lock, loading it if needed
+    private <T> T withLedger(long groupId, Function<GroupLedger, T> read) {
+        if (!enabled) {
+            throw new IllegalStateException("In-memory ledger is disabled (settleup.ledger.enabled)");
+        }
+        ReentrantLock lock = lockFor(groupId);
+        lock.lock();
+        try {
+            GroupLedger ledger;
+            synchronized (resident) {
+                ledger = resident.get(groupId);
+            }
+            if (ledger == null || ledger.fxVersion() != fxRateTable.current().getVersion()) {
+                ledger = load(groupId);
+            }
+            return read.apply(ledger);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private GroupLedger load(long groupId) {
+        FxSnapshot fx = fxRateTable.current();
+        List<OpenSplit> rows = splitRepository.findOpenSplitsByGroupId(groupId, fx.getVersion(), fx.getBaseCurrency());
+        GroupLedger ledger = new GroupLedger(rows.size(), fx.getVersion());
+        for (OpenSplit row : rows) {
+            ledger.upsert(row.getSplitId(), row.getUserId(), row.getPayerId(), toCents(row.getAmount()), row.getStatus());
+        }
+        synchronized (resident) {
+            // A reload replaces a ledger of an older snapshot, whose gauge still refers to it
+            unregisterGauge(groupId);
+            resident.put(groupId, ledger);
+            residentGauges.computeIfAbsent(groupId, id -> Gauge
+                    .builder("settleup.ledger.resident.bytes", ledger, GroupLedger::residentBytes)
+                    .description("Heap held by a group's in-memory ledger")
+                    .tag("groupId", String.valueOf(id))
+                    .register(meterRegistry));
+        }
+        return ledger;
+    }
+
+    // Changes must not be applied to memory before the database has them, nor be lost if the
+    // ledger is being loaded concurrently: both sides hold the group lock
+    private void applyIfResident(long groupId, Consumer<GroupLedger> change) {
+        ReentrantLock lock = lockFor(groupId);
+        lock.lock();
+        try {
+            GroupLedger ledger;
+            synchronized (resident) {
+                ledger = resident.get(groupId);
+            }
+            if (ledger != null) {
+                change.accept(ledger);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(long groupId) {
+        return locks.lockFor(groupId);
+    }
+
+    private int residentGroups() {
+        synchronized (resident) {
+            return resident.size();
+        }
+    }
+
+    private void unregisterGauge(Long groupId) {
+        Gauge gauge = residentGauges.remove(groupId);
+        if (gauge != null) {
+            meterRegistry.remove(gauge);
+        }
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+}
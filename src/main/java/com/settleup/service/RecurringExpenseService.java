@@ -0,0 +1,117 @@
+package com.settleup.service;
+
+import com.settleup.dto.AddExpenseRequest;
+import com.settleup.dto.RecurringExpenseRequest;
+import com.settleup.fx.FxRateTable;
+import com.settleup.model.Group;
+import com.settleup.model.RecurringExpense;
+import com.settleup.model.RecurringExpenseShare;
+import com.settleup.model.Split;
+import com.settleup.model.User;
+import com.settleup.repository.GroupRepository;
+import com.settleup.repository.RecurringExpenseRepository;
+import com.settleup.repository.UserRepository;
+import com.settleup.sharding.ShardKey;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Recurring expense templates. The shares are allocated once, when the template is created,
+// exactly as /api/expense/flex would split the amount; the RecurringScheduler copies them
+// into every occurrence.
+@Service
+public class RecurringExpenseService {
+    private final RecurringExpenseRepository recurringExpenseRepository;
+    private final GroupRepository groupRepository;
+    private final UserRepository userRepository;
+    private final FxRateTable fxRateTable;
+
+    public RecurringExpenseService(RecurringExpenseRepository recurringExpenseRepository,
+                                   GroupRepository groupRepository,
+                                   UserRepository userRepository,
+                                   FxRateTable fxRateTable) {
+        this.recurringExpenseRepository = recurringExpenseRepository;
+        this.groupRepository = groupRepository;
+        this.userRepository = userRepository;
+        this.fxRateTable = fxRateTable;
+    }
+
+    @Transactional(readOnly = true)
+    public List<RecurringExpense> getRecurringExpenses(@ShardKey(ShardKey.Type.GROUP) Long groupId) {
+        return recurringExpenseRepository.findByGroupIdWithShares(groupId);
+    }
+
+    public Optional<RecurringExpense> getRecurringExpense(@ShardKey(ShardKey.Type.RECURRING) Long id) {
+        return recurringExpenseRepository.findById(id);
+    }
+
+    @Transactional
+    public RecurringExpense createRecurringExpense(
+            @ShardKey(value = ShardKey.Type.GROUP, property = "groupId") RecurringExpenseRequest request) {
+        if (request.getFrequency() == null) {
+            throw new IllegalArgumentException("A recurring expense needs a frequency");
+        }
+        Group group = groupRepository.findById(request.getGroupId())
+                .orElseThrow(() -> new RuntimeException("Group not found"));
+        User paidBy = userRepository.findById(request.getPaidById())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        LocalDateTime startAt = request.getStartAt() != null ? request.getStartAt() : LocalDateTime.now();
+        if (request.getEndAt() != null && request.getEndAt().isBefore(startAt)) {
+            throw new IllegalArgumentException("A recurring expense cannot end before it starts");
+        }
+
+        Split.SplitType splitType = request.getSplitType() != null ? request.getSplitType() : Split.SplitType.EQUAL;
+        List<AddExpenseRequest.SplitDetail> details = request.getSplits();
+        if (details == null) {
+            details = new ArrayList<>();
+            for (User member : group.getMembers()) {
+                AddExpenseRequest.SplitDetail detail = new AddExpenseRequest.SplitDetail();
+                detail.setUserId(member.getId());
+                details.add(detail);
+            }
+        }
+        List<BigDecimal> amounts = ExpenseService.allocate(splitType, request.getAmount(), details);
+
+        RecurringExpense template = RecurringExpense.builder()
+                .group(group)
+                .paidBy(paidBy)
+                .amount(request.getAmount())
+                .currency(fxRateTable.resolveCurrency(request.getCurrency()))
+                .description(request.getDescription())
+                .splitType(splitType)
+                .frequency(request.getFrequency())
+                .startAt(startAt)
+                .endAt(request.getEndAt())
+                .occurrences(0)
+                .nextRunAt(startAt)
+                .shares(new ArrayList<>())
+                .build();
+        Set<Long> participants = new HashSet<>();
+        for (int i = 0; i < amounts.size(); i++) {
+            Long userId = details.get(i).getUserId();
+            if (!participants.add(userId)) {
+                throw new IllegalArgumentException("User " + userId + " appears twice in the splits");
+            }
+            template.getShares().add(RecurringExpenseShare.builder()
+                    .recurringExpense(template)
+                    .user(userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found")))
+                    .amount(amounts.get(i))
+                    .build());
+        }
+        return recurringExpenseRepository.save(template);
+    }
+
+    // Stops future occurrences; expenses already generated stay
+    @Transactional
+    public void deleteRecurringExpense(@ShardKey(ShardKey.Type.RECURRING) Long id) {
+        recurringExpenseRepository.findById(id).ifPresent(recurringExpenseRepository::delete);
+    }
+}
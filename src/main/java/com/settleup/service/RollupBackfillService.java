@@ -0,0 +1,72 @@
+package com.settleup.service;
+
+import com.settleup.config.BulkDataLoadedEvent;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Builds the analytics rollups from existing expenses and splits: after a bulk load, or on demand
+// for data written before the rollups existed. Walks the groups a batch of ids at a time and
+// rebuilds each in its own short transaction, so writers only wait on their own group.
+@Service
+public class RollupBackfillService {
+    private final AnalyticsService analyticsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public RollupBackfillService(AnalyticsService analyticsService,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Value("${settleup.analytics.backfill-batch-size:500}") int batchSize) {
+        this.analyticsService = analyticsService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Async
+    @EventListener(BulkDataLoadedEvent.class)
+    public void onBulkDataLoaded() {
+        backfill();
+    }
+
+    @Async
+    public void backfill() {
+        if (!analyticsService.isEnabled() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            long lastId = 0;
+            int rebuilt = 0;
+            List<Long> batch;
+            do {
+                batch = jdbcTemplate.queryForList("SELECT id FROM groups WHERE id > ? ORDER BY id LIMIT ?",
+                        Long.class, lastId, batchSize);
+                for (Long groupId : batch) {
+                    analyticsService.rebuildGroup(groupId);
+                    rebuilt++;
+                }
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1);
+                    System.out.println("Analytics backfill: " + rebuilt + " groups rebuilt");
+                }
+            } while (batch.size() == batchSize);
+            System.out.println("Analytics backfill finished: " + rebuilt + " groups in "
+                    + (System.currentTimeMillis() - started) + " ms");
+        } catch (RuntimeException e) {
+            System.err.println("Analytics backfill failed: " + e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.settleup.service;
+
+import com.settleup.dto.SparseFields;
+import com.settleup.fx.FxRateTable;
+import com.settleup.fx.FxSnapshot;
+import com.settleup.model.Split;
+import com.settleup.reads.ReadDatabases;
+import com.settleup.repository.SplitReadRepository;
+import org.reactivestreams.Publisher;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Non-blocking split reads (balance, pending by group, total owed, splits by user) over R2DBC.
+// Same answers as the blocking reads in SplitService; writes stay on JPA. Cross-group reads
+// query every shard at once and keep the shard order, like ShardRouter.scatter.
+@Service
+public class SplitReadService {
+    private final ReadDatabases databases;
+    private final SplitReadRepository splitReadRepository;
+    private final FxRateTable fxRateTable;
+    private final LedgerService ledgerService;
+
+    public SplitReadService(ReadDatabases databases,
+                            SplitReadRepository splitReadRepository,
+                            FxRateTable fxRateTable,
+                            LedgerService ledgerService) {
+        this.databases = databases;
+        this.splitReadRepository = splitReadRepository;
+        this.fxRateTable = fxRateTable;
+        this.ledgerService = ledgerService;
+    }
+
+    // Get all splits for a user
+    public Flux<Split> getSplitsByUser(Long userId) {
+        return requireUser(userId).thenMany(scatter(db -> splitReadRepository.findByUser(db, userId)));
+    }
+
+    // Get selected fields of all splits for a user; unknown fields fail right away
+    public Flux<Map<String, Object>> getSplitsByUser(Long userId, String fields) {
+        List<String> requested = SparseFields.parse(fields, SparseFields.SPLIT);
+        return scatter(db -> splitReadRepository.findFieldsByUser(db, requested, userId));
+    }
+
+    // Get user's balance in a group, in the base currency
+    public Mono<BigDecimal> getUserBalanceInGroup(Long userId, Long groupId) {
+        Mono<BigDecimal> balance;
+        if (ledgerService.isEnabled()) {
+            // The ledger may load the group through JPA first
+            balance = Mono.fromCallable(() -> ledgerService.getUserBalance(groupId, userId))
+                    .subscribeOn(Schedulers.boundedElastic());
+        } else {
+            FxSnapshot fx = fxRateTable.current();
+            balance = splitReadRepository.getBalanceInGroup(databases.forGroup(groupId), userId, groupId, fx)
+                    .map(SplitReadService::cents);
+        }
+        return requireUser(userId).then(requireGroup(groupId)).then(balance);
+    }
+
+    // Get all pending splits for a group
+    public Flux<Split> getPendingSplitsByGroup(Long groupId) {
+        return requireGroup(groupId)
+                .thenMany(splitReadRepository.findPendingByGroup(databases.forGroup(groupId), groupId));
+    }
+
+    // Get selected fields of all pending splits for a group; unknown fields fail right away
+    public Flux<Map<String, Object>> getPendingSplitsByGroup(Long groupId, String fields) {
+        List<String> requested = SparseFields.parse(fields, SparseFields.SPLIT);
+        return splitReadRepository.findPendingFieldsByGroup(databases.forGroup(groupId), requested, groupId);
+    }
+
+    // Get total amount owed by a user across all groups, in the base currency. Every shard sums
+    // its part in the database, all with the same FX snapshot.
+    public Mono<BigDecimal> getTotalOwedByUser(Long userId) {
+        FxSnapshot fx = fxRateTable.current();
+        return requireUser(userId)
+                .thenMany(scatter(db -> splitReadRepository.getTotalPendingByUser(db, userId, fx)))
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .map(SplitReadService::cents);
+    }
+
+    private <T> Flux<T> scatter(Function<DatabaseClient, ? extends Publisher<T>> query) {
+        return Flux.fromIterable(databases.all()).flatMapSequential(query);
+    }
+
+    private Mono<Void> requireUser(Long userId) {
+        return splitReadRepository.userExists(databases.main(), userId)
+                .flatMap(exists -> exists ? Mono.<Void>empty() : Mono.error(new RuntimeException("User not found")));
+    }
+
+    private Mono<Void> requireGroup(Long groupId) {
+        return splitReadRepository.groupExists(databases.main(), groupId)
+                .flatMap(exists -> exists ? Mono.<Void>empty() : Mono.error(new RuntimeException("Group not found")));
+    }
+
+    // Sums of amounts rounded to cents carry the scale of the rates in some databases
+    private static BigDecimal cents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+}
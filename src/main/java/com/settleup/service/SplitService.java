@@ -1,16 +1,34 @@
 package com.settleup.service;
 
+import com.settleup.concurrency.GroupWrite;
+import com.settleup.dto.CounterpartyBalance;
+import com.settleup.dto.MemberBalance;
+import com.settleup.dto.PairwiseDebt;
+import com.settleup.dto.SparseFields;
+import com.settleup.dto.UserTotal;
+import com.settleup.fx.FxRateTable;
+import com.settleup.fx.FxSnapshot;
 import com.settleup.model.*;
+import com.settleup.outbox.OutboxWriter;
+import com.settleup.repository.FieldProjectionRepository;
 import com.settleup.repository.SplitRepository;
 import com.settleup.repository.ExpenseRepository;
 import com.settleup.repository.UserRepository;
 import com.settleup.repository.GroupRepository;
+import com.settleup.sharding.ShardKey;
+import com.settleup.sharding.ShardRouter;
+import com.settleup.util.LongLongMap;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -22,23 +40,46 @@ public class SplitService {
     private final ExpenseRepository expenseRepository;
     private final UserRepository userRepository;
     private final GroupRepository groupRepository;
+    private final FieldProjectionRepository fieldProjectionRepository;
+    private final ShardRouter shardRouter;
+    private final LedgerService ledgerService;
+    private final OutboxWriter outboxWriter;
+    private final AnalyticsService analyticsService;
+    private final FxRateTable fxRateTable;
+    private final BalanceHistoryService balanceHistoryService;
 
     public SplitService(SplitRepository splitRepository, 
                        ExpenseRepository expenseRepository,
                        UserRepository userRepository,
-                       GroupRepository groupRepository) {
+                       GroupRepository groupRepository,
+                       FieldProjectionRepository fieldProjectionRepository,
+                       ShardRouter shardRouter,
+                       LedgerService ledgerService,
+                       OutboxWriter outboxWriter,
+                       AnalyticsService analyticsService,
+                       FxRateTable fxRateTable,
+                       BalanceHistoryService balanceHistoryService) {
         this.splitRepository = splitRepository;
         this.expenseRepository = expenseRepository;
         this.userRepository = userRepository;
         this.groupRepository = groupRepository;
+        this.fieldProjectionRepository = fieldProjectionRepository;
+        this.shardRouter = shardRouter;
+        this.ledgerService = ledgerService;
+        this.outboxWriter = outboxWriter;
+        this.analyticsService = analyticsService;
+        this.fxRateTable = fxRateTable;
+        this.balanceHistoryService = balanceHistoryService;
     }
 
     // Create splits for an expense with equal distribution
-    public Set<Split> createEqualSplits(Expense expense, Set<User> members) {
+    @GroupWrite
+    public Set<Split> createEqualSplits(@ShardKey(value = ShardKey.Type.GROUP, property = "group.id") Expense expense,
+                                        Set<User> members) {
         BigDecimal splitAmount = expense.getAmount()
                 .divide(BigDecimal.valueOf(members.size()), BigDecimal.ROUND_HALF_UP);
         
-        return members.stream()
+        Set<Split> splits = members.stream()
                 .map(member -> Split.builder()
                         .expense(expense)
                         .user(member)
@@ -48,12 +89,16 @@ public class SplitService {
                         .build())
                 .map(splitRepository::save)
                 .collect(Collectors.toSet());
+        ledgerService.onSplitsSaved(splits);
+        return splits;
     }
 
     // Create splits with custom amounts
-    public Set<Split> createCustomSplits(Expense expense, Set<User> members, 
+    @GroupWrite
+    public Set<Split> createCustomSplits(@ShardKey(value = ShardKey.Type.GROUP, property = "group.id") Expense expense,
+                                       Set<User> members, 
                                        java.util.Map<Long, BigDecimal> userAmounts) {
-        return members.stream()
+        Set<Split> splits = members.stream()
                 .map(member -> {
                     BigDecimal amount = userAmounts.getOrDefault(member.getId(), BigDecimal.ZERO);
                     return Split.builder()
@@ -66,73 +111,104 @@ public class SplitService {
                 })
                 .map(splitRepository::save)
                 .collect(Collectors.toSet());
+        ledgerService.onSplitsSaved(splits);
+        return splits;
     }
 
     // Mark a split as paid
-    public Split markSplitAsPaid(Long splitId) {
+    @GroupWrite
+    public Split markSplitAsPaid(@ShardKey(ShardKey.Type.SPLIT) Long splitId) {
         Split split = splitRepository.findById(splitId)
                 .orElseThrow(() -> new RuntimeException("Split not found"));
+        Split.SplitStatus previous = split.getStatus();
         split.setStatus(Split.SplitStatus.PAID);
-        return splitRepository.save(split);
+        Split saved = splitRepository.save(split);
+        ledgerService.onSplitSaved(saved);
+        analyticsService.onSplitStatusChanged(saved, previous);
+        balanceHistoryService.onSplitStatusChanged(saved, previous);
+        outboxWriter.splitChanged(saved, OutboxEvent.EventType.SPLIT_STATUS_CHANGED);
+        return saved;
     }
 
     // Mark a split as settled
-    public Split markSplitAsSettled(Long splitId) {
+    @GroupWrite
+    public Split markSplitAsSettled(@ShardKey(ShardKey.Type.SPLIT) Long splitId) {
         Split split = splitRepository.findById(splitId)
                 .orElseThrow(() -> new RuntimeException("Split not found"));
+        Split.SplitStatus previous = split.getStatus();
         split.setStatus(Split.SplitStatus.SETTLED);
-        return splitRepository.save(split);
-    }
-
-    // Get all splits for a user
-    public List<Split> getSplitsByUser(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return splitRepository.findByUser(user);
+        Split saved = splitRepository.save(split);
+        ledgerService.onSplitSaved(saved);
+        analyticsService.onSplitStatusChanged(saved, previous);
+        balanceHistoryService.onSplitStatusChanged(saved, previous);
+        outboxWriter.splitChanged(saved, OutboxEvent.EventType.SPLIT_STATUS_CHANGED);
+        return saved;
     }
 
     // Get all splits for an expense
-    public List<Split> getSplitsByExpense(Long expenseId) {
+    public List<Split> getSplitsByExpense(@ShardKey(ShardKey.Type.EXPENSE) Long expenseId) {
         Expense expense = expenseRepository.findById(expenseId)
                 .orElseThrow(() -> new RuntimeException("Expense not found"));
         return splitRepository.findByExpense(expense);
     }
 
-    // Get user's balance in a group
-    public BigDecimal getUserBalanceInGroup(Long userId, Long groupId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new RuntimeException("Group not found"));
-        
-        BigDecimal totalOwed = splitRepository.getTotalOwedByUserInGroup(user, group);
-        BigDecimal totalPaid = splitRepository.getTotalPaidByUserInGroup(user, group);
-        
-        return totalOwed.subtract(totalPaid);
+    // Get selected fields of all splits for an expense
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getSplitsByExpense(@ShardKey(ShardKey.Type.EXPENSE) Long expenseId,
+                                                        String fields) {
+        return fieldProjectionRepository.find(Split.class, SparseFields.SPLIT,
+                SparseFields.parse(fields, SparseFields.SPLIT), Map.of("expense.id", expenseId));
+    }
+
+    // Get user's balance in a group, in the base currency
+    public BigDecimal getUserBalanceInGroup(Long userId, @ShardKey(ShardKey.Type.GROUP) Long groupId) {
+        // Looked up rather than counted: entities already in the session cost no query. Checked
+        // before the ledger too, which would answer 0 for an unknown user or group.
+        userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
+        groupRepository.findById(groupId).orElseThrow(() -> new RuntimeException("Group not found"));
+        if (ledgerService.isEnabled()) {
+            return ledgerService.getUserBalance(groupId, userId);
+        }
+        FxSnapshot fx = fxRateTable.current();
+        return cents(splitRepository.getBalanceInGroup(userId, groupId, fx.getVersion(), fx.getBaseCurrency()));
     }
 
     // Get all pending splits for a group
-    public List<Split> getPendingSplitsByGroup(Long groupId) {
+    public List<Split> getPendingSplitsByGroup(@ShardKey(ShardKey.Type.GROUP) Long groupId) {
         Group group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new RuntimeException("Group not found"));
         return splitRepository.findPendingSplitsByGroup(group);
     }
 
     // Update split amount
-    public Split updateSplitAmount(Long splitId, BigDecimal newAmount) {
+    @GroupWrite
+    public Split updateSplitAmount(@ShardKey(ShardKey.Type.SPLIT) Long splitId, BigDecimal newAmount) {
         Split split = splitRepository.findById(splitId)
                 .orElseThrow(() -> new RuntimeException("Split not found"));
+        BigDecimal previous = split.getAmount();
         split.setAmount(newAmount);
-        return splitRepository.save(split);
+        Split saved = splitRepository.save(split);
+        ledgerService.onSplitSaved(saved);
+        analyticsService.onSplitAmountChanged(saved, previous);
+        balanceHistoryService.onSplitAmountChanged(saved, previous);
+        outboxWriter.splitChanged(saved, OutboxEvent.EventType.SPLIT_AMOUNT_CHANGED);
+        return saved;
     }
 
     // Delete a split
-    public void deleteSplit(Long splitId) {
-        splitRepository.deleteById(splitId);
+    @GroupWrite
+    public void deleteSplit(@ShardKey(ShardKey.Type.SPLIT) Long splitId) {
+        splitRepository.findById(splitId).ifPresent(split -> {
+            ledgerService.onSplitDeleted(split);
+            analyticsService.onSplitDeleted(split);
+            balanceHistoryService.onSplitDeleted(split);
+            outboxWriter.splitChanged(split, OutboxEvent.EventType.SPLIT_DELETED);
+            splitRepository.delete(split);
+        });
     }
 
     // Get split by user and expense
-    public Optional<Split> getSplitByUserAndExpense(Long userId, Long expenseId) {
+    public Optional<Split> getSplitByUserAndExpense(Long userId, @ShardKey(ShardKey.Type.EXPENSE) Long expenseId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         Expense expense = expenseRepository.findById(expenseId)
@@ -140,13 +216,83 @@ public class SplitService {
         return splitRepository.findByUserAndExpense(user, expense);
     }
 
-    // Get total amount owed by a user across all groups
+    // Get total amount owed by a user across all groups, in the base currency. Every shard sums
+    // its part in the database, all with the same FX snapshot.
     public BigDecimal getTotalOwedByUser(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        List<Split> pendingSplits = splitRepository.findByUserAndStatus(user, Split.SplitStatus.PENDING);
-        return pendingSplits.stream()
-                .map(Split::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        FxSnapshot fx = fxRateTable.current();
+        return cents(shardRouter.scatter(() -> {
+            userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
+            return splitRepository.getTotalPendingByUser(userId, fx.getVersion(), fx.getBaseCurrency());
+        }).stream().reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    // Every user's total owed across all groups in the base currency, by user id; users owing
+    // nothing are left out. One statement per shard for all users.
+    public Map<Long, BigDecimal> getTotalOwedByUsers() {
+        FxSnapshot fx = fxRateTable.current();
+        Map<Long, BigDecimal> totals = new HashMap<>();
+        for (UserTotal total : shardRouter.scatterList(() ->
+                splitRepository.getTotalPendingByUsers(fx.getVersion(), fx.getBaseCurrency()))) {
+            totals.merge(total.getUserId(), total.getAmount(), BigDecimal::add);
+        }
+        totals.replaceAll((userId, amount) -> cents(amount));
+        return totals;
+    }
+
+    // Every user's balance in each group they have pending or paid shares in, in the base
+    // currency, by user id and group id. One statement per shard for all users and groups.
+    public Map<Long, Map<Long, BigDecimal>> getBalancesInGroups() {
+        FxSnapshot fx = fxRateTable.current();
+        Map<Long, Map<Long, BigDecimal>> balances = new HashMap<>();
+        for (MemberBalance balance : shardRouter.scatterList(() ->
+                splitRepository.getBalancesInGroups(fx.getVersion(), fx.getBaseCurrency()))) {
+            balances.computeIfAbsent(balance.getUserId(), userId -> new HashMap<>())
+                    .put(balance.getGroupId(), cents(balance.getBalance()));
+        }
+        return balances;
+    }
+
+    // Net who-owes-whom for a user across all groups in the base currency, one entry per
+    // counterparty, largest amounts first. Positive amounts are owed to the user.
+    @Transactional(readOnly = true)
+    public List<CounterpartyBalance> getCounterpartyBalances(Long userId) {
+        FxSnapshot fx = fxRateTable.current();
+        // Rows owed by the user and rows owed to them never overlap, so the two lists just concatenate
+        List<PairwiseDebt> debts = shardRouter.scatterList(() -> {
+            List<PairwiseDebt> both = new ArrayList<>(
+                    splitRepository.findPendingDebtsOwedByUser(userId, fx.getVersion(), fx.getBaseCurrency()));
+            both.addAll(splitRepository.findPendingDebtsOwedToUser(userId, fx.getVersion(), fx.getBaseCurrency()));
+            return both;
+        });
+
+        // Net in cents per counterparty id
+        LongLongMap netCents = new LongLongMap(debts.size());
+        Map<Long, String> names = new HashMap<>();
+        for (PairwiseDebt debt : debts) {
+            long cents = debt.getAmount().setScale(2, RoundingMode.UNNECESSARY).movePointRight(2).longValueExact();
+            if (debt.getDebtorId().equals(userId)) {
+                netCents.addTo(debt.getCreditorId(), -cents);
+                names.put(debt.getCreditorId(), debt.getCreditorName());
+            } else {
+                netCents.addTo(debt.getDebtorId(), cents);
+                names.put(debt.getDebtorId(), debt.getDebtorName());
+            }
+        }
+
+        List<CounterpartyBalance> balances = new ArrayList<>(netCents.size());
+        netCents.forEach((counterpartyId, cents) -> {
+            if (cents != 0) {
+                balances.add(new CounterpartyBalance(counterpartyId, names.get(counterpartyId),
+                        BigDecimal.valueOf(cents, 2)));
+            }
+        });
+        balances.sort(Comparator.comparing((CounterpartyBalance b) -> b.getAmount().abs()).reversed()
+                .thenComparing(CounterpartyBalance::getUserId));
+        return balances;
+    }
+
+    // Sums of amounts rounded to cents carry the scale of the rates in some databases
+    private static BigDecimal cents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP);
     }
-} 
\ No newline at end of file
+}
@@ -1,19 +1,32 @@
 package com.settleup.service;
 
+import com.settleup.dto.SparseFields;
 import com.settleup.model.User;
+import com.settleup.purge.PurgeJob;
+import com.settleup.purge.PurgeService;
+import com.settleup.repository.FieldProjectionRepository;
 import com.settleup.repository.UserRepository;
+import com.settleup.sharding.ReferenceDataReplicator;
 
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
+    private final FieldProjectionRepository fieldProjectionRepository;
+    private final ReferenceDataReplicator referenceDataReplicator;
+    private final PurgeService purgeService;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, FieldProjectionRepository fieldProjectionRepository,
+                       ReferenceDataReplicator referenceDataReplicator, PurgeService purgeService) {
         this.userRepository = userRepository;
+        this.fieldProjectionRepository = fieldProjectionRepository;
+        this.referenceDataReplicator = referenceDataReplicator;
+        this.purgeService = purgeService;
     }
 
     public List<User> getAllUsers() {
@@ -24,11 +37,29 @@ public class UserService {
         return userRepository.findById(id);
     }
 
+    // Sparse fieldset reads: only the requested columns are selected
+    public List<Map<String, Object>> getAllUsers(String fields) {
+        return fieldProjectionRepository.find(User.class, SparseFields.USER,
+                SparseFields.parse(fields, SparseFields.USER), Map.of());
+    }
+
+    public Optional<Map<String, Object>> getUserById(Long id, String fields) {
+        return fieldProjectionRepository.findOne(User.class, SparseFields.USER,
+                SparseFields.parse(fields, SparseFields.USER), Map.of("id", id));
+    }
+
     public User createUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        referenceDataReplicator.replicateUser(saved);
+        return saved;
     }
 
-    public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+    // Deletes the user with the expenses they paid, the splits they owe and their memberships,
+    // in the background
+    public PurgeJob deleteUser(Long id) {
+        if (!userRepository.existsById(id)) {
+            throw new RuntimeException("User not found");
+        }
+        return purgeService.submit(PurgeJob.Target.USER, id);
     }
 } 
\ No newline at end of file
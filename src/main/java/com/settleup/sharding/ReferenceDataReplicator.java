@@ -0,0 +1,86 @@
+package com.settleup.sharding;
+
+import com.settleup.model.Group;
+import com.settleup.model.User;
+import com.settleup.repository.FxRateRepository;
+import com.settleup.repository.GroupMembershipRepository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Copies users, groups, memberships and FX rates from the global database to every shard after they
+// change, so shard-local expenses and splits keep their foreign keys and joins.
+// The global database stays the source of truth; nothing happens when sharding is disabled.
+@Component
+public class ReferenceDataReplicator {
+    private final List<JdbcTemplate> shards;
+    private final List<GroupMembershipRepository> shardMemberships;
+    private final List<FxRateRepository> shardFxRates;
+
+    public ReferenceDataReplicator(ShardRouter shardRouter) {
+        this.shards = shardRouter.getShardDataSources().stream().map(JdbcTemplate::new).toList();
+        this.shardMemberships = shards.stream().map(GroupMembershipRepository::new).toList();
+        this.shardFxRates = shards.stream().map(FxRateRepository::new).toList();
+    }
+
+    public void replicateUser(User user) {
+        for (JdbcTemplate shard : shards) {
+            int updated = shard.update("UPDATE users SET name = ?, email = ?, password = ? WHERE id = ?",
+                    user.getName(), user.getEmail(), user.getPassword(), user.getId());
+            if (updated == 0) {
+                shard.update("INSERT INTO users (id, name, email, password) VALUES (?, ?, ?, ?)",
+                        user.getId(), user.getName(), user.getEmail(), user.getPassword());
+            }
+        }
+    }
+
+    public void deleteUser(Long userId) {
+        for (JdbcTemplate shard : shards) {
+            shard.update("DELETE FROM group_members WHERE user_id = ?", userId);
+            shard.update("DELETE FROM users WHERE id = ?", userId);
+        }
+    }
+
+    // Replicates the group row and its full member list
+    public void replicateGroup(Group group) {
+        for (JdbcTemplate shard : shards) {
+            int updated = shard.update("UPDATE groups SET name = ? WHERE id = ?", group.getName(), group.getId());
+            if (updated == 0) {
+                shard.update("INSERT INTO groups (id, name) VALUES (?, ?)", group.getId(), group.getName());
+            }
+            shard.update("DELETE FROM group_members WHERE group_id = ?", group.getId());
+            if (group.getMembers() != null && !group.getMembers().isEmpty()) {
+                shard.batchUpdate("INSERT INTO group_members (group_id, user_id) VALUES (?, ?)",
+                        group.getMembers().stream()
+                                .map(member -> new Object[]{group.getId(), member.getId()})
+                                .toList());
+            }
+        }
+    }
+
+    // Incremental membership changes, without re-copying the group's member list
+    public void addMembers(Long groupId, Collection<Long> userIds) {
+        shardMemberships.forEach(shard -> shard.addMembers(groupId, userIds));
+    }
+
+    public void removeMembers(Long groupId, Collection<Long> userIds) {
+        shardMemberships.forEach(shard -> shard.removeMembers(groupId, userIds));
+    }
+
+    public void deleteGroup(Long groupId) {
+        for (JdbcTemplate shard : shards) {
+            shard.update("DELETE FROM group_members WHERE group_id = ?", groupId);
+            shard.update("DELETE FROM groups WHERE id = ?", groupId);
+        }
+    }
+
+    // An FX snapshot, written again when a shard already has it
+    public void replicateFxRates(long version, Map<String, BigDecimal> rates) {
+        shardFxRates.forEach(shard -> shard.replace(version, rates));
+    }
+}
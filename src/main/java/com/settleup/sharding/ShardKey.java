@@ -0,0 +1,23 @@
+package com.settleup.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks the service method parameter that decides which shard the call runs on.
+// property is a bean property path when the key sits inside the argument (e.g. "group.id").
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+    Type value();
+
+    String property() default "";
+
+    enum Type {
+        GROUP,      // shard chosen by hashing the group id
+        EXPENSE,    // shard encoded in the expense id
+        SPLIT,      // shard encoded in the split id
+        RECURRING   // shard encoded in the recurring expense id
+    }
+}
@@ -0,0 +1,65 @@
+package com.settleup.sharding;
+
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.beans.PropertyAccessorFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Finds the @ShardKey argument of a service call and resolves the id it carries
+public final class ShardKeys {
+    private static final int NO_KEY = -1;
+    private static final Map<Method, Integer> KEY_PARAMETERS = new ConcurrentHashMap<>();
+
+    private ShardKeys() {
+    }
+
+    public static boolean hasKey(Method method) {
+        return KEY_PARAMETERS.computeIfAbsent(method, ShardKeys::findKeyParameter) != NO_KEY;
+    }
+
+    // Returns null when the method has no @ShardKey parameter or the key value is null, including
+    // a null along the property path (an expense without a group)
+    public static Key resolve(Method method, Object[] args) {
+        int index = KEY_PARAMETERS.computeIfAbsent(method, ShardKeys::findKeyParameter);
+        if (index == NO_KEY) {
+            return null;
+        }
+        ShardKey key = keyAnnotation(method, index);
+        Object value = args[index];
+        if (value != null && !key.property().isEmpty()) {
+            try {
+                value = PropertyAccessorFactory.forBeanPropertyAccess(value).getPropertyValue(key.property());
+            } catch (NullValueInNestedPathException e) {
+                value = null;
+            }
+        }
+        return value == null ? null : new Key(key.value(), ((Number) value).longValue());
+    }
+
+    public record Key(ShardKey.Type type, long id) {
+    }
+
+    private static int findKeyParameter(Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof ShardKey) {
+                    return i;
+                }
+            }
+        }
+        return NO_KEY;
+    }
+
+    private static ShardKey keyAnnotation(Method method, int index) {
+        for (Annotation annotation : method.getParameterAnnotations()[index]) {
+            if (annotation instanceof ShardKey shardKey) {
+                return shardKey;
+            }
+        }
+        throw new IllegalStateException("No @ShardKey on parameter " + index + " of " + method);
+    }
+}
@@ -0,0 +1,148 @@
+package com.settleup.sharding;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Maps groups and ids to shards and runs cross-group reads on every shard (scatter-gather).
+// Shard i hands out expense and split ids congruent to i + 1 modulo the shard count, so an id
+// alone identifies its shard. With sharding disabled there are no shards and every call runs
+// on the single datasource.
+@Component
+public class ShardRouter {
+    private final List<DataSource> shardDataSources = new ArrayList<>();
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private final ExecutorService scatterExecutor;
+
+    public ShardRouter(ShardingProperties properties, ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.transactionManager = transactionManager;
+        if (properties.isEnabled()) {
+            for (ShardingProperties.Shard shard : properties.getShards()) {
+                shardDataSources.add(DataSourceBuilder.create()
+                        .url(shard.getUrl())
+                        .username(shard.getUsername())
+                        .password(shard.getPassword())
+                        .driverClassName(shard.getDriverClassName())
+                        .build());
+            }
+            if (shardDataSources.isEmpty()) {
+                throw new IllegalStateException("settleup.sharding.enabled is set but no shards are configured");
+            }
+        }
+        this.scatterExecutor = isEnabled() ? Executors.newFixedThreadPool(properties.getScatterThreads()) : null;
+    }
+
+    public boolean isEnabled() {
+        return !shardDataSources.isEmpty();
+    }
+
+    public int getShardCount() {
+        return shardDataSources.size();
+    }
+
+    public List<DataSource> getShardDataSources() {
+        return shardDataSources;
+    }
+
+    public int shardForGroup(long groupId) {
+        long h = groupId * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (h ^ (h >>> 32)), getShardCount());
+    }
+
+    // Shard owning an expense or split id
+    public int shardForId(long id) {
+        return (int) Math.floorMod(id - 1, (long) getShardCount());
+    }
+
+    // Runs the query once per shard, in parallel and each in its own read-only transaction,
+    // and returns the per-shard results. Without sharding the query runs once in place.
+    public <T> List<T> scatter(Supplier<T> query) {
+        if (!isEnabled()) {
+            return List.of(query.get());
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager.getObject());
+        transaction.setReadOnly(true);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        List<Future<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            int target = shard;
+            futures.add(scatterExecutor.submit(() -> {
+                Integer previous = ShardContext.enter(target);
+                try {
+                    return transaction.execute(status -> query.get());
+                } finally {
+                    ShardContext.restore(previous);
+                }
+            }));
+        }
+
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while querying shards", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Shard query failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    // Runs the task once per shard, one shard after the other, with the shard selected for any
+    // transaction or repository call it makes. Without sharding the task runs once in place.
+    public void forEachShard(Runnable task) {
+        if (!isEnabled()) {
+            task.run();
+            return;
+        }
+        for (int shard = 0; shard < getShardCount(); shard++) {
+            Integer previous = ShardContext.enter(shard);
+            try {
+                task.run();
+            } finally {
+                ShardContext.restore(previous);
+            }
+        }
+    }
+
+    // Flattens per-shard lists
+    public <T> List<T> scatterList(Supplier<List<T>> query) {
+        List<T> merged = new ArrayList<>();
+        scatter(query).forEach(merged::addAll);
+        return merged;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+        for (DataSource dataSource : shardDataSources) {
+            if (dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.settleup.sharding;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Selects the shard for service (and purge chunk) calls with a @ShardKey parameter. Runs before the
+// transaction interceptor, because the connection is bound when the transaction begins.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ShardRoutingAspect {
+    private final ShardRouter shardRouter;
+
+    public ShardRoutingAspect(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Around("execution(* com.settleup.service..*(..)) || execution(* com.settleup.purge.PurgeChunks.*(..))")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!shardRouter.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        ShardKeys.Key key = ShardKeys.resolve(((MethodSignature) joinPoint.getSignature()).getMethod(),
+                joinPoint.getArgs());
+        if (key == null) {
+            return joinPoint.proceed();
+        }
+
+        int shard = key.type() == ShardKey.Type.GROUP ? shardRouter.shardForGroup(key.id()) : shardRouter.shardForId(key.id());
+        Integer previous = ShardContext.enter(shard);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.settleup.sharding;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+// Hibernate only manages the schema of the global database; this brings every shard's schema
+// up to date with the same mappings and interleaves the shard-local identity columns.
+public class ShardSchemaInitializer implements Integrator, SmartInitializingSingleton {
+    // Tables whose rows live on the shards and whose ids must identify the shard
+    private static final List<String> SHARDED_TABLES = List.of("expense", "splits", "recurring_expenses");
+
+    private final ShardRouter shardRouter;
+    private final Environment environment;
+    private Metadata metadata;
+    private SessionFactoryImplementor sessionFactory;
+
+    public ShardSchemaInitializer(ShardRouter shardRouter, Environment environment) {
+        this.shardRouter = shardRouter;
+        this.environment = environment;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                          SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        String ddlAuto = environment.getProperty("spring.jpa.hibernate.ddl-auto", "none");
+        boolean manageSchema = !ddlAuto.equals("none") && !ddlAuto.equals("validate");
+
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            if (manageSchema) {
+                Integer previous = ShardContext.enter(shard);
+                try {
+                    // Shards are only ever updated, never dropped
+                    SchemaManagementToolCoordinator.process(metadata, sessionFactory.getServiceRegistry(),
+                            Map.of("hibernate.hbm2ddl.auto", "update"), action -> { });
+                } finally {
+                    ShardContext.restore(previous);
+                }
+            }
+            interleaveIdentities(shard);
+        }
+    }
+
+    // Shard i generates ids i + 1, i + 1 + n, i + 1 + 2n, ... continuing after its current maximum
+    private void interleaveIdentities(int shard) {
+        int shardCount = shardRouter.getShardCount();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(shardRouter.getShardDataSources().get(shard));
+        for (String table : SHARDED_TABLES) {
+            Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            long next = max + 1 + Math.floorMod(shard - max, (long) shardCount);
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET INCREMENT BY " + shardCount);
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory,
+                             SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
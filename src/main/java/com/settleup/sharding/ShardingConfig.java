@@ -0,0 +1,51 @@
+package com.settleup.sharding;
+
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Replaces the single datasource with one routing between the global database and the shards
+@Configuration
+@ConditionalOnProperty(prefix = "settleup.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public DataSource globalDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSource globalDataSource, ShardRouter shardRouter) {
+        Map<Object, Object> shards = new HashMap<>();
+        for (int i = 0; i < shardRouter.getShardCount(); i++) {
+            shards.put(i, shardRouter.getShardDataSources().get(i));
+        }
+        ShardRoutingDataSource dataSource = new ShardRoutingDataSource();
+        dataSource.setTargetDataSources(shards);
+        dataSource.setDefaultTargetDataSource(globalDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public ShardSchemaInitializer shardSchemaInitializer(ShardRouter shardRouter, Environment environment) {
+        return new ShardSchemaInitializer(shardRouter, environment);
+    }
+
+    // Hands Hibernate's mapping metadata to the schema initializer
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaIntegrator(ShardSchemaInitializer shardSchemaInitializer) {
+        return properties -> properties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> List.of(shardSchemaInitializer));
+    }
+}
@@ -0,0 +1,29 @@
+package com.settleup.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Expense/split shards (settleup.sharding.*). Users and groups stay on spring.datasource.
+@Data
+@ConfigurationProperties(prefix = "settleup.sharding")
+public class ShardingProperties {
+    private boolean enabled = false;
+    private List<Shard> shards = new ArrayList<>();
+
+    // Threads used to query all shards in parallel for cross-group reads
+    private int scatterThreads = 8;
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+
+        // Same database for the non-blocking split reads, e.g. r2dbc:pool:postgresql://host/shard0
+        private String r2dbcUrl;
+    }
+}
@@ -0,0 +1,51 @@
+package com.settleup.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Writes slow-query and request log lines from a background thread, so request threads only
+// enqueue. When the writer falls behind, new lines are dropped and counted rather than
+// blocking requests.
+class SqlLogWriter {
+    private final BlockingQueue<String> lines;
+    private final Counter dropped;
+    private final Thread writer;
+
+    SqlLogWriter(int capacity, MeterRegistry meterRegistry) {
+        this.lines = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.dropped = Counter.builder("settleup.sql.log.dropped")
+                .description("SQL log lines dropped because the log writer fell behind")
+                .register(meterRegistry);
+        this.writer = new Thread(this::drain, "sql-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    void log(String line) {
+        if (!lines.offer(line)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                System.out.println(lines.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Flush whatever is left on shutdown
+        String line;
+        while ((line = lines.poll()) != null) {
+            System.out.println(line);
+        }
+    }
+
+    void close() {
+        writer.interrupt();
+    }
+}
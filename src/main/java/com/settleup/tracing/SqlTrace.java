@@ -0,0 +1,76 @@
+package com.settleup.tracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Statements run by one HTTP request: count, total execution time and the slowest few.
+// Bound to the request thread and handed to read workers (SqlTracePropagation); statements
+// run on other threads (@Async, scatter reads) are not attributed to the request.
+public class SqlTrace {
+    private static final ThreadLocal<SqlTrace> CURRENT = new ThreadLocal<>();
+
+    private final String endpoint;
+    private final int keepSlowest;
+    private final List<Statement> slowest = new ArrayList<>();
+    private int statements;
+    private long totalNanos;
+
+    private SqlTrace(String endpoint, int keepSlowest) {
+        this.endpoint = endpoint;
+        this.keepSlowest = keepSlowest;
+    }
+
+    static SqlTrace begin(String endpoint, int keepSlowest) {
+        SqlTrace trace = new SqlTrace(endpoint, keepSlowest);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    static void resume(SqlTrace trace) {
+        CURRENT.set(trace);
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static SqlTrace current() {
+        return CURRENT.get();
+    }
+
+    void record(String sql, long nanos) {
+        statements++;
+        totalNanos += nanos;
+        if (slowest.size() < keepSlowest) {
+            slowest.add(new Statement(sql, nanos));
+        } else if (keepSlowest > 0) {
+            Statement fastest = slowest.stream().min(Comparator.comparingLong(Statement::nanos)).orElseThrow();
+            if (nanos > fastest.nanos()) {
+                slowest.set(slowest.indexOf(fastest), new Statement(sql, nanos));
+            }
+        }
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    // Slowest first
+    public List<Statement> getSlowest() {
+        List<Statement> sorted = new ArrayList<>(slowest);
+        sorted.sort(Comparator.comparingLong(Statement::nanos).reversed());
+        return sorted;
+    }
+
+    public record Statement(String sql, long nanos) {
+    }
+}
@@ -0,0 +1,52 @@
+package com.settleup.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Opens a SQL trace for each HTTP request and publishes it when the request completes.
+// The trace is also available to later filters as the "settleup.sqlTrace" request attribute.
+// Asynchronous requests keep their trace across dispatches (the read worker in between gets it
+// from SqlTracePropagation) and publish it once, after the last dispatch.
+class SqlTraceFilter extends OncePerRequestFilter {
+    static final String ATTRIBUTE = "settleup.sqlTrace";
+
+    private final SqlTracer tracer;
+
+    SqlTraceFilter(SqlTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlTrace trace = (SqlTrace) request.getAttribute(ATTRIBUTE);
+        if (trace == null) {
+            trace = tracer.beginRequest(request.getMethod(), request.getRequestURI());
+            request.setAttribute(ATTRIBUTE, trace);
+        } else {
+            SqlTrace.resume(trace);
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (isAsyncStarted(request)) {
+                SqlTrace.end();
+            } else {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                tracer.endRequest(trace, request.getMethod() + " " + (pattern != null ? pattern : "UNMATCHED"),
+                        response.getStatus());
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.settleup.tracing;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+
+// Reports each statement execution of the datasource-proxy wrapped datasource to SqlTracer:
+// one execute call is one statement, timed in nanoseconds. A batch of plain statements is
+// reported by its first statement.
+class SqlTraceListener implements QueryExecutionListener {
+    private static final String STARTED = "settleup.sql.started";
+
+    private final ObjectProvider<SqlTracer> tracer;
+
+    SqlTraceListener(ObjectProvider<SqlTracer> tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+        execution.addCustomValue(STARTED, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+        Long started = execution.getCustomValue(STARTED, Long.class);
+        long nanos = started == null ? 0 : System.nanoTime() - started;
+        String sql = queries.isEmpty() ? "(batch)" : queries.get(0).getQuery();
+        tracer.getObject().record(sql, nanos);
+    }
+}
@@ -0,0 +1,93 @@
+package com.settleup.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+import java.util.concurrent.TimeUnit;
+
+// Receives every statement execution from SqlTraceListener: times it, adds it to the running
+// request's trace and sends slow ones to the slow-query log. At the end of a request it
+// publishes the trace as metrics tagged with the endpoint and as a request log line.
+public class SqlTracer {
+    private final SqlTracingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final SqlLogWriter log;
+    private final Timer statementTime;
+    private final Counter slowStatements;
+    private final long slowThresholdNanos;
+
+    public SqlTracer(SqlTracingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.log = new SqlLogWriter(properties.getLogQueueSize(), meterRegistry);
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(properties.getSlowThresholdMs());
+        this.statementTime = Timer.builder("settleup.sql.statement")
+                .description("Execution time of each SQL statement")
+                .register(meterRegistry);
+        this.slowStatements = Counter.builder("settleup.sql.slow")
+                .description("SQL statements at or above settleup.sql-tracing.slow-threshold-ms")
+                .register(meterRegistry);
+    }
+
+    SqlTrace beginRequest(String method, String uri) {
+        return SqlTrace.begin(method + " " + uri, properties.getSlowestPerRequest());
+    }
+
+    void record(String sql, long nanos) {
+        statementTime.record(nanos, TimeUnit.NANOSECONDS);
+        SqlTrace trace = SqlTrace.current();
+        if (trace != null) {
+            trace.record(sql, nanos);
+        }
+        if (nanos >= slowThresholdNanos) {
+            slowStatements.increment();
+            log.log(String.format("SLOW SQL %.1f ms [%s] %s", millis(nanos),
+                    trace != null ? trace.getEndpoint() : Thread.currentThread().getName(), truncate(sql)));
+        }
+    }
+
+    // endpoint is the matched mapping, e.g. "GET /api/splits/user/{userId}", to keep tags bounded
+    void endRequest(SqlTrace trace, String endpoint, int status) {
+        SqlTrace.end();
+        if (trace.getStatements() == 0) {
+            return;
+        }
+        DistributionSummary.builder("settleup.sql.request.statements")
+                .description("SQL statements per HTTP request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(trace.getStatements());
+        Timer.builder("settleup.sql.request.time")
+                .description("Total SQL execution time per HTTP request")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(trace.getTotalNanos(), TimeUnit.NANOSECONDS);
+
+        if (properties.isLogRequests()) {
+            StringBuilder line = new StringBuilder(String.format("SQL %s -> %d: %d statements, %.1f ms",
+                    trace.getEndpoint(), status, trace.getStatements(), millis(trace.getTotalNanos())));
+            for (SqlTrace.Statement statement : trace.getSlowest()) {
+                line.append(String.format("%n    %.1f ms %s", millis(statement.nanos()), truncate(statement.sql())));
+            }
+            log.log(line.toString());
+        }
+    }
+
+    private String truncate(String sql) {
+        String flat = sql == null ? "?" : sql.replaceAll("\\s+", " ").trim();
+        return flat.length() <= properties.getMaxSqlLength() ? flat
+                : flat.substring(0, properties.getMaxSqlLength()) + "...";
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    @PreDestroy
+    public void close() {
+        log.close();
+    }
+}
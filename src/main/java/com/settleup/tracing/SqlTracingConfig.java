@@ -0,0 +1,50 @@
+package com.settleup.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+// Wraps the application datasource with a datasource-proxy that reports every statement to
+// SqlTracer, and traces every HTTP request. Connections, statements and the connection a
+// statement hands back are all proxied by the library. With sharding the wrapped datasource is
+// the shard router, so shard statements are traced too.
+@Configuration
+@ConditionalOnProperty(prefix = "settleup.sql-tracing", name = "enabled", havingValue = "true")
+public class SqlTracingConfig {
+
+    // Static and lazy so the post-processor does not pull the metrics registry in early
+    @Bean
+    public static BeanPostProcessor sqlTracingDataSourcePostProcessor(ObjectProvider<SqlTracer> tracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create("settleup", dataSource)
+                            .listener(new SqlTraceListener(tracer))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SqlTracer sqlTracer(SqlTracingProperties properties, MeterRegistry meterRegistry) {
+        return new SqlTracer(properties, meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlTraceFilter> sqlTraceFilter(SqlTracer sqlTracer) {
+        FilterRegistrationBean<SqlTraceFilter> registration = new FilterRegistrationBean<>(new SqlTraceFilter(sqlTracer));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,27 @@
+package com.settleup.tracing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Per-request SQL tracing and slow-query log (settleup.sql-tracing.*)
+@Data
+@ConfigurationProperties(prefix = "settleup.sql-tracing")
+public class SqlTracingProperties {
+    // Wrap the datasource and time every statement
+    private boolean enabled = false;
+
+    // Statements taking at least this long go to the slow-query log
+    private long slowThresholdMs = 100;
+
+    // Slowest statements kept per request for the request log
+    private int slowestPerRequest = 3;
+
+    // Write one line per request that ran SQL: endpoint, statement count, DB time, slowest statements
+    private boolean logRequests = true;
+
+    // Log lines waiting for the writer thread; lines beyond this are dropped and counted
+    private int logQueueSize = 10000;
+
+    // SQL text is cut to this many characters in log lines
+    private int maxSqlLength = 1000;
+}
@@ -0,0 +1,30 @@
+package com.settleup.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+// Defers in-memory side effects of a write until its transaction commits (dropping them on
+// rollback); runs them right away when no transaction is active
+public final class AfterCommit {
+    private AfterCommit() {
+    }
+
+    public static void run(List<Runnable> actions) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    actions.forEach(Runnable::run);
+                }
+            });
+        } else {
+            actions.forEach(Runnable::run);
+        }
+    }
+
+    public static void run(Runnable action) {
+        run(List.of(action));
+    }
+}
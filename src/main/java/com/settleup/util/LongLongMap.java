@@ -0,0 +1,139 @@
+package com.settleup.util;
+
+import java.util.Arrays;
+
+// Open-addressing hash map from long keys to long values without boxing.
+// Long.MIN_VALUE is reserved as the empty-slot marker and cannot be used as a key.
+public class LongLongMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    public LongLongMap() {
+        this(16);
+    }
+
+    public LongLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long get(long key) {
+        int slot = find(key);
+        return keys[slot] == key ? values[slot] : 0L;
+    }
+
+    public boolean containsKey(long key) {
+        return keys[find(key)] == key;
+    }
+
+    public void put(long key, long value) {
+        int slot = insertionSlot(key);
+        values[slot] = value;
+    }
+
+    // Adds delta to the value of key (missing keys start at zero) and returns the new value
+    public long addTo(long key, long delta) {
+        int slot = insertionSlot(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    // Removes key and returns whether it was present
+    public boolean remove(long key) {
+        int slot = find(key);
+        if (keys[slot] != key) {
+            return false;
+        }
+        // Backward-shift deletion keeps every remaining key reachable from its home slot
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        values[hole] = 0L;
+        size--;
+        return true;
+    }
+
+    // Approximate heap footprint of the backing arrays
+    public long sizeInBytes() {
+        return 16L * keys.length + 32;
+    }
+
+    public void forEach(Consumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int insertionSlot(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Reserved key: " + key);
+        }
+        int slot = find(key);
+        if (keys[slot] != key) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            values[slot] = 0L;
+            size++;
+        }
+        return slot;
+    }
+
+    // Slot holding key, or the empty slot where it would be inserted
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(long key, long value);
+    }
+}
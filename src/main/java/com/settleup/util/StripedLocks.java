@@ -0,0 +1,29 @@
+package com.settleup.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fixed set of locks shared by hashing ids onto them: bounded memory no matter how many
+// ids exist, at the cost of unrelated ids occasionally waiting on the same lock
+public class StripedLocks {
+    private final ReentrantLock[] locks;
+
+    public StripedLocks(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("At least one lock stripe is required");
+        }
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock lockFor(long id) {
+        // Spread sequential ids so neighbouring groups do not share a stripe pattern
+        long h = id * 0x9E3779B97F4A7C15L;
+        return locks[(int) ((h >>> 32) % locks.length)];
+    }
+
+    public int stripes() {
+        return locks.length;
+    }
+}
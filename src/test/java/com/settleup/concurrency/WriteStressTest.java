@@ -0,0 +1,216 @@
+package com.settleup.concurrency;
+
+import com.settleup.model.Expense;
+import com.settleup.model.Group;
+import com.settleup.model.Split;
+import com.settleup.model.User;
+import com.settleup.repository.ExpenseRepository;
+import com.settleup.repository.SplitRepository;
+import com.settleup.service.ExpenseService;
+import com.settleup.service.GroupService;
+import com.settleup.service.SplitService;
+import com.settleup.service.UserService;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Multi-threaded write stress on the embedded H2 database: hammers the expense and split write
+// paths from several threads and checks that nothing was lost, and that writers of different
+// groups do not wait on each other the way writers of one group do (@GroupWrite).
+//
+// Every statement waits ROUND_TRIP_MS, as it would for a database across the network. Without
+// that the in-memory database keeps the CPU busy and, on a machine with few cores, writes to
+// distinct groups could not overlap any more than writes to one group.
+@SpringBootTest(properties = {
+        "settleup.sql-tracing.log-requests=false",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("embedded")
+@Import(WriteStressTest.DatabaseRoundTrip.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class WriteStressTest {
+    private static final int MEMBERS = 4;
+    private static final int THREADS = 4;
+    private static final int OPERATIONS = 25;
+    private static final long ROUND_TRIP_MS = 2;
+    // Writes per second with a group per thread, at least this many times those on one group
+    private static final double MIN_SPEEDUP = 1.5;
+
+    @Autowired
+    private ExpenseService expenseService;
+    @Autowired
+    private SplitService splitService;
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    @Autowired
+    private SplitRepository splitRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> userIds = new ArrayList<>();
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class DatabaseRoundTrip {
+        @Bean
+        static BeanPostProcessor databaseRoundTripPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                        return ProxyDataSourceBuilder.create(dataSource)
+                                .afterQuery((execution, queries) -> {
+                                    try {
+                                        Thread.sleep(ROUND_TRIP_MS);
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                })
+                                .build();
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    @BeforeAll
+    void createUsers() {
+        for (int i = 0; i < MEMBERS; i++) {
+            User user = new User();
+            user.setName("Stress user " + i);
+            user.setEmail("stress" + i + "@settleup.test");
+            user.setPassword("stress");
+            userIds.add(userService.createUser(user).getId());
+        }
+    }
+
+    // Every thread adds expenses to one group; all of them and all their splits must exist afterwards
+    @Test
+    void sameGroupExpenses() throws Exception {
+        long groupId = createGroup("Stress same group");
+        runConcurrently(THREADS, thread -> () -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                addExpense(groupId, i);
+            }
+            return null;
+        });
+
+        List<Expense> expenses = expenseRepository.findWithSplitsByGroupId(groupId);
+        assertThat(expenses).hasSize(THREADS * OPERATIONS);
+        assertThat(expenses).allSatisfy(expense -> assertThat(expense.getSplits()).hasSize(MEMBERS));
+    }
+
+    // Pairs of threads mark the same splits paid and change their amounts; both changes must survive
+    @Test
+    void noLostSplitUpdates() throws Exception {
+        long groupId = createGroup("Stress lost updates");
+        List<Long> splitIds = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS / 4; i++) {
+            Expense expense = expenseService.addExpense(groupId, userIds.get(0), BigDecimal.valueOf(40), "Update " + i, null);
+            splitRepository.findByExpense(expense).forEach(split -> splitIds.add(split.getId()));
+        }
+
+        BigDecimal newAmount = new BigDecimal("12.34");
+        runConcurrently(THREADS, thread -> () -> {
+            for (Long splitId : splitIds) {
+                if (thread % 2 == 0) {
+                    splitService.markSplitAsPaid(splitId);
+                } else {
+                    splitService.updateSplitAmount(splitId, newAmount);
+                }
+            }
+            return null;
+        });
+
+        assertThat(splitRepository.findAllById(splitIds)).allSatisfy(split -> {
+            assertThat(split.getStatus()).isEqualTo(Split.SplitStatus.PAID);
+            assertThat(split.getAmount()).isEqualByComparingTo(newAmount);
+        });
+    }
+
+    // Expense writes per second with several threads, all on one group versus one group per
+    // thread. Writes to one group are serialized; writes to distinct groups overlap.
+    @Test
+    void distinctGroupsScale() throws Exception {
+        List<Long> groups = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            groups.add(createGroup("Stress scaling " + i));
+        }
+        // Warm up both paths before measuring
+        throughput(THREADS, thread -> groups.get(0));
+        throughput(THREADS, groups::get);
+
+        double shared = throughput(THREADS, thread -> groups.get(0));
+        double distinct = throughput(THREADS, groups::get);
+        System.out.printf("expense writes/s with %d threads: one group %.0f, own group %.0f%n", THREADS, shared, distinct);
+        assertThat(distinct).isGreaterThanOrEqualTo(shared * MIN_SPEEDUP);
+    }
+
+    private long createGroup(String name) {
+        Group group = new Group();
+        group.setName(name);
+        long groupId = groupService.createGroup(group).getId();
+        // Adding members touches the lazy member set, which needs an open session outside a web request
+        transactionTemplate.executeWithoutResult(status -> userIds.forEach(userId -> groupService.addMember(groupId, userId)));
+        return groupId;
+    }
+
+    private void addExpense(long groupId, int n) {
+        expenseService.addExpense(groupId, userIds.get(n % MEMBERS), BigDecimal.valueOf(40), "Stress " + n, null);
+    }
+
+    private double throughput(int threads, IntFunction<Long> groupOf) throws Exception {
+        long start = System.nanoTime();
+        runConcurrently(threads, thread -> () -> {
+            long groupId = groupOf.apply(thread);
+            for (int i = 0; i < OPERATIONS; i++) {
+                addExpense(groupId, i);
+            }
+            return null;
+        });
+        return (double) threads * OPERATIONS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static void runConcurrently(int threads, IntFunction<Callable<Void>> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = executor.invokeAll(IntStream.range(0, threads)
+                    .mapToObj(task)
+                    .collect(Collectors.toList()));
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+
+class AnalyticsControllerTest extends QueryBudgetTest {
+
+    @Test
+    void reads() throws Exception {
+        get("/api/analytics/group/1", 1);
+    }
+}
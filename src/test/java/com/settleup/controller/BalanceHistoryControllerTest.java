@@ -0,0 +1,18 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+
+class BalanceHistoryControllerTest extends QueryBudgetTest {
+
+    @Test
+    void reads() throws Exception {
+        get("/api/balances/group/1/user/1?at=2030-01-01T00:00:00", 3);
+        get("/api/balances/group/1/user/1/change?from=2020-01-01T00:00:00&to=2030-01-01T00:00:00", 4);
+    }
+
+    @Test
+    void rebuild() throws Exception {
+        // The rebuild runs in the background, outside the request
+        post("/api/balances/rebuild", "", 0);
+    }
+}
@@ -0,0 +1,46 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+class ExpenseControllerTest extends QueryBudgetTest {
+    private static final String FLEX = "{\"groupId\":2,\"paidById\":1,\"amount\":60,\"description\":\"Budget taxi\","
+            + "\"splitType\":\"EQUAL\",\"splits\":[{\"userId\":1},{\"userId\":2}]}";
+
+    @Test
+    void reads() throws Exception {
+        get("/api/expense", 2);
+        get("/api/expense?fields=id,description,amount", 1);
+        get("/api/expense/1", 3);
+        get("/api/expense/1?fields=id,amount", 1);
+        // Answered from the search index
+        get("/api/expense/search?groupId=1&q=rent", 0);
+    }
+
+    @Test
+    void writes() throws Exception {
+        post("/api/expense/add?groupId=1&paidById=1&amount=90&description=Budget%20pizza", "", 11);
+        post("/api/expense/flex", FLEX, 11);
+        put("/api/expense/3", "{\"amount\":900}", 14);
+        delete("/api/expense/2", 9);
+    }
+
+    @Test
+    void asynchronousWrite() throws Exception {
+        // Checked on the request thread, written by an ingest writer outside the request
+        long jobId = id(post("/api/expense/async", FLEX, 0));
+        get("/api/expense/async/" + jobId, 0);
+    }
+
+    @Test
+    void idempotentRetry() throws Exception {
+        // The first request runs, its retry is answered from memory
+        for (int budget : new int[] {13, 0}) {
+            request(MockMvcRequestBuilders.post("/api/expense/flex")
+                    .header("Idempotency-Key", "budget-retry")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(FLEX), budget);
+        }
+    }
+}
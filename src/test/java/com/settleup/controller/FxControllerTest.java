@@ -0,0 +1,13 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+
+class FxControllerTest extends QueryBudgetTest {
+
+    @Test
+    void readsAndWrites() throws Exception {
+        // Answered from the current snapshot in memory
+        get("/api/fx/rates", 0);
+        put("/api/fx/rates", "{\"EUR\":1.09,\"GBP\":1.27,\"INR\":0.012,\"JPY\":0.0067,\"CAD\":0.73,\"AUD\":0.66}", 3);
+    }
+}
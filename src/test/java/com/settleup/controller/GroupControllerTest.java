@@ -0,0 +1,26 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+
+class GroupControllerTest extends QueryBudgetTest {
+
+    @Test
+    void reads() throws Exception {
+        // Groups are rendered with their members, fetched in the same statement
+        get("/api/groups", 1);
+        get("/api/groups?fields=id,name", 1);
+        get("/api/groups/1", 2);
+        // Answered from the membership index
+        get("/api/groups/2/members/4", 0);
+    }
+
+    @Test
+    void writes() throws Exception {
+        long groupId = id(post("/api/groups", "{\"name\":\"Budget group\"}", 1));
+        post("/api/groups/" + groupId + "/members/1", "", 4);
+        post("/api/groups/" + groupId + "/members", "{\"userIds\":[2,3,4]}", 3);
+        post("/api/groups/" + groupId + "/members/remove", "{\"userIds\":[4]}", 3);
+        // The purge runs in the background, outside the request
+        delete("/api/groups/" + groupId, 1);
+    }
+}
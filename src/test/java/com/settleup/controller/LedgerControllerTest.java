@@ -0,0 +1,16 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = "settleup.ledger.enabled=true")
+class LedgerControllerTest extends QueryBudgetTest {
+
+    @Test
+    void reads() throws Exception {
+        // The first read loads the group's open splits into the ledger, the others are answered from memory
+        get("/api/ledger/group/1/balance/user/1", 1);
+        get("/api/ledger/group/1/pending", 0);
+        get("/api/ledger/group/1/settlements", 0);
+    }
+}
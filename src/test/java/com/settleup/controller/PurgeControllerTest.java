@@ -0,0 +1,16 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+
+class PurgeControllerTest extends QueryBudgetTest {
+
+    @Test
+    void reads() throws Exception {
+        long userId = id(post("/api/users",
+                "{\"name\":\"Purged user\",\"email\":\"purged@settleup.test\",\"password\":\"purged\"}", 1));
+        long jobId = id(delete("/api/users/" + userId, 1));
+        // Jobs are kept in memory
+        get("/api/purge", 0);
+        get("/api/purge/" + jobId, 0);
+    }
+}
@@ -0,0 +1,97 @@
+package com.settleup.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import com.settleup.membership.MembershipIndex;
+import com.settleup.service.ExpenseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+// Query budgets: every test class starts the application on the embedded H2 database with a
+// fresh copy of the sample data (5 users, 3 groups, 5 expenses), calls its controller's endpoints
+// and fails when a request sends more SQL statements than its budget. Catches N+1 regressions
+// such as a new lazy association rendered per row. Reads are budgeted so they stay the same
+// however much data there is; when a change legitimately needs more statements, raise the
+// budget in the same commit and say why.
+@SpringBootTest(properties = {
+        "settleup.sample-data.enabled=true",
+        "settleup.sql-tracing.log-requests=false"
+})
+@ActiveProfiles("embedded")
+@AutoConfigureMockMvc
+@Import(StatementCounter.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+abstract class QueryBudgetTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private StatementCounter statementCounter;
+    @Autowired
+    private ExpenseService expenseService;
+    @Autowired
+    private MembershipIndex membershipIndex;
+
+    @BeforeEach
+    void awaitSampleData() throws InterruptedException {
+        statementCounter.awaitSampleData();
+        while (!expenseService.isSearchReady() || !membershipIndex.isReady()) {
+            Thread.sleep(50);
+        }
+    }
+
+    // Sends the request, waiting for an asynchronous answer, and checks that it succeeded
+    // within the budget. Returns the response body.
+    String request(MockHttpServletRequestBuilder request, int maxStatements) throws Exception {
+        MvcResult result;
+        int statements;
+        StatementCounter.start();
+        try {
+            result = mockMvc.perform(request).andReturn();
+            if (result.getRequest().isAsyncStarted()) {
+                result = mockMvc.perform(asyncDispatch(result)).andReturn();
+            }
+        } finally {
+            statements = StatementCounter.stop();
+        }
+        String query = result.getRequest().getQueryString();
+        String call = result.getRequest().getMethod() + " " + result.getRequest().getRequestURI()
+                + (query == null ? "" : "?" + query);
+        System.out.printf("%-60s %6d %4d statements, budget %d%n", call, result.getResponse().getStatus(),
+                statements, maxStatements);
+        assertThat(result.getResponse().getStatus()).as(call + " status").isLessThan(400);
+        assertThat(statements).as(call + " statements").isLessThanOrEqualTo(maxStatements);
+        return result.getResponse().getContentAsString();
+    }
+
+    String get(String path, int maxStatements) throws Exception {
+        return request(MockMvcRequestBuilders.get(path), maxStatements);
+    }
+
+    String post(String path, String json, int maxStatements) throws Exception {
+        return request(MockMvcRequestBuilders.post(path).contentType(MediaType.APPLICATION_JSON).content(json), maxStatements);
+    }
+
+    String put(String path, String json, int maxStatements) throws Exception {
+        return request(MockMvcRequestBuilders.put(path).contentType(MediaType.APPLICATION_JSON).content(json), maxStatements);
+    }
+
+    String delete(String path, int maxStatements) throws Exception {
+        return request(MockMvcRequestBuilders.delete(path), maxStatements);
+    }
+
+    static long id(String json) {
+        return ((Number) JsonPath.read(json, "$.id")).longValue();
+    }
+}
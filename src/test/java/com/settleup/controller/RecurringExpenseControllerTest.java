@@ -0,0 +1,17 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+
+class RecurringExpenseControllerTest extends QueryBudgetTest {
+
+    @Test
+    void readsAndWrites() throws Exception {
+        long id = id(post("/api/recurring", "{\"groupId\":1,\"paidById\":1,\"amount\":1200,"
+                + "\"description\":\"Budget rent\",\"frequency\":\"MONTHLY\"}", 7));
+        get("/api/recurring/group/1", 2);
+        get("/api/recurring/" + id, 3);
+        // Generation runs on the recurring worker threads, outside the request
+        post("/api/recurring/run", "", 0);
+        delete("/api/recurring/" + id, 6);
+    }
+}
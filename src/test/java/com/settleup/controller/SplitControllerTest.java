@@ -0,0 +1,30 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+
+class SplitControllerTest extends QueryBudgetTest {
+
+    @Test
+    void reads() throws Exception {
+        // R2DBC: the user's existence, then the splits
+        get("/api/splits/user/1", 2);
+        get("/api/splits/user/1?fields=id,amount,status", 1);
+        get("/api/splits/expense/1", 2);
+        get("/api/splits/expense/1?fields=id,amount", 1);
+        // R2DBC: the user's and the group's existence, then the balance
+        get("/api/splits/balance/user/1/group/1", 3);
+        get("/api/splits/pending/group/1", 2);
+        get("/api/splits/pending/group/1?fields=id,amount", 1);
+        get("/api/splits/total-owed/user/1", 2);
+        get("/api/splits/counterparties/user/1", 2);
+        get("/api/splits/user/1/expense/1", 3);
+    }
+
+    @Test
+    void writes() throws Exception {
+        put("/api/splits/1/mark-paid", "", 8);
+        put("/api/splits/2/mark-settled", "", 10);
+        put("/api/splits/3/amount?newAmount=12.50", "", 9);
+        delete("/api/splits/3", 8);
+    }
+}
@@ -0,0 +1,74 @@
+package com.settleup.controller;
+
+import com.settleup.config.BulkDataLoadedEvent;
+import io.r2dbc.proxy.ProxyConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+
+import javax.sql.DataSource;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Counts the SQL statements each request sends, for the query budget tests. JDBC statements
+// are counted on the thread running the request (MockMvc runs it on the test thread), so work
+// other threads do meanwhile (the purge, the balance history rebuild, ingest writers) does not
+// count. R2DBC statements are counted on any thread: only the split reads use R2DBC.
+@TestConfiguration(proxyBeanMethods = false)
+class StatementCounter {
+    private static final ThreadLocal<int[]> JDBC = new ThreadLocal<>();
+    private static final AtomicInteger R2DBC = new AtomicInteger();
+
+    private final CountDownLatch sampleDataLoaded = new CountDownLatch(1);
+
+    @Bean
+    static BeanPostProcessor statementCountingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .beforeQuery((execution, queries) -> {
+                                int[] count = JDBC.get();
+                                if (count != null) {
+                                    count[0]++;
+                                }
+                            })
+                            .build();
+                }
+                if ("connectionFactory".equals(beanName) && bean instanceof ConnectionFactory connectionFactory) {
+                    return ProxyConnectionFactory.builder(connectionFactory)
+                            .onBeforeQuery(execution -> R2DBC.incrementAndGet())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    static void start() {
+        JDBC.set(new int[1]);
+        R2DBC.set(0);
+    }
+
+    static int stop() {
+        int statements = JDBC.get()[0] + R2DBC.get();
+        JDBC.remove();
+        return statements;
+    }
+
+    @EventListener(BulkDataLoadedEvent.class)
+    void onSampleDataLoaded() {
+        sampleDataLoaded.countDown();
+    }
+
+    void awaitSampleData() throws InterruptedException {
+        if (!sampleDataLoaded.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Sample data was not loaded");
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+
+class TestControllerTest extends QueryBudgetTest {
+
+    @Test
+    void reads() throws Exception {
+        get("/api/test/data-summary", 3);
+        get("/api/test/user-balances", 4);
+        get("/api/test/group/1/splits", 3);
+    }
+}
@@ -0,0 +1,26 @@
+package com.settleup.controller;
+
+import org.junit.jupiter.api.Test;
+
+class UserControllerTest extends QueryBudgetTest {
+
+    @Test
+    void reads() throws Exception {
+        get("/api/users", 1);
+        get("/api/users?fields=id,name", 1);
+        get("/api/users/1", 1);
+        // Answered from the membership index
+        get("/api/users/1/groups", 0);
+        get("/api/users/1/common-groups/4", 0);
+    }
+
+    @Test
+    void writes() throws Exception {
+        long userId = id(post("/api/users",
+                "{\"name\":\"Budget user\",\"email\":\"budget@settleup.test\",\"password\":\"budget\"}", 1));
+        put("/api/users/" + userId,
+                "{\"name\":\"Budget user 2\",\"email\":\"budget2@settleup.test\",\"password\":\"budget\"}", 2);
+        // The purge runs in the background, outside the request
+        delete("/api/users/" + userId, 1);
+    }
+}